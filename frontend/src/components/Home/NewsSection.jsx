@@ -41,6 +41,7 @@ const NewsSection = () => {
                         title={item.title}
                         content={item.content}
                         imageUrl={item.imageUrl}
+                        imageVariants={item.imageVariants}
                     />
                 ))}
             </div>
@@ -1,10 +1,19 @@
 import React from 'react';
 import '../../styles/NewsCard.css';
 
-const NewsCard = ({ title, content, imageUrl }) => {
+const toSrcSet = (variants) => variants && Object.entries(variants)
+    .map(([width, url]) => `${url} ${width}w`)
+    .join(', ');
+
+const NewsCard = ({ title, content, imageUrl, imageVariants }) => {
     return (
         <div className="news-card">
-            <img src={imageUrl} alt={title} />
+            <img
+                src={imageUrl}
+                srcSet={toSrcSet(imageVariants) || undefined}
+                sizes="(max-width: 768px) 100vw, 360px"
+                alt={title}
+            />
             <h3>{title}</h3>
             <p>{content}</p>
         </div>
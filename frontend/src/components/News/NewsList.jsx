@@ -1,13 +1,22 @@
 import React from 'react';
 import '../../styles/NewsList.css';
 
+const toSrcSet = (variants) => variants && Object.entries(variants)
+    .map(([width, url]) => `${url} ${width}w`)
+    .join(', ');
+
 const NewsList = ({ news }) => {
     return (
         <div className="news-list-container">
             {news.map(item => (
                 <div key={item.id} className="news-list-item">
                     <div className="news-list-image">
-                        <img src={item.imageUrl} alt={item.title} />
+                        <img
+                            src={item.imageUrl}
+                            srcSet={toSrcSet(item.imageVariants) || undefined}
+                            sizes="(max-width: 768px) 100vw, 300px"
+                            alt={item.title}
+                        />
                     </div>
                     <div className="news-list-content">
                         <h3>{item.title}</h3>
@@ -21,6 +21,13 @@ const NurseDashboard = () => {
 
     // Состояния для процедур
     const [patientProcedures, setPatientProcedures] = useState([]);
+
+    // Изменения записей и отметок приходят по потоку SSE, счётчики запускают перезагрузку
+    const [patientsVersion, setPatientsVersion] = useState(0);
+    const [completionsVersion, setCompletionsVersion] = useState(0);
+
+    // Код с QR-талона пациента: сканер вводит его как с клавиатуры и завершает Enter
+    const [checkInCode, setCheckInCode] = useState('');
     const [notification, setNotification] = useState({
         message: '',
         type: '',
@@ -89,6 +96,37 @@ const NurseDashboard = () => {
         }
     }, [selectedCabinet, selectedShift, token]);
 
+    useEffect(() => {
+        if (!selectedCabinet || !selectedShift || !token) return;
+        return NurseDashboardService.subscribeToCabinetChanges(selectedCabinet.cabinetId, token, change => {
+            if (change.shiftId !== selectedShift.id) return;
+            if (change.type === 'COMPLETION_CREATED') {
+                setCompletionsVersion(version => version + 1);
+            } else {
+                setPatientsVersion(version => version + 1);
+            }
+        });
+    }, [selectedCabinet, selectedShift, token]);
+
+    useEffect(() => {
+        if (patientsVersion === 0 || !selectedCabinet || !selectedShift || !token) return;
+        const reloadPatients = async () => {
+            try {
+                const patientsData = await NurseDashboardService.getPatientsForCabinetAndShift(
+                    selectedCabinet.cabinetId,
+                    selectedShift.id,
+                    token
+                );
+                setPatients(patientsData);
+                // Выбранный пациент остаётся выбранным, но с обновлённым списком процедур
+                setSelectedPatient(prev => prev && (patientsData.find(patient => patient.id === prev.id) || null));
+            } catch (error) {
+                console.error('Ошибка обновления пациентов:', error);
+            }
+        };
+        reloadPatients();
+    }, [patientsVersion]);
+
     useEffect(() => {
         if (selectedPatient && selectedCabinet && token) {
             const loadProcedures = async () => {
@@ -117,7 +155,7 @@ const NurseDashboard = () => {
             };
             loadProcedures();
         }
-    }, [selectedPatient, selectedCabinet, token]);
+    }, [selectedPatient, selectedCabinet, token, completionsVersion]);
 
     const showNotification = (message, type) => {
         setNotification({ message, type, visible: true });
@@ -141,13 +179,22 @@ const NurseDashboard = () => {
     const handleCompleteProcedure = async (procedureId) => {
         if (!window.confirm('Отметить процедуру как выполненную на сегодня?')) return;
         try {
-            await NurseDashboardService.markProcedureAsCompleted(
+            const completion = await NurseDashboardService.markProcedureAsCompleted(
                 procedureId,
                 currentUser.id,
                 `Выполнено ${new Date().toLocaleDateString()}`,
                 token
             );
 
+            // Без id отметка принята в журнал и попадёт в базу после восстановления связи
+            if (!completion.id) {
+                setPatientProcedures(prev => prev.map(proc =>
+                    proc.id === procedureId ? { ...proc, completedToday: true } : proc
+                ));
+                showNotification('Отметка сохранена и будет записана, когда база данных станет доступна', 'success');
+                return;
+            }
+
             const proceduresForCabinet = selectedPatient.procedures
                 .filter(proc => proc.cabinetNumber === selectedCabinet.cabinetNumber);
 
@@ -173,6 +220,40 @@ const NurseDashboard = () => {
         }
     };
 
+    const checkInErrors = {
+        400: 'Код недействителен или выдан не на сегодня',
+        403: 'Нет доступа к кабинету этой процедуры',
+        404: 'Запись по этому коду не найдена',
+        409: 'Код больше не соответствует записи, попросите пациента обновить талон'
+    };
+
+    const handleCheckIn = async (e) => {
+        e.preventDefault();
+        const code = checkInCode.trim();
+        if (!code) return;
+        try {
+            const result = await NurseDashboardService.markProcedureAsCompletedByToken(
+                code,
+                currentUser.id,
+                `Выполнено ${new Date().toLocaleDateString()}`,
+                token
+            );
+            if (result.status === 'ALREADY_COMPLETED') {
+                showNotification('Процедура уже отмечена как выполненная на сегодня', 'error');
+            } else if (result.status === 'QUEUED') {
+                showNotification('Отметка сохранена и будет записана, когда база данных станет доступна', 'success');
+            } else {
+                showNotification('Процедура отмечена как выполненная по коду пациента', 'success');
+                setCompletionsVersion(version => version + 1);
+            }
+        } catch (error) {
+            showNotification(checkInErrors[error.response?.status] || 'Ошибка при отметке процедуры', 'error');
+            console.error('Ошибка при отметке по коду:', error);
+        } finally {
+            setCheckInCode('');
+        }
+    };
+
     return (
         <div className="content-wrapper">
             <div className="main-container">
@@ -201,6 +282,15 @@ const NurseDashboard = () => {
                             <div className="users-controls">
                                 <div className="users-list-header">
                                     <h2 className="users-list-title">Мои кабинеты</h2>
+                                    <form className="search-user" onSubmit={handleCheckIn}>
+                                        <i className="fas fa-qrcode"></i>
+                                        <input
+                                            type="text"
+                                            placeholder="Код с талона пациента"
+                                            value={checkInCode}
+                                            onChange={(e) => setCheckInCode(e.target.value)}
+                                        />
+                                    </form>
                                 </div>
                             </div>
 
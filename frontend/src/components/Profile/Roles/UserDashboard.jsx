@@ -1,4 +1,5 @@
 import React, { useState, useEffect } from 'react';
+import { QRCodeSVG } from 'qrcode.react';
 import { useAuth } from '../../../context/AuthContext';
 import UserDashboardService from '../../../services/UserDashboard.service';
 import '../../../styles/Dashboard.css';
@@ -334,6 +335,11 @@ const UserDashboard = () => {
                                                                                 <i className="far fa-calendar-alt"></i> Дата назначения: {formatDate(procedure.appointmentDate)}
                                                                             </small>
                                                                         </div>
+                                                                        {completions.length === 0 && procedure.checkInToken && (
+                                                                            <div className="procedure-qr">
+                                                                                <QRCodeSVG value={procedure.checkInToken} size={96} />
+                                                                            </div>
+                                                                        )}
                                                                         {completions.length > 0 && (
                                                                             <div className="completion-history">
                                                                                 <small>
@@ -51,18 +51,84 @@ const markProcedureAsCompleted = async (appointmentId, userId, notes, token) =>
         appointmentId,
         userId,
         notes
+    }, {
+        headers: {
+            Authorization: `Bearer ${token}`,
+            'Idempotency-Key': `completion-${userId}-${appointmentId}`
+        }
+    });
+    return response.data;
+};
+
+const markProcedureAsCompletedByToken = async (checkInToken, userId, notes, token) => {
+    const response = await axios.post(`${API_URL}/procedure-completions/check-in`, {
+        token: checkInToken,
+        userId,
+        notes
     }, {
         headers: { Authorization: `Bearer ${token}` }
     });
     return response.data;
 };
 
+// Подписка на изменения записей и отметок кабинета (SSE). EventSource не умеет передавать заголовок
+// Authorization, поэтому поток читается через fetch; после обрыва соединение восстанавливается.
+// Возвращает функцию отписки.
+const subscribeToCabinetChanges = (cabinetId, token, onChange) => {
+    const controller = new AbortController();
+    let retryTimer = null;
+
+    const connect = async () => {
+        try {
+            const response = await fetch(`${API_URL}/changes/cabinet/${cabinetId}`, {
+                headers: { Authorization: `Bearer ${token}`, Accept: 'text/event-stream' },
+                signal: controller.signal
+            });
+            if (!response.ok) {
+                throw new Error(`HTTP ${response.status}`);
+            }
+            const reader = response.body.pipeThrough(new TextDecoderStream()).getReader();
+            let buffer = '';
+            for (;;) {
+                const { value, done } = await reader.read();
+                if (done) break;
+                buffer += value;
+                const messages = buffer.split(/\r?\n\r?\n/);
+                buffer = messages.pop();
+                messages.forEach(message => {
+                    const data = message.split(/\r?\n/)
+                        .filter(line => line.startsWith('data:'))
+                        .map(line => line.slice(5).trim())
+                        .join('\n');
+                    if (data) {
+                        onChange(JSON.parse(data));
+                    }
+                });
+            }
+        } catch (error) {
+            if (controller.signal.aborted) return;
+            console.error('Поток изменений кабинета прерван:', error);
+        }
+        if (!controller.signal.aborted) {
+            retryTimer = setTimeout(connect, 5000);
+        }
+    };
+
+    connect();
+    return () => {
+        controller.abort();
+        clearTimeout(retryTimer);
+    };
+};
+
 const NurseDashboardService = {
     getAssignedCabinets,
     getActiveShifts,
     getPatientsForCabinetAndShift,
     getProcedureCompletions,
-    markProcedureAsCompleted
+    markProcedureAsCompleted,
+    markProcedureAsCompletedByToken,
+    subscribeToCabinetChanges
 };
 
 export default NurseDashboardService;
\ No newline at end of file
@@ -8,8 +8,9 @@ import org.springframework.security.crypto.password.PasswordEncoder;
 import ru.naumen.sanatoriumproject.models.ERole;
 import ru.naumen.sanatoriumproject.models.Role;
 import ru.naumen.sanatoriumproject.models.User;
-import ru.naumen.sanatoriumproject.repositories.RoleRepository;
 import ru.naumen.sanatoriumproject.repositories.UserRepository;
+import ru.naumen.sanatoriumproject.services.RoleRegistry;
+import ru.naumen.sanatoriumproject.services.UserDirectoryIndex;
 
 import java.util.Set;
 
@@ -21,8 +22,9 @@ public class SanatoriumProjectApplication {
 
     @Bean
     CommandLineRunner init(UserRepository userRepository,
-                           RoleRepository roleRepository,
-                           PasswordEncoder passwordEncoder) {
+                           RoleRegistry roleRegistry,
+                           PasswordEncoder passwordEncoder,
+                           UserDirectoryIndex directoryIndex) {
         return args -> {
 
 
@@ -34,11 +36,11 @@ public class SanatoriumProjectApplication {
                 admin.setFullName("Администратор Системы");
                 admin.setPhone("+79991234567");
 
-                Role adminRole = roleRepository.findByName(ERole.ROLE_ADMIN)
-                        .orElseThrow(() -> new RuntimeException("Роль ADMIN не найдена"));
+                Role adminRole = roleRegistry.get(ERole.ROLE_ADMIN);
                 admin.setRoles(Set.of(adminRole));
 
                 userRepository.save(admin);
+                directoryIndex.onUserSaved(admin, admin.getRoles());
 
                 System.out.println("\nАдминистратор создан:");
                 System.out.println("Email: admin@polytechnik.ru");
@@ -1,11 +1,14 @@
 package ru.naumen.sanatoriumproject.config;
 
+import jakarta.servlet.DispatcherType;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import ru.naumen.sanatoriumproject.security.JwtAuthEntryPoint;
 import ru.naumen.sanatoriumproject.security.JwtAuthFilter;
 import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.autoconfigure.security.servlet.EndpointRequest;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.Order;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
@@ -17,6 +20,9 @@ import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
+import org.springframework.security.web.util.matcher.AndRequestMatcher;
+import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
+import org.springframework.security.web.util.matcher.DispatcherTypeRequestMatcher;
 
 @Configuration
 @EnableWebSecurity
@@ -31,6 +37,26 @@ public class SecurityConfig {
         return new JwtAuthFilter();
     }
 
+    /**
+     * Эндпоинты actuator (метрики журнала, кэшей и отметок) закрыты отдельной цепочкой только для администратора:
+     * основная цепочка действует лишь на пути из её securityMatchers.
+     */
+    @Bean
+    @Order(1)
+    public SecurityFilterChain actuatorFilterChain(HttpSecurity http) throws Exception {
+        http
+                .securityMatcher(EndpointRequest.toAnyEndpoint())
+                .csrf(AbstractHttpConfigurer::disable)
+                .cors(AbstractHttpConfigurer::disable)
+                .exceptionHandling(exception -> exception.authenticationEntryPoint(unauthorizedHandler))
+                .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
+                .userDetailsService(userDetailsService)
+                .authorizeHttpRequests(auth -> auth.anyRequest().hasRole("ADMIN"))
+                .addFilterBefore(authenticationJwtTokenFilter(), UsernamePasswordAuthenticationFilter.class);
+
+        return http.build();
+    }
+
     @Bean
     public SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
         http
@@ -52,10 +78,17 @@ public class SecurityConfig {
                                 "/v3/api-docs/**",
                                 "/swagger-ui/**",
                                 "/swagger-resources/**",
-                                "/webjars/**"
+                                "/webjars/**",
+                                "/api/reports/**",
+                                "/api/changes/**"
                         )
                 )
                 .authorizeHttpRequests(auth -> auth
+                        // Повторные async-диспетчеризации потоков SSE уже прошли проверку на исходном запросе
+                        .requestMatchers(new AndRequestMatcher(
+                                new DispatcherTypeRequestMatcher(DispatcherType.ASYNC),
+                                new AntPathRequestMatcher("/api/changes/**"))).permitAll()
+
                         // Публичные эндпоинты
                         .requestMatchers(
                                 "/api/auth/**",
@@ -105,10 +138,16 @@ public class SecurityConfig {
                         .requestMatchers("/api/appointments/**").hasAnyRole("DOCTOR", "ADMIN")
                         .requestMatchers("/api/registrations/shift/**").hasAnyRole("DOCTOR", "ADMIN")
 
+                        // Потоки изменений для дашбордов
+                        .requestMatchers("/api/changes/**").hasAnyRole("NURSE", "DOCTOR", "ADMIN")
+
                         // Эндпоинты для медработников
                         .requestMatchers("/api/procedure-completions/**").hasAnyRole("NURSE", "ADMIN")
                         .requestMatchers("/api/staff-cabinets/**").hasAnyRole("NURSE", "ADMIN")
 
+                        // Отчёты регистратуры
+                        .requestMatchers("/api/reports/**").hasAnyRole("REGISTRAR", "ADMIN")
+
                         // Все остальные запросы требуют аутентификации
                         .anyRequest().authenticated()
                 )
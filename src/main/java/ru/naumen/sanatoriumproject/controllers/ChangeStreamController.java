@@ -0,0 +1,30 @@
+package ru.naumen.sanatoriumproject.controllers;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import ru.naumen.sanatoriumproject.services.ChangeStreamService;
+
+@RestController
+@RequestMapping("/api/changes")
+@RequiredArgsConstructor
+public class ChangeStreamController {
+    private final ChangeStreamService changeStreamService;
+
+    @GetMapping(value = "/cabinet/{cabinetId}", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @PreAuthorize("hasAnyRole('NURSE', 'DOCTOR', 'ADMIN')")
+    public SseEmitter streamCabinetChanges(@PathVariable Long cabinetId) {
+        return changeStreamService.subscribeToCabinet(cabinetId);
+    }
+
+    @GetMapping(value = "/shift/{shiftId}", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @PreAuthorize("hasAnyRole('NURSE', 'DOCTOR', 'ADMIN')")
+    public SseEmitter streamShiftChanges(@PathVariable Long shiftId) {
+        return changeStreamService.subscribeToShift(shiftId);
+    }
+}
@@ -1,16 +1,20 @@
 package ru.naumen.sanatoriumproject.controllers;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
 import ru.naumen.sanatoriumproject.dtos.NewsCreateDTO;
 import ru.naumen.sanatoriumproject.dtos.NewsDTO;
+import ru.naumen.sanatoriumproject.services.NewsFeedCache;
 import ru.naumen.sanatoriumproject.services.NewsService;
 
 import java.io.IOException;
-import java.util.List;
 
 @RestController
 @RequestMapping("/api/news")
@@ -19,8 +23,25 @@ public class NewsController {
     private final NewsService newsService;
 
     @GetMapping
-    public ResponseEntity<List<NewsDTO>> getAllNews() {
-        return ResponseEntity.ok(newsService.getAllNews());
+    public ResponseEntity<byte[]> getAllNews(
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            WebRequest request) {
+        NewsFeedCache.Feed feed = newsService.getFeed();
+        boolean gzip = acceptEncoding != null && acceptEncoding.contains("gzip");
+        String etag = gzip ? feed.getGzipEtag() : feed.getEtag();
+        if (request.checkNotModified(etag, feed.getLastModified())) {
+            return null;
+        }
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .eTag(etag)
+                .lastModified(feed.getLastModified())
+                .cacheControl(CacheControl.noCache().cachePublic())
+                .varyBy(HttpHeaders.ACCEPT_ENCODING)
+                .contentType(MediaType.APPLICATION_JSON);
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(gzip ? feed.getGzip() : feed.getJson());
     }
 
     @GetMapping("/{id}")
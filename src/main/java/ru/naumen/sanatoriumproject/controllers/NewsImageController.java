@@ -0,0 +1,123 @@
+package ru.naumen.sanatoriumproject.controllers;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
+import ru.naumen.sanatoriumproject.services.FileStorageService;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Отдача картинок новостей. Файл под своим именем не перезаписывается, поэтому ETag — само имя,
+ * а браузер кэширует картинку навсегда. Тело отправляет Tomcat через sendfile, без копирования в JVM.
+ * Отдаются только картинки, и браузеру запрещено угадывать тип по содержимому.
+ */
+@RestController
+@RequestMapping("/uploads/news")
+@RequiredArgsConstructor
+public class NewsImageController {
+    private static final CacheControl IMMUTABLE = CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().immutable();
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private final FileStorageService fileStorageService;
+
+    @GetMapping("/{filename}")
+    public void getImage(@PathVariable String filename, HttpServletRequest request,
+                         HttpServletResponse response) throws IOException {
+        Path file = fileStorageService.loadStoredFile(filename);
+        String etag = "\"" + filename + "\"";
+        long lastModified = Files.getLastModifiedTime(file).toMillis();
+
+        response.setHeader(HttpHeaders.CACHE_CONTROL, IMMUTABLE.getHeaderValue());
+        response.setHeader("X-Content-Type-Options", "nosniff");
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        if (new ServletWebRequest(request, response).checkNotModified(etag, lastModified)) {
+            return;
+        }
+
+        long length = Files.size(file);
+        long start = 0;
+        long end = length - 1;
+        HttpRange range = requestedRange(request, etag, lastModified);
+        if (range != null) {
+            start = range.getRangeStart(length);
+            end = range.getRangeEnd(length);
+            if (start >= length) {
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                response.setStatus(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+                return;
+            }
+            response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+        }
+        response.setContentType(MediaTypeFactory.getMediaType(filename)
+                .orElse(MediaType.APPLICATION_OCTET_STREAM).toString());
+        response.setContentLengthLong(end - start + 1);
+        if (end < start || HttpMethod.HEAD.matches(request.getMethod())) {
+            return;
+        }
+
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            // Tomcat сам передаст диапазон файла в сокет после выхода из обработчика
+            request.setAttribute(SENDFILE_FILENAME, file.toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, end + 1);
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(file)) {
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            for (long position = start; position <= end; ) {
+                position += channel.transferTo(position, end + 1 - position, out);
+            }
+        }
+    }
+
+    /**
+     * Единственный диапазон из Range. Несколько диапазонов, некорректный заголовок и устаревший If-Range
+     * дают полный ответ, как разрешает RFC 9110.
+     */
+    private static HttpRange requestedRange(HttpServletRequest request, String etag, long lastModified) {
+        String header = request.getHeader(HttpHeaders.RANGE);
+        if (header == null) {
+            return null;
+        }
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange != null && !ifRange.equals(etag)) {
+            try {
+                if (request.getDateHeader(HttpHeaders.IF_RANGE) / 1000 != lastModified / 1000) {
+                    return null;
+                }
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+        }
+        try {
+            List<HttpRange> ranges = HttpRange.parseRanges(header);
+            return ranges.size() == 1 ? ranges.get(0) : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
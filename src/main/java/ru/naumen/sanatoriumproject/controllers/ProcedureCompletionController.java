@@ -4,7 +4,11 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import ru.naumen.sanatoriumproject.dtos.ProcedureCompletionBatchDTO;
 import ru.naumen.sanatoriumproject.dtos.ProcedureCompletionDTO;
+import ru.naumen.sanatoriumproject.dtos.ProcedureCompletionResultDTO;
+import ru.naumen.sanatoriumproject.services.CompletionIdempotencyCache;
+import ru.naumen.sanatoriumproject.services.CompletionJournalService;
 import ru.naumen.sanatoriumproject.services.ProcedureCompletionService;
 
 import java.util.List;
@@ -15,16 +19,52 @@ import java.util.Map;
 @RequiredArgsConstructor
 public class ProcedureCompletionController {
     private final ProcedureCompletionService completionService;
+    private final CompletionIdempotencyCache idempotencyCache;
+    private final CompletionJournalService journalService;
 
     @PostMapping
     @PreAuthorize("hasRole('NURSE')")
     public ResponseEntity<ProcedureCompletionDTO> markAsCompleted(
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
             @RequestBody Map<String, Object> request) {
         Long appointmentId = Long.valueOf(request.get("appointmentId").toString());
         Long userId = Long.valueOf(request.get("userId").toString());
         String notes = request.get("notes") != null ? request.get("notes").toString() : null;
 
-        return ResponseEntity.ok(completionService.markProcedureAsCompleted(appointmentId, userId, notes));
+        if (idempotencyKey != null) {
+            ProcedureCompletionDTO cached = idempotencyCache.get(userId, idempotencyKey);
+            if (cached != null) {
+                return ResponseEntity.ok(cached);
+            }
+        }
+
+        ProcedureCompletionDTO completion = journalService.markProcedureAsCompleted(appointmentId, userId, notes);
+        if (completion.getId() == null) {
+            // Отметка в журнале: повтор с тем же ключом после восстановления БД вернёт уже сохранённую
+            return ResponseEntity.accepted().body(completion);
+        }
+        if (idempotencyKey != null) {
+            idempotencyCache.put(userId, idempotencyKey, completion);
+        }
+        return ResponseEntity.ok(completion);
+    }
+
+    @PostMapping("/batch")
+    @PreAuthorize("hasRole('NURSE')")
+    public ResponseEntity<List<ProcedureCompletionResultDTO>> markBatchAsCompleted(
+            @RequestBody ProcedureCompletionBatchDTO batchDTO) {
+        return ResponseEntity.ok(journalService.markProceduresAsCompleted(batchDTO));
+    }
+
+    @PostMapping("/check-in")
+    @PreAuthorize("hasRole('NURSE')")
+    public ResponseEntity<ProcedureCompletionResultDTO> markAsCompletedByToken(
+            @RequestBody Map<String, Object> request) {
+        String token = request.get("token").toString();
+        Long userId = Long.valueOf(request.get("userId").toString());
+        String notes = request.get("notes") != null ? request.get("notes").toString() : null;
+
+        return ResponseEntity.ok(journalService.markProcedureAsCompletedByToken(token, userId, notes));
     }
 
     @PreAuthorize("hasRole('NURSE')")
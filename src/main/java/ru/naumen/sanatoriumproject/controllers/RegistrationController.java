@@ -1,11 +1,18 @@
 package ru.naumen.sanatoriumproject.controllers;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import ru.naumen.sanatoriumproject.dtos.GroupRegistrationDTO;
+import ru.naumen.sanatoriumproject.dtos.GroupRegistrationResultDTO;
 import ru.naumen.sanatoriumproject.dtos.RegistrationDTO;
+import ru.naumen.sanatoriumproject.dtos.RoomAllocationResultDTO;
 import ru.naumen.sanatoriumproject.services.RegistrationService;
+import ru.naumen.sanatoriumproject.services.ShiftRosterCache;
 
 import java.util.List;
 
@@ -22,6 +29,19 @@ public class RegistrationController {
         return ResponseEntity.ok(registrationService.registerUser(registrationDTO));
     }
 
+    @PostMapping("/group")
+    @PreAuthorize("hasAnyRole('REGISTRAR', 'ADMIN')")
+    public ResponseEntity<List<GroupRegistrationResultDTO>> registerGroup(
+            @RequestBody GroupRegistrationDTO groupDTO) {
+        return ResponseEntity.ok(registrationService.registerGroup(groupDTO));
+    }
+
+    @PostMapping("/allocate-rooms/{shiftId}")
+    @PreAuthorize("hasAnyRole('REGISTRAR', 'ADMIN')")
+    public ResponseEntity<RoomAllocationResultDTO> allocateRooms(@PathVariable Long shiftId) {
+        return ResponseEntity.ok(registrationService.allocateRooms(shiftId));
+    }
+
     @GetMapping("/user/{userId}")
     @PreAuthorize("#userId == authentication.principal.id or hasAnyRole('REGISTRAR', 'ADMIN')")
     public ResponseEntity<List<RegistrationDTO>> getUserRegistrations(
@@ -31,9 +51,18 @@ public class RegistrationController {
 
     @GetMapping("/shift/{shiftId}")
     @PreAuthorize("hasAnyRole('DOCTOR', 'REGISTRAR', 'ADMIN')")
-    public ResponseEntity<List<RegistrationDTO>> getRegistrationsByShift(
-            @PathVariable Long shiftId) {
-        return ResponseEntity.ok(registrationService.getRegistrationsByShift(shiftId));
+    public ResponseEntity<byte[]> getRegistrationsByShift(
+            @PathVariable Long shiftId,
+            WebRequest request) {
+        ShiftRosterCache.Roster roster = registrationService.getShiftRoster(shiftId);
+        if (request.checkNotModified(roster.getEtag())) {
+            return null;
+        }
+        return ResponseEntity.ok()
+                .eTag(roster.getEtag())
+                .cacheControl(CacheControl.noCache().cachePrivate())
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(roster.getJson());
     }
 
     @DeleteMapping("/user/{userId}/shift/{shiftId}")
@@ -0,0 +1,53 @@
+package ru.naumen.sanatoriumproject.controllers;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.naumen.sanatoriumproject.services.ReportService;
+
+@RestController
+@RequestMapping("/api/reports")
+@RequiredArgsConstructor
+public class ReportController {
+    private final ReportService reportService;
+
+    @GetMapping("/shift/{shiftId}/roster")
+    @PreAuthorize("hasAnyRole('REGISTRAR', 'ADMIN')")
+    public ResponseEntity<StreamingResponseBody> getShiftRoster(
+            @PathVariable Long shiftId,
+            @RequestParam(defaultValue = "csv") String format) {
+        return report(ReportService.Report.SHIFT_ROSTER, shiftId, ReportService.Format.parse(format));
+    }
+
+    @GetMapping("/shift/{shiftId}/rooms")
+    @PreAuthorize("hasAnyRole('REGISTRAR', 'ADMIN')")
+    public ResponseEntity<StreamingResponseBody> getRooms(
+            @PathVariable Long shiftId,
+            @RequestParam(defaultValue = "csv") String format) {
+        return report(ReportService.Report.ROOMS, shiftId, ReportService.Format.parse(format));
+    }
+
+    @GetMapping("/shift/{shiftId}/appointments")
+    @PreAuthorize("hasAnyRole('REGISTRAR', 'ADMIN')")
+    public ResponseEntity<StreamingResponseBody> getAppointments(
+            @PathVariable Long shiftId,
+            @RequestParam(defaultValue = "csv") String format) {
+        return report(ReportService.Report.APPOINTMENTS, shiftId, ReportService.Format.parse(format));
+    }
+
+    private ResponseEntity<StreamingResponseBody> report(ReportService.Report report, Long shiftId,
+                                                         ReportService.Format format) {
+        reportService.checkShift(shiftId);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(format.getContentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename(reportService.fileName(report, shiftId, format))
+                        .build().toString())
+                .body(out -> reportService.write(report, shiftId, format, out));
+    }
+}
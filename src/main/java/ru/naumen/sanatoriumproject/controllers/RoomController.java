@@ -1,12 +1,15 @@
 package ru.naumen.sanatoriumproject.controllers;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import ru.naumen.sanatoriumproject.dtos.OccupancyCalendarDTO;
 import ru.naumen.sanatoriumproject.dtos.RoomDTO;
 import ru.naumen.sanatoriumproject.services.RoomService;
 
+import java.time.LocalDate;
 import java.util.List;
 
 @RestController
@@ -54,4 +57,13 @@ public class RoomController {
             @RequestParam Long shiftId) {
         return ResponseEntity.ok(roomService.getAvailableRooms(shiftId));
     }
+
+    @GetMapping("/occupancy-calendar")
+    @PreAuthorize("hasAnyRole('REGISTRAR', 'ADMIN')")
+    public ResponseEntity<OccupancyCalendarDTO> getOccupancyCalendar(
+            @RequestParam Long shiftId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return ResponseEntity.ok(roomService.getOccupancyCalendar(shiftId, from, to));
+    }
 }
\ No newline at end of file
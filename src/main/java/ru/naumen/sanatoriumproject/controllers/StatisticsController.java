@@ -0,0 +1,57 @@
+package ru.naumen.sanatoriumproject.controllers;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+import ru.naumen.sanatoriumproject.dtos.CompletionStatsDTO;
+import ru.naumen.sanatoriumproject.dtos.StatsRebuildDTO;
+import ru.naumen.sanatoriumproject.services.CompletionStatsService;
+
+import java.time.LocalDate;
+
+@RestController
+@RequestMapping("/api/statistics")
+@RequiredArgsConstructor
+public class StatisticsController {
+    private final CompletionStatsService statsService;
+
+    @GetMapping("/shift/{shiftId}/student/{studentId}")
+    @PreAuthorize("#studentId == authentication.principal.id or hasAnyRole('DOCTOR', 'NURSE', 'ADMIN')")
+    public ResponseEntity<CompletionStatsDTO> getStudentStats(
+            @PathVariable Long shiftId,
+            @PathVariable Long studentId) {
+        return ResponseEntity.ok(statsService.getStudentStats(shiftId, studentId));
+    }
+
+    @GetMapping("/shift/{shiftId}/cabinet/{cabinetId}")
+    @PreAuthorize("hasAnyRole('DOCTOR', 'NURSE', 'ADMIN')")
+    public ResponseEntity<CompletionStatsDTO> getCabinetDayStats(
+            @PathVariable Long shiftId,
+            @PathVariable Long cabinetId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+        return ResponseEntity.ok(statsService.getCabinetDayStats(shiftId, cabinetId,
+                date != null ? date : LocalDate.now()));
+    }
+
+    @GetMapping("/shift/{shiftId}/procedure/{procedureId}")
+    @PreAuthorize("hasAnyRole('DOCTOR', 'ADMIN')")
+    public ResponseEntity<CompletionStatsDTO> getProcedureStats(
+            @PathVariable Long shiftId,
+            @PathVariable Long procedureId) {
+        return ResponseEntity.ok(statsService.getProcedureStats(shiftId, procedureId));
+    }
+
+    @GetMapping("/verify")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<StatsRebuildDTO> verify() {
+        return ResponseEntity.ok(statsService.verify());
+    }
+
+    @PostMapping("/rebuild")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<StatsRebuildDTO> rebuild() {
+        return ResponseEntity.ok(statsService.rebuild());
+    }
+}
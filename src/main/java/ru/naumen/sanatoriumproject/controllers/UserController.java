@@ -1,18 +1,20 @@
 package ru.naumen.sanatoriumproject.controllers;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.server.ResponseStatusException;
 import ru.naumen.sanatoriumproject.dtos.*;
 import ru.naumen.sanatoriumproject.models.ERole;
-import ru.naumen.sanatoriumproject.models.Registration;
 import ru.naumen.sanatoriumproject.models.User;
-import ru.naumen.sanatoriumproject.repositories.RegistrationRepository;
 import ru.naumen.sanatoriumproject.repositories.UserRepository;
-import ru.naumen.sanatoriumproject.services.AppointmentService;
+import ru.naumen.sanatoriumproject.services.UserProfileCache;
+import ru.naumen.sanatoriumproject.services.UserProfileService;
 import ru.naumen.sanatoriumproject.services.UserService;
 
 import java.util.List;
@@ -26,8 +28,7 @@ import java.util.stream.Collectors;
 public class UserController {
     private final UserRepository userRepository;
     private final UserService userService;
-    private final RegistrationRepository registrationRepository;
-    private final AppointmentService appointmentService;
+    private final UserProfileService userProfileService;
 
     @GetMapping
     @PreAuthorize("hasRole('ADMIN')")
@@ -43,6 +44,19 @@ public class UserController {
         return userService.getRegularUsers();
     }
 
+    @GetMapping("/directory")
+    @PreAuthorize("hasAnyRole('REGISTRAR', 'ADMIN')")
+    public UserDirectoryPageDTO searchDirectory(
+            @RequestParam(required = false) String q,
+            @RequestParam(required = false) Set<ERole> roles,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size) {
+        if (page < 0 || size < 1 || size > 100) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "page must be >= 0 and size between 1 and 100");
+        }
+        return userService.searchDirectory(q, roles, page, size);
+    }
+
     @PostMapping
     @PreAuthorize("hasRole('REGISTRAR') or hasRole('ADMIN')")
     public ResponseEntity<?> createUser(
@@ -89,6 +103,12 @@ public class UserController {
         }
     }
 
+    @PutMapping("/bulk")
+    @PreAuthorize("hasRole('ADMIN')")
+    public UserBulkUpdateResultDTO bulkUpdate(@RequestBody UserBulkUpdateDTO bulkDTO) {
+        return userService.bulkUpdate(bulkDTO);
+    }
+
     @DeleteMapping("/{id}")
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<Void> deleteUser(@PathVariable Long id) {
@@ -107,50 +127,25 @@ public class UserController {
 
     @GetMapping("/{userId}/profile")
     @PreAuthorize("#userId == authentication.principal.id")
-    public ResponseEntity<UserProfileDTO> getUserProfile(@PathVariable Long userId) {
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found"));
-
-        UserProfileDTO profile = new UserProfileDTO();
-        profile.setFullName(user.getFullName());
-        profile.setEmail(user.getEmail());
-        profile.setPhone(user.getPhone());
-        profile.setBirthDate(user.getBirthDate());
-
-        return ResponseEntity.ok(profile);
+    public ResponseEntity<byte[]> getUserProfile(@PathVariable Long userId, WebRequest request) {
+        return cachedView(userProfileService.getProfileView(userId), request);
     }
 
     @GetMapping("/{userId}/shifts")
     @PreAuthorize("#userId == authentication.principal.id")
-    public ResponseEntity<List<UserShiftInfoDTO>> getUserShifts(@PathVariable Long userId) {
-        List<Registration> registrations = registrationRepository.findByUserId(userId);
-
-        List<UserShiftInfoDTO> result = registrations.stream()
-                .map(reg -> {
-                    UserShiftInfoDTO dto = new UserShiftInfoDTO();
-                    dto.setShiftId(reg.getShift().getId());
-                    dto.setShiftName(reg.getShift().getName());
-                    dto.setStartDate(reg.getShift().getStartDate());
-                    dto.setEndDate(reg.getShift().getEndDate());
-
-                    if (reg.getRoom() != null) {
-                        dto.setRoomNumber(reg.getRoom().getNumber());
-                        dto.setRoomDescription(reg.getRoom().getDescription());
-                    }
-
-                    List<AppointmentDTO> appointments = appointmentService.getAppointmentsByStudentAndShift(
-                            userId, reg.getShift().getId());
-                    dto.setAppointments(appointments);
-
-                    List<ProcedureCompletionDTO> completions = procedureCompletionService
-                            .getCompletionsByUserAndShift(userId, reg.getShift().getId());
-                    dto.setCompletedProcedures(completions);
-
-                    return dto;
-                })
-                .collect(Collectors.toList());
+    public ResponseEntity<byte[]> getUserShifts(@PathVariable Long userId, WebRequest request) {
+        return cachedView(userProfileService.getShiftsView(userId), request);
+    }
 
-        return ResponseEntity.ok(result);
+    private ResponseEntity<byte[]> cachedView(UserProfileCache.View view, WebRequest request) {
+        if (request.checkNotModified(view.getEtag())) {
+            return null;
+        }
+        return ResponseEntity.ok()
+                .eTag(view.getEtag())
+                .cacheControl(CacheControl.noCache().cachePrivate())
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(view.getJson());
     }
 
     private UserWithRolesDTO convertToDtoWithRoles(User user) {
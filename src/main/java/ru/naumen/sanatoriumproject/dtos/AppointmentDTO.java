@@ -9,6 +9,7 @@ public class AppointmentDTO {
     private Long id;
     private Long procedureId;
     private String procedureName;
+    private Long cabinetId;
     private String cabinetNumber;
     private Long studentId;
     private String studentName;
@@ -22,4 +23,5 @@ public class AppointmentDTO {
     private String notes;
     private String cabinetName;
     private int defaultDuration;
+    private String checkInToken;
 }
\ No newline at end of file
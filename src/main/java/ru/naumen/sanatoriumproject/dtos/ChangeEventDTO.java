@@ -0,0 +1,23 @@
+package ru.naumen.sanatoriumproject.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ChangeEventDTO {
+    private Type type;
+    private Long appointmentId;
+    private Long completionId;
+    private Long cabinetId;
+    private Long shiftId;
+
+    public enum Type {
+        APPOINTMENT_CREATED,
+        APPOINTMENT_UPDATED,
+        APPOINTMENT_DELETED,
+        COMPLETION_CREATED
+    }
+}
@@ -0,0 +1,10 @@
+package ru.naumen.sanatoriumproject.dtos;
+
+import lombok.Data;
+
+@Data
+public class CompletionStatsDTO {
+    private long prescribed;
+    private long completed;
+    private double completionRate;
+}
@@ -0,0 +1,26 @@
+package ru.naumen.sanatoriumproject.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class GroupRegistrationDTO {
+    private Long shiftId;
+    private LocalDate checkInDate;
+    private LocalDate checkOutDate;
+    private List<Member> members;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Member {
+        private Long userId;
+        private Long roomId;
+    }
+}
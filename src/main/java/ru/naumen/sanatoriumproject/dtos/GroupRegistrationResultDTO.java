@@ -0,0 +1,23 @@
+package ru.naumen.sanatoriumproject.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class GroupRegistrationResultDTO {
+    private Long userId;
+    private Long roomId;
+    private Status status;
+
+    public enum Status {
+        REGISTERED,
+        USER_NOT_FOUND,
+        ROOM_NOT_FOUND,
+        ROOM_FULL,
+        // Пользователь уже встречался в этой группе выше
+        DUPLICATE
+    }
+}
@@ -2,6 +2,7 @@ package ru.naumen.sanatoriumproject.dtos;
 
 import lombok.Data;
 import java.time.LocalDateTime;
+import java.util.Map;
 
 @Data
 public class NewsDTO {
@@ -9,5 +10,7 @@ public class NewsDTO {
     private String title;
     private String content;
     private String imageUrl;
+    // Уменьшенные копии картинки: ширина → URL; пока копия не готова, её здесь нет
+    private Map<Integer, String> imageVariants;
     private LocalDateTime createdAt;
 }
\ No newline at end of file
@@ -0,0 +1,29 @@
+package ru.naumen.sanatoriumproject.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OccupancyCalendarDTO {
+    private Long shiftId;
+    private LocalDate from;
+    private LocalDate to;
+    private List<RoomDays> rooms;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class RoomDays {
+        private Long roomId;
+        private String number;
+        private Integer capacity;
+        // Число гостей в каждый день с from по to включительно
+        private int[] occupancy;
+    }
+}
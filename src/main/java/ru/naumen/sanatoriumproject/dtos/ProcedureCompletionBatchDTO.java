@@ -0,0 +1,12 @@
+package ru.naumen.sanatoriumproject.dtos;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class ProcedureCompletionBatchDTO {
+    private Long userId;
+    private List<Long> appointmentIds;
+    private String notes;
+}
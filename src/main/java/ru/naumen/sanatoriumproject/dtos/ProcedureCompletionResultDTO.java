@@ -0,0 +1,22 @@
+package ru.naumen.sanatoriumproject.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProcedureCompletionResultDTO {
+    private Long appointmentId;
+    private Status status;
+
+    public enum Status {
+        COMPLETED,
+        ALREADY_COMPLETED,
+        NOT_FOUND,
+        FORBIDDEN,
+        // Принята в локальный журнал и будет записана в БД после её восстановления
+        QUEUED
+    }
+}
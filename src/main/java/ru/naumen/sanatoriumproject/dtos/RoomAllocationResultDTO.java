@@ -0,0 +1,16 @@
+package ru.naumen.sanatoriumproject.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RoomAllocationResultDTO {
+    private int assigned;
+    // Регистрации, для которых не нашлось места
+    private List<Long> unassignedRegistrationIds;
+}
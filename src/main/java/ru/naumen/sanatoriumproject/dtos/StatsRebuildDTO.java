@@ -0,0 +1,14 @@
+package ru.naumen.sanatoriumproject.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StatsRebuildDTO {
+    private long studentMismatches;
+    private long cabinetDayMismatches;
+    private long procedureMismatches;
+}
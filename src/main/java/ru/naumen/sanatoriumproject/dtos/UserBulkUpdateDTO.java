@@ -0,0 +1,35 @@
+package ru.naumen.sanatoriumproject.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserBulkUpdateDTO {
+    private List<Change> users;
+
+    /**
+     * Изменения одного пользователя; поля со значением null не меняются.
+     * Непустой набор ролей заменяет текущие целиком, пустой или отсутствующий роли не меняет.
+     * Чтобы отозвать права сотрудника, передают набор только из ROLE_USER.
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Change {
+        private Long id;
+        private String fullName;
+        private String phone;
+        private LocalDate birthDate;
+        private String email;
+        private String login;
+        private String password;
+        private Set<String> roles;
+    }
+}
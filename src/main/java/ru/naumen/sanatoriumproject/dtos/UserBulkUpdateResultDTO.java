@@ -0,0 +1,15 @@
+package ru.naumen.sanatoriumproject.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserBulkUpdateResultDTO {
+    private int updated;
+    private int rolesAdded;
+    private int rolesRemoved;
+    private int passwordsReset;
+}
@@ -0,0 +1,17 @@
+package ru.naumen.sanatoriumproject.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserDirectoryPageDTO {
+    private List<UserWithRolesDTO> items;
+    private int page;
+    private int size;
+    private long total;
+}
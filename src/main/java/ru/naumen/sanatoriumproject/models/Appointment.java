@@ -8,7 +8,10 @@ import jakarta.validation.constraints.NotNull;
 import java.time.LocalDate;
 
 @Entity
-@Table(name = "appointments")
+@Table(name = "appointments", indexes = {
+        @Index(name = "idx_appointments_shift", columnList = "shift_id"),
+        @Index(name = "idx_appointments_student", columnList = "student_id"),
+        @Index(name = "idx_appointments_doctor", columnList = "doctor_id")})
 @Data
 @NoArgsConstructor
 public class Appointment {
@@ -0,0 +1,20 @@
+package ru.naumen.sanatoriumproject.models;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@Entity
+@Table(name = "cabinet_day_stats")
+public class CabinetDayStats {
+    @EmbeddedId
+    private CabinetDayStatsId id;
+
+    @Column(nullable = false)
+    private long prescribed;
+
+    @Column(nullable = false)
+    private long completed;
+}
@@ -0,0 +1,19 @@
+package ru.naumen.sanatoriumproject.models;
+
+import jakarta.persistence.Embeddable;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Embeddable
+public class CabinetDayStatsId implements Serializable {
+    private Long shiftId;
+    private Long cabinetId;
+    private LocalDate appointmentDate;
+}
@@ -9,7 +9,9 @@ import java.time.LocalDateTime;
 @Data
 @NoArgsConstructor
 @Entity
-@Table(name = "procedure_completions")
+@Table(name = "procedure_completions",
+        uniqueConstraints = @UniqueConstraint(columnNames = "appointment_id"),
+        indexes = @Index(name = "idx_procedure_completions_completed_by", columnList = "completed_by"))
 public class ProcedureCompletion {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
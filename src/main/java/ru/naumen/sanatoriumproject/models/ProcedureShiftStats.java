@@ -0,0 +1,20 @@
+package ru.naumen.sanatoriumproject.models;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@Entity
+@Table(name = "procedure_shift_stats")
+public class ProcedureShiftStats {
+    @EmbeddedId
+    private ProcedureShiftStatsId id;
+
+    @Column(nullable = false)
+    private long prescribed;
+
+    @Column(nullable = false)
+    private long completed;
+}
@@ -9,7 +9,8 @@ import java.time.LocalDate;
 @NoArgsConstructor
 @Entity
 @Table(name = "registrations",
-        uniqueConstraints = @UniqueConstraint(columnNames = {"user_id", "shift_id"}))
+        uniqueConstraints = @UniqueConstraint(columnNames = {"user_id", "shift_id"}),
+        indexes = @Index(name = "idx_registrations_shift_room", columnList = "shift_id, room_id"))
 public class Registration {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -0,0 +1,21 @@
+package ru.naumen.sanatoriumproject.models;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Загруженный файл и число новостей, которые на него ссылаются.
+ */
+@Entity
+@Table(name = "stored_files")
+@Data
+@NoArgsConstructor
+public class StoredFile {
+    @Id
+    @Column(length = 100)
+    private String name;
+
+    @Column(nullable = false)
+    private int refCount;
+}
@@ -0,0 +1,20 @@
+package ru.naumen.sanatoriumproject.models;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@Entity
+@Table(name = "student_shift_stats")
+public class StudentShiftStats {
+    @EmbeddedId
+    private StudentShiftStatsId id;
+
+    @Column(nullable = false)
+    private long prescribed;
+
+    @Column(nullable = false)
+    private long completed;
+}
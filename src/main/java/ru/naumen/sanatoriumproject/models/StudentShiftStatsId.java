@@ -0,0 +1,17 @@
+package ru.naumen.sanatoriumproject.models;
+
+import jakarta.persistence.Embeddable;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Embeddable
+public class StudentShiftStatsId implements Serializable {
+    private Long shiftId;
+    private Long studentId;
+}
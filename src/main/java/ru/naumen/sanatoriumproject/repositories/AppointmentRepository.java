@@ -2,8 +2,12 @@ package ru.naumen.sanatoriumproject.repositories;
 
 import ru.naumen.sanatoriumproject.models.Appointment;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -12,4 +16,29 @@ public interface AppointmentRepository extends JpaRepository<Appointment, Long>
     List<Appointment> findByStudentId(Long studentId);
     List<Appointment> findByStudentIdAndShiftId(Long studentId, Long shiftId);
     List<Appointment> findByShiftIdAndProcedure_CabinetId(Long shiftId, Long cabinetId);
+
+    @Query("SELECT a FROM Appointment a " +
+            "JOIN FETCH a.procedure p " +
+            "JOIN FETCH p.cabinet " +
+            "JOIN FETCH a.student " +
+            "JOIN FETCH a.doctor " +
+            "JOIN FETCH a.shift " +
+            "WHERE a.student.id = :studentId AND a.shift.id IN :shiftIds")
+    List<Appointment> findByStudentIdAndShiftIdsWithDetails(@Param("studentId") Long studentId,
+                                                           @Param("shiftIds") Collection<Long> shiftIds);
+
+    @Query("SELECT a.id AS appointmentId, a.procedure.cabinet.id AS cabinetId, a.shift.id AS shiftId, " +
+            "a.student.id AS studentId, a.procedure.id AS procedureId, a.appointmentDate AS appointmentDate " +
+            "FROM Appointment a " +
+            "WHERE a.id IN :ids")
+    List<AppointmentScope> findScopesByIds(@Param("ids") Collection<Long> ids);
+
+    interface AppointmentScope {
+        Long getAppointmentId();
+        Long getCabinetId();
+        Long getShiftId();
+        Long getStudentId();
+        Long getProcedureId();
+        LocalDate getAppointmentDate();
+    }
 }
\ No newline at end of file
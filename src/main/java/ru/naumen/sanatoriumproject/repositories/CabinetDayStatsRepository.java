@@ -0,0 +1,63 @@
+package ru.naumen.sanatoriumproject.repositories;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import ru.naumen.sanatoriumproject.models.CabinetDayStats;
+import ru.naumen.sanatoriumproject.models.CabinetDayStatsId;
+
+import java.time.LocalDate;
+
+@Repository
+public interface CabinetDayStatsRepository extends JpaRepository<CabinetDayStats, CabinetDayStatsId> {
+    String AGGREGATE =
+            "SELECT a.shift_id, p.cabinet_id, a.appointment_date, count(*) AS prescribed, count(pc.id) AS completed " +
+            "FROM appointments a " +
+            "JOIN procedures p ON p.id = a.procedure_id " +
+            "LEFT JOIN procedure_completions pc ON pc.appointment_id = a.id " +
+            "GROUP BY a.shift_id, p.cabinet_id, a.appointment_date";
+    String CURRENT =
+            "SELECT shift_id, cabinet_id, appointment_date, prescribed, completed FROM cabinet_day_stats " +
+            "WHERE prescribed <> 0 OR completed <> 0";
+
+    @Modifying
+    @Query(value = "INSERT INTO cabinet_day_stats (shift_id, cabinet_id, appointment_date, prescribed, completed) " +
+            "VALUES (:shiftId, :cabinetId, :appointmentDate, :prescribed, :completed) " +
+            "ON CONFLICT (shift_id, cabinet_id, appointment_date) DO UPDATE SET " +
+            "prescribed = cabinet_day_stats.prescribed + EXCLUDED.prescribed, " +
+            "completed = cabinet_day_stats.completed + EXCLUDED.completed",
+            nativeQuery = true)
+    void addDelta(@Param("shiftId") Long shiftId, @Param("cabinetId") Long cabinetId,
+                  @Param("appointmentDate") LocalDate appointmentDate,
+                  @Param("prescribed") long prescribed, @Param("completed") long completed);
+
+    // Переносит в счётчики кабинета все записи и отметки процедуры со знаком sign: +1 добавить, -1 вычесть
+    @Modifying
+    @Query(value = "INSERT INTO cabinet_day_stats (shift_id, cabinet_id, appointment_date, prescribed, completed) " +
+            "SELECT a.shift_id, :cabinetId, a.appointment_date, :sign * count(*), :sign * count(pc.id) " +
+            "FROM appointments a " +
+            "LEFT JOIN procedure_completions pc ON pc.appointment_id = a.id " +
+            "WHERE a.procedure_id = :procedureId " +
+            "GROUP BY a.shift_id, a.appointment_date " +
+            "ON CONFLICT (shift_id, cabinet_id, appointment_date) DO UPDATE SET " +
+            "prescribed = cabinet_day_stats.prescribed + EXCLUDED.prescribed, " +
+            "completed = cabinet_day_stats.completed + EXCLUDED.completed",
+            nativeQuery = true)
+    void addProcedureDelta(@Param("procedureId") Long procedureId, @Param("cabinetId") Long cabinetId,
+                           @Param("sign") long sign);
+
+    @Query(value = "SELECT count(*) FROM ((" + CURRENT + " EXCEPT " + AGGREGATE + ") " +
+            "UNION ALL (" + AGGREGATE + " EXCEPT " + CURRENT + ")) diff", nativeQuery = true)
+    long countMismatches();
+
+    @Modifying
+    @Query(value = "DELETE FROM cabinet_day_stats", nativeQuery = true)
+    void deleteAllRows();
+
+    @Modifying
+    @Query(value = "INSERT INTO cabinet_day_stats (shift_id, cabinet_id, appointment_date, prescribed, completed) " +
+            AGGREGATE, nativeQuery = true)
+    void insertFromAggregate();
+}
@@ -0,0 +1,112 @@
+package ru.naumen.sanatoriumproject.repositories;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Удаление смены, пользователя или комнаты вместе с зависимыми строками несколькими DELETE по множествам,
+ * без загрузки сущностей. Порядок — от отметок выполнения к назначениям и регистрациям, затем сама запись.
+ * Счётчики статистики уменьшаются на удаляемые назначения и отметки до их удаления.
+ */
+@Repository
+@RequiredArgsConstructor
+public class CascadeDeleteRepository {
+    // Назначения гостя, которые удаляются вместе с ним, и на сколько уменьшаются их счётчики
+    private static final String USER_STATS_DELTA =
+            "SELECT a.shift_id, a.student_id, a.procedure_id, p.cabinet_id, a.appointment_date, " +
+            "1 AS prescribed, CASE WHEN pc.id IS NOT NULL THEN 1 ELSE 0 END AS completed " +
+            "FROM appointments a " +
+            "JOIN procedures p ON p.id = a.procedure_id " +
+            "LEFT JOIN procedure_completions pc ON pc.appointment_id = a.id " +
+            "WHERE a.student_id = :userId";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+
+    /**
+     * @return число удалённых строк, включая саму смену
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public int deleteShift(Long shiftId) {
+        int deleted = jdbcTemplate.update("DELETE FROM procedure_completions pc USING appointments a " +
+                "WHERE pc.appointment_id = a.id AND a.shift_id = ?", shiftId);
+        deleted += jdbcTemplate.update("DELETE FROM appointments WHERE shift_id = ?", shiftId);
+        deleted += jdbcTemplate.update("DELETE FROM registrations WHERE shift_id = ?", shiftId);
+        jdbcTemplate.update("DELETE FROM student_shift_stats WHERE shift_id = ?", shiftId);
+        jdbcTemplate.update("DELETE FROM cabinet_day_stats WHERE shift_id = ?", shiftId);
+        jdbcTemplate.update("DELETE FROM procedure_shift_stats WHERE shift_id = ?", shiftId);
+        return deleted + jdbcTemplate.update("DELETE FROM shifts WHERE id = ?", shiftId);
+    }
+
+    /**
+     * Участвовал ли пользователь в истории других гостей: назначал им процедуры или отмечал их выполнение.
+     * Строка пользователя блокируется до конца транзакции, чтобы новых назначений и отметок с ним не появилось.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public boolean lockAndCheckForeignHistory(Long userId) {
+        jdbcTemplate.queryForList("SELECT id FROM users WHERE id = ? FOR UPDATE", Long.class, userId);
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM appointments WHERE doctor_id = ? AND student_id <> ?) " +
+                "OR EXISTS (SELECT 1 FROM procedure_completions pc JOIN appointments a ON a.id = pc.appointment_id " +
+                "WHERE pc.completed_by = ? AND a.student_id <> ?)",
+                Boolean.class, userId, userId, userId, userId));
+    }
+
+    /**
+     * Удаляет назначения пользователя как гостя вместе с отметками выполнения в них, регистрации,
+     * закрепления за кабинетами и роли. Обращения в обратную связь остаются без автора.
+     * Назначений и отметок в чужих историях у него быть не должно — см. {@link #lockAndCheckForeignHistory}.
+     *
+     * @return смены, из которых удалены регистрации пользователя
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public List<Long> deleteUser(Long userId) {
+        Map<String, Long> user = Map.of("userId", userId);
+        namedJdbcTemplate.update(statsDelta("student_shift_stats", "shift_id, student_id"), user);
+        namedJdbcTemplate.update(statsDelta("cabinet_day_stats", "shift_id, cabinet_id, appointment_date"), user);
+        namedJdbcTemplate.update(statsDelta("procedure_shift_stats", "shift_id, procedure_id"), user);
+
+        namedJdbcTemplate.update("DELETE FROM procedure_completions pc USING appointments a " +
+                "WHERE pc.appointment_id = a.id AND a.student_id = :userId", user);
+        namedJdbcTemplate.update("DELETE FROM appointments WHERE student_id = :userId", user);
+        List<Long> shiftIds = jdbcTemplate.queryForList(
+                "DELETE FROM registrations WHERE user_id = ? RETURNING shift_id", Long.class, userId);
+        jdbcTemplate.update("DELETE FROM staff_cabinets WHERE user_id = ?", userId);
+        jdbcTemplate.update("UPDATE feedback_messages SET user_id = NULL WHERE user_id = ?", userId);
+        jdbcTemplate.update("DELETE FROM user_roles WHERE user_id = ?", userId);
+        jdbcTemplate.update("DELETE FROM users WHERE id = ?", userId);
+        return shiftIds;
+    }
+
+    /**
+     * Регистрации в комнате остаются, но без комнаты — их можно расселить заново.
+     *
+     * @return смены, где были регистрации в этой комнате
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public List<Long> deleteRoom(Long roomId) {
+        List<Long> shiftIds = jdbcTemplate.queryForList(
+                "UPDATE registrations SET room_id = NULL WHERE room_id = ? RETURNING shift_id", Long.class, roomId);
+        jdbcTemplate.update("DELETE FROM rooms WHERE id = ?", roomId);
+        return shiftIds;
+    }
+
+    private static String statsDelta(String table, String key) {
+        StringBuilder match = new StringBuilder();
+        for (String column : key.split(", ")) {
+            match.append(match.isEmpty() ? "" : " AND ").append("s.").append(column).append(" = d.").append(column);
+        }
+        return "UPDATE " + table + " s SET prescribed = s.prescribed - d.prescribed, " +
+                "completed = s.completed - d.completed " +
+                "FROM (SELECT " + key + ", sum(prescribed) AS prescribed, sum(completed) AS completed " +
+                "FROM (" + USER_STATS_DELTA + ") gone GROUP BY " + key + ") d " +
+                "WHERE " + match;
+    }
+}
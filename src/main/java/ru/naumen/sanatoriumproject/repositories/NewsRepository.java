@@ -2,12 +2,18 @@ package ru.naumen.sanatoriumproject.repositories;
 
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import ru.naumen.sanatoriumproject.models.News;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface NewsRepository extends JpaRepository<News, Long> {
     List<News> findAllByOrderByCreatedAtDesc();
+
+    @Query("SELECT DISTINCT n.imagePath FROM News n WHERE n.imagePath IN :paths")
+    List<String> findReferencedImagePaths(@Param("paths") Collection<String> paths);
 }
\ No newline at end of file
@@ -0,0 +1,34 @@
+package ru.naumen.sanatoriumproject.repositories;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+public interface ProcedureCompletionBatchRepository {
+    /**
+     * @return id новой отметки или пустой Optional, если отметка для записи уже существует
+     */
+    Optional<Long> insertIfAbsent(Long appointmentId, Long completedById, LocalDateTime completedAt, String notes);
+
+    /**
+     * @return id записей, для которых отметка действительно добавлена
+     */
+    Set<Long> insertAllIfAbsent(Collection<Long> appointmentIds, Long completedById,
+                                LocalDateTime completedAt, String notes);
+
+    /**
+     * Вставка отметок с собственными исполнителем, временем и примечанием у каждой.
+     *
+     * @return id записей, для которых отметка действительно добавлена
+     */
+    Set<Long> insertAllIfAbsent(List<? extends PendingCompletion> completions);
+
+    interface PendingCompletion {
+        Long getAppointmentId();
+        Long getCompletedById();
+        LocalDateTime getCompletedAt();
+        String getNotes();
+    }
+}
@@ -0,0 +1,85 @@
+package ru.naumen.sanatoriumproject.repositories;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+
+@RequiredArgsConstructor
+public class ProcedureCompletionBatchRepositoryImpl implements ProcedureCompletionBatchRepository {
+    private static final String INSERT_SQL =
+            "INSERT INTO procedure_completions (appointment_id, completed_at, completed_by, notes) " +
+            "VALUES (?, ?, ?, ?) " +
+            "ON CONFLICT (appointment_id) DO NOTHING " +
+            "RETURNING id";
+    // Весь пакет одним выражением: id записей передаются массивом и разворачиваются через unnest
+    private static final String INSERT_ALL_SQL =
+            "INSERT INTO procedure_completions (appointment_id, completed_at, completed_by, notes) " +
+            "SELECT t.appointment_id, ?, ?, ? FROM unnest(?::bigint[]) AS t(appointment_id) " +
+            "ON CONFLICT (appointment_id) DO NOTHING " +
+            "RETURNING appointment_id";
+    private static final String INSERT_PENDING_SQL =
+            "INSERT INTO procedure_completions (appointment_id, completed_at, completed_by, notes) " +
+            "SELECT * FROM unnest(?::bigint[], ?::timestamp[], ?::bigint[], ?::text[]) " +
+            "ON CONFLICT (appointment_id) DO NOTHING " +
+            "RETURNING appointment_id";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public Optional<Long> insertIfAbsent(Long appointmentId, Long completedById,
+                                         LocalDateTime completedAt, String notes) {
+        List<Long> inserted = jdbcTemplate.queryForList(INSERT_SQL, Long.class,
+                appointmentId, Timestamp.valueOf(completedAt), completedById, notes);
+        return inserted.stream().findFirst();
+    }
+
+    @Override
+    public Set<Long> insertAllIfAbsent(Collection<Long> appointmentIds, Long completedById,
+                                       LocalDateTime completedAt, String notes) {
+        Set<Long> inserted = new HashSet<>();
+        jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(INSERT_ALL_SQL);
+            ps.setTimestamp(1, Timestamp.valueOf(completedAt));
+            ps.setLong(2, completedById);
+            ps.setString(3, notes);
+            ps.setArray(4, connection.createArrayOf("bigint", appointmentIds.toArray()));
+            return ps;
+        }, rs -> {
+            inserted.add(rs.getLong(1));
+        });
+        return inserted;
+    }
+
+    @Override
+    public Set<Long> insertAllIfAbsent(List<? extends PendingCompletion> completions) {
+        int size = completions.size();
+        Long[] appointmentIds = new Long[size];
+        Timestamp[] completedAts = new Timestamp[size];
+        Long[] completedByIds = new Long[size];
+        String[] notes = new String[size];
+        for (int i = 0; i < size; i++) {
+            PendingCompletion completion = completions.get(i);
+            appointmentIds[i] = completion.getAppointmentId();
+            completedAts[i] = Timestamp.valueOf(completion.getCompletedAt());
+            completedByIds[i] = completion.getCompletedById();
+            notes[i] = completion.getNotes();
+        }
+
+        Set<Long> inserted = new HashSet<>();
+        jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(INSERT_PENDING_SQL);
+            ps.setArray(1, connection.createArrayOf("bigint", appointmentIds));
+            ps.setArray(2, connection.createArrayOf("timestamp", completedAts));
+            ps.setArray(3, connection.createArrayOf("bigint", completedByIds));
+            ps.setArray(4, connection.createArrayOf("text", notes));
+            return ps;
+        }, rs -> {
+            inserted.add(rs.getLong(1));
+        });
+        return inserted;
+    }
+}
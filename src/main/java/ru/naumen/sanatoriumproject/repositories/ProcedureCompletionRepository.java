@@ -2,14 +2,41 @@ package ru.naumen.sanatoriumproject.repositories;
 
 import ru.naumen.sanatoriumproject.models.ProcedureCompletion;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
-public interface ProcedureCompletionRepository extends JpaRepository<ProcedureCompletion, Long> {
+public interface ProcedureCompletionRepository extends JpaRepository<ProcedureCompletion, Long>,
+        ProcedureCompletionBatchRepository {
     List<ProcedureCompletion> findByAppointmentId(Long appointmentId);
     List<ProcedureCompletion> findByCompletedById(Long userId);
     List<ProcedureCompletion> findByAppointment_StudentIdAndAppointment_ShiftId(Long studentId, Long shiftId);
     boolean existsByAppointmentId(Long appointmentId);
+
+    @Query("SELECT pc.id FROM ProcedureCompletion pc WHERE pc.appointment.id = :appointmentId")
+    Optional<Long> findIdByAppointmentId(@Param("appointmentId") Long appointmentId);
+
+    @Query("SELECT pc FROM ProcedureCompletion pc " +
+            "JOIN FETCH pc.appointment a " +
+            "JOIN FETCH a.procedure p " +
+            "JOIN FETCH p.cabinet " +
+            "JOIN FETCH a.student " +
+            "JOIN FETCH pc.completedBy " +
+            "WHERE pc.id = :id")
+    Optional<ProcedureCompletion> findByIdWithDetails(@Param("id") Long id);
+
+    @Query("SELECT pc FROM ProcedureCompletion pc " +
+            "JOIN FETCH pc.appointment a " +
+            "JOIN FETCH a.procedure p " +
+            "JOIN FETCH p.cabinet " +
+            "JOIN FETCH a.student " +
+            "JOIN FETCH pc.completedBy " +
+            "WHERE a.student.id = :studentId AND a.shift.id IN :shiftIds")
+    List<ProcedureCompletion> findByStudentIdAndShiftIdsWithDetails(@Param("studentId") Long studentId,
+                                                                   @Param("shiftIds") Collection<Long> shiftIds);
 }
\ No newline at end of file
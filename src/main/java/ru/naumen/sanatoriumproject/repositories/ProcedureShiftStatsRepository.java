@@ -0,0 +1,44 @@
+package ru.naumen.sanatoriumproject.repositories;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import ru.naumen.sanatoriumproject.models.ProcedureShiftStats;
+import ru.naumen.sanatoriumproject.models.ProcedureShiftStatsId;
+
+@Repository
+public interface ProcedureShiftStatsRepository extends JpaRepository<ProcedureShiftStats, ProcedureShiftStatsId> {
+    String AGGREGATE =
+            "SELECT a.shift_id, a.procedure_id, count(*) AS prescribed, count(pc.id) AS completed " +
+            "FROM appointments a " +
+            "LEFT JOIN procedure_completions pc ON pc.appointment_id = a.id " +
+            "GROUP BY a.shift_id, a.procedure_id";
+    String CURRENT =
+            "SELECT shift_id, procedure_id, prescribed, completed FROM procedure_shift_stats " +
+            "WHERE prescribed <> 0 OR completed <> 0";
+
+    @Modifying
+    @Query(value = "INSERT INTO procedure_shift_stats (shift_id, procedure_id, prescribed, completed) " +
+            "VALUES (:shiftId, :procedureId, :prescribed, :completed) " +
+            "ON CONFLICT (shift_id, procedure_id) DO UPDATE SET " +
+            "prescribed = procedure_shift_stats.prescribed + EXCLUDED.prescribed, " +
+            "completed = procedure_shift_stats.completed + EXCLUDED.completed",
+            nativeQuery = true)
+    void addDelta(@Param("shiftId") Long shiftId, @Param("procedureId") Long procedureId,
+                  @Param("prescribed") long prescribed, @Param("completed") long completed);
+
+    @Query(value = "SELECT count(*) FROM ((" + CURRENT + " EXCEPT " + AGGREGATE + ") " +
+            "UNION ALL (" + AGGREGATE + " EXCEPT " + CURRENT + ")) diff", nativeQuery = true)
+    long countMismatches();
+
+    @Modifying
+    @Query(value = "DELETE FROM procedure_shift_stats", nativeQuery = true)
+    void deleteAllRows();
+
+    @Modifying
+    @Query(value = "INSERT INTO procedure_shift_stats (shift_id, procedure_id, prescribed, completed) " + AGGREGATE,
+            nativeQuery = true)
+    void insertFromAggregate();
+}
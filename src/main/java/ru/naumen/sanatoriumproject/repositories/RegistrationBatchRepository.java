@@ -0,0 +1,19 @@
+package ru.naumen.sanatoriumproject.repositories;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public interface RegistrationBatchRepository {
+    /**
+     * Регистрирует пользователей в смене одним выражением; существующая регистрация пользователя
+     * в смене обновляется (комната и даты).
+     */
+    void upsertAll(Long shiftId, List<Long> userIds, List<Long> roomIds, LocalDate checkInDate, LocalDate checkOutDate);
+
+    /**
+     * Назначает комнаты регистрациям одним выражением; регистрации, которым комнату уже успели назначить, не меняются.
+     *
+     * @return число обновлённых регистраций
+     */
+    int assignRooms(List<Long> registrationIds, List<Long> roomIds);
+}
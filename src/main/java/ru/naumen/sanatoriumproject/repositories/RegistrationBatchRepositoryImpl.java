@@ -0,0 +1,50 @@
+package ru.naumen.sanatoriumproject.repositories;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.time.LocalDate;
+import java.util.List;
+
+@RequiredArgsConstructor
+public class RegistrationBatchRepositoryImpl implements RegistrationBatchRepository {
+    private static final String UPSERT_SQL =
+            "INSERT INTO registrations (user_id, room_id, shift_id, check_in_date, check_out_date) " +
+            "SELECT t.user_id, t.room_id, ?, ?, ? FROM unnest(?::bigint[], ?::bigint[]) AS t(user_id, room_id) " +
+            // Участник без комнаты в заявке сохраняет уже назначенную
+            "ON CONFLICT (user_id, shift_id) DO UPDATE SET room_id = COALESCE(EXCLUDED.room_id, registrations.room_id), " +
+            "check_in_date = EXCLUDED.check_in_date, check_out_date = EXCLUDED.check_out_date";
+
+    private static final String ASSIGN_ROOMS_SQL =
+            "UPDATE registrations SET room_id = t.room_id " +
+            "FROM unnest(?::bigint[], ?::bigint[]) AS t(id, room_id) " +
+            "WHERE registrations.id = t.id AND registrations.room_id IS NULL";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void upsertAll(Long shiftId, List<Long> userIds, List<Long> roomIds,
+                          LocalDate checkInDate, LocalDate checkOutDate) {
+        jdbcTemplate.update(connection -> {
+            PreparedStatement ps = connection.prepareStatement(UPSERT_SQL);
+            ps.setLong(1, shiftId);
+            ps.setDate(2, checkInDate != null ? Date.valueOf(checkInDate) : null);
+            ps.setDate(3, checkOutDate != null ? Date.valueOf(checkOutDate) : null);
+            ps.setArray(4, connection.createArrayOf("bigint", userIds.toArray()));
+            ps.setArray(5, connection.createArrayOf("bigint", roomIds.toArray()));
+            return ps;
+        });
+    }
+
+    @Override
+    public int assignRooms(List<Long> registrationIds, List<Long> roomIds) {
+        return jdbcTemplate.update(connection -> {
+            PreparedStatement ps = connection.prepareStatement(ASSIGN_ROOMS_SQL);
+            ps.setArray(1, connection.createArrayOf("bigint", registrationIds.toArray()));
+            ps.setArray(2, connection.createArrayOf("bigint", roomIds.toArray()));
+            return ps;
+        });
+    }
+}
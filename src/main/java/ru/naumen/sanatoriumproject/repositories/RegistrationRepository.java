@@ -6,12 +6,20 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.transaction.annotation.Transactional;
 import ru.naumen.sanatoriumproject.models.Registration;
 import org.springframework.data.jpa.repository.JpaRepository;
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
-public interface RegistrationRepository extends JpaRepository<Registration, Long> {
+public interface RegistrationRepository extends JpaRepository<Registration, Long>, RegistrationBatchRepository {
     List<Registration> findByUserId(Long userId);
 
+    @Query("SELECT r FROM Registration r " +
+            "JOIN FETCH r.shift " +
+            "LEFT JOIN FETCH r.room " +
+            "WHERE r.user.id = :userId")
+    List<Registration> findByUserIdWithDetails(@Param("userId") Long userId);
+
     @Query("SELECT r FROM Registration r " +
             "JOIN FETCH r.user " +
             "LEFT JOIN FETCH r.room " +
@@ -19,7 +27,21 @@ public interface RegistrationRepository extends JpaRepository<Registration, Long
             "WHERE r.shift.id = :shiftId")
     List<Registration> findByShiftIdWithDetails(@Param("shiftId") Long shiftId);
 
-    long countByRoomIdAndShiftId(Long roomId, Long shiftId);
+    @Query("SELECT COUNT(r) FROM Registration r WHERE r.room.id = :roomId AND r.shift.id = :shiftId")
+    long countByRoomIdAndShiftId(@Param("roomId") Long roomId, @Param("shiftId") Long shiftId);
+    @Query("SELECT r.room.id AS roomId, COUNT(r) AS occupancy FROM Registration r " +
+            "WHERE r.shift.id = :shiftId AND r.room.id IN :roomIds GROUP BY r.room.id")
+    List<RoomCount> countByShiftIdGroupedByRoom(@Param("shiftId") Long shiftId,
+                                                @Param("roomIds") Collection<Long> roomIds);
+
+    @Query("SELECT r.user.id AS userId, r.room.id AS roomId FROM Registration r " +
+            "WHERE r.shift.id = :shiftId AND r.user.id IN :userIds")
+    List<Placement> findPlacements(@Param("shiftId") Long shiftId, @Param("userIds") Collection<Long> userIds);
+
+    @Query("SELECT r.id AS id, r.user.id AS userId, r.room.id AS roomId, r.checkInDate AS checkInDate, r.checkOutDate AS checkOutDate " +
+            "FROM Registration r WHERE r.shift.id = :shiftId")
+    List<Stay> findStays(@Param("shiftId") Long shiftId);
+
     boolean existsByUserIdAndShiftId(Long userId, Long shiftId);
     Optional<Registration> findByUserIdAndShiftId(Long userId, Long shiftId);
 
@@ -27,4 +49,22 @@ public interface RegistrationRepository extends JpaRepository<Registration, Long
     @Modifying
     @Query("DELETE FROM Registration r WHERE r.user.id = :userId AND r.shift.id = :shiftId")
     void deleteByUserIdAndShiftId(Long userId, Long shiftId);
-}
\ No newline at end of file
+
+    interface RoomCount {
+        Long getRoomId();
+        Long getOccupancy();
+    }
+
+    interface Stay {
+        Long getId();
+        Long getUserId();
+        Long getRoomId();
+        LocalDate getCheckInDate();
+        LocalDate getCheckOutDate();
+    }
+
+    interface Placement {
+        Long getUserId();
+        Long getRoomId();
+    }
+}
@@ -0,0 +1,78 @@
+package ru.naumen.sanatoriumproject.repositories;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.function.Consumer;
+
+/**
+ * Строки отчётов регистратуры. Читаются курсором только вперёд порциями по {@value #FETCH_SIZE} строк
+ * и сразу отдаются потребителю, поэтому память не зависит от размера отчёта.
+ * PostgreSQL держит курсор только внутри транзакции: методы вызываются в ней.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ReportRepository {
+    private static final int FETCH_SIZE = 1000;
+
+    private static final String ROSTER_SQL =
+            "SELECT u.full_name, u.phone, u.email, rm.number, r.check_in_date, r.check_out_date " +
+            "FROM registrations r " +
+            "JOIN users u ON u.id = r.user_id " +
+            "LEFT JOIN rooms rm ON rm.id = r.room_id " +
+            "WHERE r.shift_id = ? " +
+            "ORDER BY u.full_name, r.id";
+
+    private static final String ROOMS_SQL =
+            "SELECT rm.number, rm.capacity, count(r.id), rm.description " +
+            "FROM rooms rm " +
+            "LEFT JOIN registrations r ON r.room_id = rm.id AND r.shift_id = ? " +
+            "GROUP BY rm.id " +
+            "ORDER BY rm.number";
+
+    private static final String APPOINTMENTS_SQL =
+            "SELECT a.appointment_date, s.full_name, p.name, c.number, d.full_name, a.notes " +
+            "FROM appointments a " +
+            "JOIN users s ON s.id = a.student_id " +
+            "JOIN users d ON d.id = a.doctor_id " +
+            "JOIN procedures p ON p.id = a.procedure_id " +
+            "LEFT JOIN cabinets c ON c.id = p.cabinet_id " +
+            "WHERE a.shift_id = ? " +
+            "ORDER BY a.appointment_date, s.full_name, a.id";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public void forEachRosterRow(Long shiftId, Consumer<Object[]> row) {
+        stream(ROSTER_SQL, shiftId, row);
+    }
+
+    public void forEachRoomRow(Long shiftId, Consumer<Object[]> row) {
+        stream(ROOMS_SQL, shiftId, row);
+    }
+
+    public void forEachAppointmentRow(Long shiftId, Consumer<Object[]> row) {
+        stream(APPOINTMENTS_SQL, shiftId, row);
+    }
+
+    private void stream(String sql, Long shiftId, Consumer<Object[]> row) {
+        jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(sql,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(FETCH_SIZE);
+            ps.setLong(1, shiftId);
+            return ps;
+        }, (ResultSet rs) -> {
+            int columns = rs.getMetaData().getColumnCount();
+            Object[] values = new Object[columns];
+            for (int i = 0; i < columns; i++) {
+                Object value = rs.getObject(i + 1);
+                values[i] = value instanceof Date date ? date.toLocalDate() : value;
+            }
+            row.accept(values);
+        });
+    }
+}
@@ -1,10 +1,47 @@
 package ru.naumen.sanatoriumproject.repositories;
 
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import ru.naumen.sanatoriumproject.models.Room;
 import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface RoomRepository extends JpaRepository<Room, Long> {
     Optional<Room> findByNumber(String number);
     boolean existsByNumber(String number);
+
+    // Блокировка строки комнаты до конца транзакции: заселения в одну комнату идут по очереди, в разные — параллельно
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT r FROM Room r WHERE r.id = :id")
+    Optional<Room> findByIdForUpdate(@Param("id") Long id);
+
+    // Порядок по id, чтобы параллельные групповые заселения брали блокировки одинаково и не взаимоблокировались
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT r FROM Room r WHERE r.id IN :ids ORDER BY r.id")
+    List<Room> findAllByIdForUpdate(@Param("ids") Collection<Long> ids);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT r FROM Room r ORDER BY r.id")
+    List<Room> findAllForUpdate();
+
+    // Все комнаты вместе с числом регистраций в смене одним запросом
+    @Query("SELECT r.id AS id, r.number AS number, r.capacity AS capacity, r.description AS description, " +
+            "COUNT(g.id) AS occupancy " +
+            "FROM Room r LEFT JOIN Registration g ON g.room = r AND g.shift.id = :shiftId " +
+            "GROUP BY r.id, r.number, r.capacity, r.description " +
+            "ORDER BY r.id")
+    List<RoomOccupancy> findAllWithOccupancy(@Param("shiftId") Long shiftId);
+
+    interface RoomOccupancy {
+        Long getId();
+        String getNumber();
+        Integer getCapacity();
+        String getDescription();
+        Long getOccupancy();
+    }
 }
@@ -1,6 +1,8 @@
 package ru.naumen.sanatoriumproject.repositories;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import ru.naumen.sanatoriumproject.models.StaffCabinet;
 import ru.naumen.sanatoriumproject.models.StaffCabinetId;
@@ -12,4 +14,13 @@ public interface StaffCabinetRepository extends JpaRepository<StaffCabinet, Staf
     List<StaffCabinet> findByUserId(Long userId);
     List<StaffCabinet> findByCabinetId(Long cabinetId);
     boolean existsByUserIdAndCabinetId(Long userId, Long cabinetId);
+
+    @Query("SELECT sc.id FROM StaffCabinet sc")
+    List<StaffCabinetId> findAllIds();
+
+    @Query("SELECT sc FROM StaffCabinet sc " +
+            "JOIN FETCH sc.user " +
+            "JOIN FETCH sc.cabinet " +
+            "WHERE sc.id.userId = :userId")
+    List<StaffCabinet> findByUserIdWithDetails(@Param("userId") Long userId);
 }
\ No newline at end of file
@@ -0,0 +1,34 @@
+package ru.naumen.sanatoriumproject.repositories;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import ru.naumen.sanatoriumproject.models.StoredFile;
+
+@Repository
+public interface StoredFileRepository extends JpaRepository<StoredFile, String> {
+    @Modifying
+    @Query(value = "INSERT INTO stored_files (name, ref_count) VALUES (:name, 1) " +
+            "ON CONFLICT (name) DO UPDATE SET ref_count = stored_files.ref_count + 1", nativeQuery = true)
+    void increment(@Param("name") String name);
+
+    @Modifying
+    @Query(value = "UPDATE stored_files SET ref_count = ref_count - 1 WHERE name = :name AND ref_count > 0",
+            nativeQuery = true)
+    int decrement(@Param("name") String name);
+
+    @Modifying
+    @Query(value = "DELETE FROM stored_files WHERE name = :name AND ref_count = 0", nativeQuery = true)
+    int deleteIfUnreferenced(@Param("name") String name);
+
+    /**
+     * Заводит счётчики для картинок, загруженных до появления таблицы, по числу новостей с ними.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO stored_files (name, ref_count) " +
+            "SELECT image_path, count(*) FROM news GROUP BY image_path " +
+            "ON CONFLICT (name) DO NOTHING", nativeQuery = true)
+    int registerExisting();
+}
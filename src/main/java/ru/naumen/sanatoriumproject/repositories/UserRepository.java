@@ -1,17 +1,46 @@
 package ru.naumen.sanatoriumproject.repositories;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import ru.naumen.sanatoriumproject.models.ERole;
 import ru.naumen.sanatoriumproject.models.Role;
 import ru.naumen.sanatoriumproject.models.User;
 
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface UserRepository extends JpaRepository<User, Long> {
+public interface UserRepository extends JpaRepository<User, Long>, UserRoleBatchRepository {
     Optional<User> findByLogin(String login);
     Boolean existsByEmail(String email);
     Boolean existsByLogin(String login);
     List<User> findByRolesContaining(Role role);
+
+    @Query("SELECT u.id FROM User u WHERE u.id IN :ids")
+    List<Long> findExistingIds(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT u.id AS id, u.fullName AS fullName, u.login AS login, u.email AS email, " +
+            "u.phone AS phone, u.birthDate AS birthDate FROM User u")
+    List<DirectoryRow> findDirectoryRows();
+
+    @Query("SELECT u.id AS userId, r.name AS role FROM User u JOIN u.roles r")
+    List<UserRole> findUserRoles();
+
+    interface DirectoryRow {
+        Long getId();
+        String getFullName();
+        String getLogin();
+        String getEmail();
+        String getPhone();
+        LocalDate getBirthDate();
+    }
+
+    interface UserRole {
+        Long getUserId();
+        ERole getRole();
+    }
 }
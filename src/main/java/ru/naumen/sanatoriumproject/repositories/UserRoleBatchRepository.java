@@ -0,0 +1,20 @@
+package ru.naumen.sanatoriumproject.repositories;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface UserRoleBatchRepository {
+    /**
+     * Удаляет у пользователей роли, которых нет среди пар (userIds[i], roleIds[i]).
+     *
+     * @return число удалённых строк user_roles
+     */
+    int deleteRolesNotIn(Collection<Long> users, List<Long> userIds, List<Integer> roleIds);
+
+    /**
+     * Добавляет пары (userIds[i], roleIds[i]), которых ещё нет в user_roles.
+     *
+     * @return число добавленных строк
+     */
+    int insertMissingRoles(List<Long> userIds, List<Integer> roleIds);
+}
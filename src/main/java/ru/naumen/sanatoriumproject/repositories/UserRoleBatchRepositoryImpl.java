@@ -0,0 +1,43 @@
+package ru.naumen.sanatoriumproject.repositories;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.PreparedStatement;
+import java.util.Collection;
+import java.util.List;
+
+@RequiredArgsConstructor
+public class UserRoleBatchRepositoryImpl implements UserRoleBatchRepository {
+    private static final String DELETE_SQL =
+            "DELETE FROM user_roles ur WHERE ur.user_id = ANY(?::bigint[]) AND NOT EXISTS (" +
+            "SELECT 1 FROM unnest(?::bigint[], ?::integer[]) AS t(user_id, role_id) " +
+            "WHERE t.user_id = ur.user_id AND t.role_id = ur.role_id)";
+    private static final String INSERT_SQL =
+            "INSERT INTO user_roles (user_id, role_id) " +
+            "SELECT t.user_id, t.role_id FROM unnest(?::bigint[], ?::integer[]) AS t(user_id, role_id) " +
+            "WHERE NOT EXISTS (SELECT 1 FROM user_roles ur WHERE ur.user_id = t.user_id AND ur.role_id = t.role_id)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public int deleteRolesNotIn(Collection<Long> users, List<Long> userIds, List<Integer> roleIds) {
+        return jdbcTemplate.update(connection -> {
+            PreparedStatement ps = connection.prepareStatement(DELETE_SQL);
+            ps.setArray(1, connection.createArrayOf("bigint", users.toArray()));
+            ps.setArray(2, connection.createArrayOf("bigint", userIds.toArray()));
+            ps.setArray(3, connection.createArrayOf("integer", roleIds.toArray()));
+            return ps;
+        });
+    }
+
+    @Override
+    public int insertMissingRoles(List<Long> userIds, List<Integer> roleIds) {
+        return jdbcTemplate.update(connection -> {
+            PreparedStatement ps = connection.prepareStatement(INSERT_SQL);
+            ps.setArray(1, connection.createArrayOf("bigint", userIds.toArray()));
+            ps.setArray(2, connection.createArrayOf("integer", roleIds.toArray()));
+            return ps;
+        });
+    }
+}
@@ -0,0 +1,35 @@
+package ru.naumen.sanatoriumproject.security;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import ru.naumen.sanatoriumproject.repositories.AppointmentRepository;
+
+import java.time.LocalDate;
+import java.util.Objects;
+
+/**
+ * Содержимое подписанного QR-токена записи на процедуру.
+ * Подпись, дата и доступ к кабинету проверяются без БД; перед отметкой токен сверяется с текущей записью.
+ */
+@Getter
+@AllArgsConstructor
+public class CheckInToken implements AppointmentRepository.AppointmentScope {
+    private final Long appointmentId;
+    private final Long cabinetId;
+    private final Long shiftId;
+    private final Long studentId;
+    private final Long procedureId;
+    private final LocalDate appointmentDate;
+
+    /**
+     * Совпадает ли токен с текущим состоянием записи: кабинет, смена, студент, процедура и дата.
+     */
+    public boolean matches(AppointmentRepository.AppointmentScope scope) {
+        return Objects.equals(appointmentId, scope.getAppointmentId())
+                && Objects.equals(cabinetId, scope.getCabinetId())
+                && Objects.equals(shiftId, scope.getShiftId())
+                && Objects.equals(studentId, scope.getStudentId())
+                && Objects.equals(procedureId, scope.getProcedureId())
+                && Objects.equals(appointmentDate, scope.getAppointmentDate());
+    }
+}
@@ -0,0 +1,169 @@
+package ru.naumen.sanatoriumproject.security;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.ShortBufferException;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * Компактные QR-токены записей: varint-поля (id записи, кабинета, смены, студента, процедуры, день)
+ * и усечённая до 16 байт подпись HMAC-SHA256, всё в base64url.
+ * Проверка работает на thread-local буферах и экземпляре Mac и почти не создаёт объектов.
+ */
+@Component
+public class CheckInTokenUtils {
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final byte VERSION = 1;
+    private static final int MAC_LENGTH = 16;
+    private static final int MAX_TOKEN_BYTES = 1 + 6 * 10 + MAC_LENGTH;
+    private static final byte[] DECODE = new byte[128];
+
+    static {
+        Arrays.fill(DECODE, (byte) -1);
+        String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_";
+        for (int i = 0; i < alphabet.length(); i++) {
+            DECODE[alphabet.charAt(i)] = (byte) i;
+        }
+    }
+
+    private final SecretKeySpec key;
+    private final ThreadLocal<Buffers> buffers;
+
+    public CheckInTokenUtils(@Value("${polytechnik.app.checkInSecret}") String secret) {
+        this.key = new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), ALGORITHM);
+        this.buffers = ThreadLocal.withInitial(() -> new Buffers(key));
+    }
+
+    public String generateToken(CheckInToken token) {
+        Buffers b = buffers.get();
+        int length = 0;
+        b.data[length++] = VERSION;
+        length = writeVarLong(b.data, length, token.getAppointmentId());
+        length = writeVarLong(b.data, length, token.getCabinetId());
+        length = writeVarLong(b.data, length, token.getShiftId());
+        length = writeVarLong(b.data, length, token.getStudentId());
+        length = writeVarLong(b.data, length, token.getProcedureId());
+        length = writeVarLong(b.data, length, token.getAppointmentDate().toEpochDay());
+
+        sign(b, length);
+        System.arraycopy(b.mac, 0, b.data, length, MAC_LENGTH);
+        length += MAC_LENGTH;
+
+        byte[] result = Arrays.copyOf(b.data, length);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(result);
+    }
+
+    /**
+     * @return содержимое токена или null, если токен повреждён или подпись не сходится
+     */
+    public CheckInToken parseToken(CharSequence token) {
+        if (token == null) {
+            return null;
+        }
+        Buffers b = buffers.get();
+        int length = decodeBase64Url(token, b.data);
+        if (length <= MAC_LENGTH + 1 || b.data[0] != VERSION) {
+            return null;
+        }
+
+        int payloadLength = length - MAC_LENGTH;
+        sign(b, payloadLength);
+        int diff = 0;
+        for (int i = 0; i < MAC_LENGTH; i++) {
+            diff |= b.mac[i] ^ b.data[payloadLength + i];
+        }
+        if (diff != 0) {
+            return null;
+        }
+
+        b.position = 1;
+        long appointmentId = readVarLong(b, payloadLength);
+        long cabinetId = readVarLong(b, payloadLength);
+        long shiftId = readVarLong(b, payloadLength);
+        long studentId = readVarLong(b, payloadLength);
+        long procedureId = readVarLong(b, payloadLength);
+        long epochDay = readVarLong(b, payloadLength);
+        if (epochDay < 0 || b.position != payloadLength) {
+            return null;
+        }
+        return new CheckInToken(appointmentId, cabinetId, shiftId, studentId, procedureId,
+                LocalDate.ofEpochDay(epochDay));
+    }
+
+    private void sign(Buffers b, int length) {
+        try {
+            b.hmac.update(b.data, 0, length);
+            b.hmac.doFinal(b.mac, 0);
+        } catch (ShortBufferException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static int decodeBase64Url(CharSequence token, byte[] out) {
+        int length = token.length();
+        if (length > MAX_TOKEN_BYTES * 4 / 3 + 1 || length % 4 == 1) {
+            return -1;
+        }
+        int bits = 0;
+        int bitCount = 0;
+        int position = 0;
+        for (int i = 0; i < length; i++) {
+            char c = token.charAt(i);
+            int value = c < 128 ? DECODE[c] : -1;
+            if (value < 0) {
+                return -1;
+            }
+            bits = (bits << 6) | value;
+            bitCount += 6;
+            if (bitCount >= 8) {
+                bitCount -= 8;
+                out[position++] = (byte) (bits >> bitCount);
+            }
+        }
+        return position;
+    }
+
+    private static int writeVarLong(byte[] out, int position, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out[position++] = (byte) value;
+        return position;
+    }
+
+    private static long readVarLong(Buffers b, int limit) {
+        long result = 0;
+        for (int shift = 0; shift < 64 && b.position < limit; shift += 7) {
+            byte current = b.data[b.position++];
+            result |= (long) (current & 0x7F) << shift;
+            if ((current & 0x80) == 0) {
+                return result;
+            }
+        }
+        return -1;
+    }
+
+    private static final class Buffers {
+        private final Mac hmac;
+        private final byte[] data = new byte[MAX_TOKEN_BYTES];
+        private final byte[] mac = new byte[32];
+        private int position;
+
+        private Buffers(SecretKeySpec key) {
+            try {
+                hmac = Mac.getInstance(ALGORITHM);
+                hmac.init(key);
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
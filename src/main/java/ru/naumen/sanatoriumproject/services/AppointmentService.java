@@ -1,12 +1,16 @@
 package ru.naumen.sanatoriumproject.services;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import ru.naumen.sanatoriumproject.dtos.AppointmentDTO;
+import ru.naumen.sanatoriumproject.dtos.ChangeEventDTO;
 import ru.naumen.sanatoriumproject.models.*;
 import ru.naumen.sanatoriumproject.repositories.*;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -17,6 +21,9 @@ public class AppointmentService {
     private final ProcedureRepository procedureRepository;
     private final UserRepository userRepository;
     private final ShiftRepository shiftRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final CompletionStatsService statsService;
+    private final UserProfileCache profileCache;
 
     public List<AppointmentDTO> getAppointmentsByShift(Long shiftId) {
         return appointmentRepository.findByShiftId(shiftId).stream()
@@ -30,6 +37,7 @@ public class AppointmentService {
                 .collect(Collectors.toList());
     }
 
+    @Transactional
     public AppointmentDTO createAppointment(AppointmentDTO appointmentDTO) {
         Procedure procedure = procedureRepository.findById(appointmentDTO.getProcedureId())
                 .orElseThrow(() -> new RuntimeException("Procedure not found"));
@@ -49,11 +57,22 @@ public class AppointmentService {
         appointment.setNotes(appointmentDTO.getNotes());
 
         Appointment savedAppointment = appointmentRepository.save(appointment);
+        statsService.onAppointmentCreated(savedAppointment);
+        profileCache.onUserChanged(student.getId());
+        publishChange(ChangeEventDTO.Type.APPOINTMENT_CREATED, savedAppointment);
         return convertToDto(savedAppointment);
     }
 
+    @Transactional
     public void deleteAppointment(Long id) {
+        List<AppointmentRepository.AppointmentScope> scopes = appointmentRepository.findScopesByIds(List.of(id));
         appointmentRepository.deleteById(id);
+        scopes.forEach(scope -> {
+            statsService.onAppointmentDeleted(scope);
+            profileCache.onUserChanged(scope.getStudentId());
+            eventPublisher.publishEvent(new ChangeEventDTO(
+                    ChangeEventDTO.Type.APPOINTMENT_DELETED, id, null, scope.getCabinetId(), scope.getShiftId()));
+        });
     }
 
     public AppointmentDTO updateAppointmentNote(Long id, String note) {
@@ -62,6 +81,8 @@ public class AppointmentService {
 
         appointment.setNotes(note);
         Appointment updatedAppointment = appointmentRepository.save(appointment);
+        profileCache.onUserChanged(updatedAppointment.getStudent().getId());
+        publishChange(ChangeEventDTO.Type.APPOINTMENT_UPDATED, updatedAppointment);
         return convertToDto(updatedAppointment);
     }
 
@@ -77,11 +98,26 @@ public class AppointmentService {
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Записи гостя сразу по нескольким сменам одним запросом, вместе со связанными сущностями.
+     */
+    public List<AppointmentDTO> getAppointmentsByStudentAndShifts(Long studentId, Collection<Long> shiftIds) {
+        return appointmentRepository.findByStudentIdAndShiftIdsWithDetails(studentId, shiftIds).stream()
+                .map(this::convertToDto)
+                .collect(Collectors.toList());
+    }
+
+    private void publishChange(ChangeEventDTO.Type type, Appointment appointment) {
+        eventPublisher.publishEvent(new ChangeEventDTO(type, appointment.getId(), null,
+                appointment.getProcedure().getCabinet().getId(), appointment.getShift().getId()));
+    }
+
     private AppointmentDTO convertToDto(Appointment appointment) {
         AppointmentDTO dto = new AppointmentDTO();
         dto.setId(appointment.getId());
         dto.setProcedureId(appointment.getProcedure().getId());
         dto.setProcedureName(appointment.getProcedure().getName());
+        dto.setCabinetId(appointment.getProcedure().getCabinet().getId());
         dto.setCabinetNumber(appointment.getProcedure().getCabinet().getNumber());
         dto.setStudentId(appointment.getStudent().getId());
         dto.setStudentName(appointment.getStudent().getFullName());
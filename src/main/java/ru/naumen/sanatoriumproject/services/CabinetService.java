@@ -14,6 +14,7 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class CabinetService {
     private final CabinetRepository cabinetRepository;
+    private final UserProfileCache profileCache;
 
     public List<CabinetDTO> getAllCabinets() {
         return cabinetRepository.findAllByOrderByNumberAsc().stream()
@@ -52,6 +53,7 @@ public class CabinetService {
 
         cabinet.setNumber(cabinetDTO.getNumber());
         cabinet.setName(cabinetDTO.getName());
+        profileCache.onSharedDataChanged();
         Cabinet updatedCabinet = cabinetRepository.save(cabinet);
         return convertToDto(updatedCabinet);
     }
@@ -61,6 +63,7 @@ public class CabinetService {
         if (!cabinetRepository.existsById(id)) {
             throw new RuntimeException("Cabinet not found");
         }
+        profileCache.onSharedDataChanged();
         cabinetRepository.deleteById(id);
     }
 
@@ -0,0 +1,171 @@
+package ru.naumen.sanatoriumproject.services;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import ru.naumen.sanatoriumproject.dtos.ChangeEventDTO;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Рассылка событий об изменениях записей и отметок выполнения подписчикам SSE по кабинету и по смене.
+ * Неактивный подписчик не занимает поток: отправка идёт на виртуальных потоках только когда есть что слать.
+ * У каждого подписчика ограниченный буфер; переполнение означает медленного клиента, и он отключается.
+ */
+@Service
+public class ChangeStreamService {
+    private static final Logger logger = LoggerFactory.getLogger(ChangeStreamService.class);
+    private static final Object HEARTBEAT = new Object();
+
+    private final Map<String, Set<Subscriber>> subscribers = new ConcurrentHashMap<>();
+    private final ExecutorService senders = Executors.newVirtualThreadPerTaskExecutor();
+    private final ScheduledExecutorService heartbeats = Executors.newSingleThreadScheduledExecutor();
+    private final int bufferSize;
+    private final long timeoutMs;
+
+    public ChangeStreamService(@Value("${changes.sse.buffer-size:64}") int bufferSize,
+                               @Value("${changes.sse.timeout-ms:1800000}") long timeoutMs,
+                               @Value("${changes.sse.heartbeat-ms:15000}") long heartbeatMs) {
+        this.bufferSize = bufferSize;
+        this.timeoutMs = timeoutMs;
+        heartbeats.scheduleAtFixedRate(this::sendHeartbeats, heartbeatMs, heartbeatMs, TimeUnit.MILLISECONDS);
+    }
+
+    public SseEmitter subscribeToCabinet(Long cabinetId) {
+        return subscribe(cabinetTopic(cabinetId));
+    }
+
+    public SseEmitter subscribeToShift(Long shiftId) {
+        return subscribe(shiftTopic(shiftId));
+    }
+
+    // Событие уходит подписчикам только после коммита транзакции, в которой оно опубликовано
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onChange(ChangeEventDTO event) {
+        if (event.getCabinetId() != null) {
+            publish(cabinetTopic(event.getCabinetId()), event);
+        }
+        if (event.getShiftId() != null) {
+            publish(shiftTopic(event.getShiftId()), event);
+        }
+    }
+
+    public int getSubscriberCount() {
+        return subscribers.values().stream().mapToInt(Set::size).sum();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        heartbeats.shutdownNow();
+        subscribers.values().forEach(topic -> topic.forEach(Subscriber::close));
+        senders.shutdown();
+    }
+
+    // Тесты подменяют emitter, чтобы управлять скоростью отправки и вызывать его обработчики
+    SseEmitter createEmitter() {
+        return new SseEmitter(timeoutMs);
+    }
+
+    private SseEmitter subscribe(String topic) {
+        SseEmitter emitter = createEmitter();
+        Subscriber subscriber = new Subscriber(topic, emitter);
+        subscribers.computeIfAbsent(topic, key -> ConcurrentHashMap.newKeySet()).add(subscriber);
+
+        emitter.onCompletion(subscriber::detach);
+        emitter.onTimeout(subscriber::close);
+        emitter.onError(error -> subscriber.detach());
+        return emitter;
+    }
+
+    private void publish(String topic, ChangeEventDTO event) {
+        Set<Subscriber> topicSubscribers = subscribers.get(topic);
+        if (topicSubscribers != null) {
+            topicSubscribers.forEach(subscriber -> subscriber.offer(event));
+        }
+    }
+
+    private void sendHeartbeats() {
+        subscribers.values().forEach(topic -> topic.forEach(subscriber -> subscriber.offer(HEARTBEAT)));
+    }
+
+    private static String cabinetTopic(Long cabinetId) {
+        return "cabinet:" + cabinetId;
+    }
+
+    private static String shiftTopic(Long shiftId) {
+        return "shift:" + shiftId;
+    }
+
+    private class Subscriber {
+        private final String topic;
+        private final SseEmitter emitter;
+        private final BlockingQueue<Object> queue = new ArrayBlockingQueue<>(bufferSize);
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        Subscriber(String topic, SseEmitter emitter) {
+            this.topic = topic;
+            this.emitter = emitter;
+        }
+
+        void offer(Object item) {
+            if (closed.get()) {
+                return;
+            }
+            if (!queue.offer(item)) {
+                logger.info("Отключение медленного подписчика {}: буфер из {} событий переполнен", topic, bufferSize);
+                close();
+                return;
+            }
+            if (draining.compareAndSet(false, true)) {
+                senders.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            do {
+                Object item;
+                while (!closed.get() && (item = queue.poll()) != null) {
+                    try {
+                        if (item == HEARTBEAT) {
+                            emitter.send(SseEmitter.event().comment("heartbeat"));
+                        } else {
+                            ChangeEventDTO event = (ChangeEventDTO) item;
+                            emitter.send(SseEmitter.event().name(event.getType().name()).data(event));
+                        }
+                    } catch (IOException | IllegalStateException e) {
+                        close();
+                    }
+                }
+                draining.set(false);
+            } while (!closed.get() && !queue.isEmpty() && draining.compareAndSet(false, true));
+        }
+
+        void detach() {
+            closed.set(true);
+            Set<Subscriber> topicSubscribers = subscribers.get(topic);
+            if (topicSubscribers != null) {
+                topicSubscribers.remove(this);
+                if (topicSubscribers.isEmpty()) {
+                    subscribers.remove(topic, topicSubscribers);
+                }
+            }
+            queue.clear();
+        }
+
+        void close() {
+            if (!closed.get()) {
+                detach();
+                emitter.complete();
+            }
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package ru.naumen.sanatoriumproject.services;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.naumen.sanatoriumproject.dtos.ProcedureCompletionDTO;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Ответы на отметки выполнения по заголовку Idempotency-Key.
+ * Ограничен по размеру: при переполнении вытесняются давно не использованные ключи.
+ */
+@Component
+public class CompletionIdempotencyCache {
+    private final Map<String, ProcedureCompletionDTO> responses;
+
+    public CompletionIdempotencyCache(@Value("${completion.idempotency.max-entries:10000}") int maxEntries) {
+        this.responses = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, ProcedureCompletionDTO> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    public synchronized ProcedureCompletionDTO get(Long userId, String idempotencyKey) {
+        return responses.get(key(userId, idempotencyKey));
+    }
+
+    public synchronized void put(Long userId, String idempotencyKey, ProcedureCompletionDTO response) {
+        responses.put(key(userId, idempotencyKey), response);
+    }
+
+    private static String key(Long userId, String idempotencyKey) {
+        return userId + ":" + idempotencyKey;
+    }
+}
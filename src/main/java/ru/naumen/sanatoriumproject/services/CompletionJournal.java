@@ -0,0 +1,299 @@
+package ru.naumen.sanatoriumproject.services;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import jakarta.annotation.PreDestroy;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.naumen.sanatoriumproject.repositories.ProcedureCompletionBatchRepository;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+/**
+ * Локальный журнал отметок выполнения на время, пока БД недоступна или отвечает слишком долго.
+ * Записи только дописываются в конец файла; fsync одновременных писателей объединяется в один.
+ * Смещение последней перенесённой в БД записи хранится в отдельном файле контрольной точки,
+ * а полностью перенесённый журнал обрезается до нуля.
+ */
+@Component
+public class CompletionJournal {
+    private static final Logger logger = LoggerFactory.getLogger(CompletionJournal.class);
+    // Длина и CRC32 содержимого записи
+    private static final int HEADER_SIZE = 8;
+    private static final int MAX_RECORD_SIZE = 64 * 1024;
+
+    private final FileChannel log;
+    private final FileChannel checkpoint;
+    private final Object appendLock = new Object();
+    private final Object syncLock = new Object();
+    private final AtomicLong depth = new AtomicLong();
+
+    private volatile long writePosition;
+    private volatile long syncedPosition;
+    private volatile long readPosition;
+    private volatile long oldestPendingAt;
+
+    public CompletionJournal(@Value("${completion.journal.dir:journal}") String dir, MeterRegistry meterRegistry) {
+        try {
+            Path directory = Path.of(dir);
+            Files.createDirectories(directory);
+            log = FileChannel.open(directory.resolve("completions.log"),
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            checkpoint = FileChannel.open(directory.resolve("completions.checkpoint"),
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            recover();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open completion journal in " + dir, e);
+        }
+
+        Gauge.builder("completion.journal.depth", depth, AtomicLong::get)
+                .description("Отметки в журнале, ещё не перенесённые в БД")
+                .register(meterRegistry);
+        TimeGauge.builder("completion.journal.replay.lag", this, TimeUnit.MILLISECONDS, CompletionJournal::getReplayLagMs)
+                .description("Возраст самой старой неперенесённой отметки")
+                .register(meterRegistry);
+    }
+
+    public void append(Long appointmentId, Long completedById, LocalDateTime completedAt, String notes) throws IOException {
+        byte[] notesBytes = notes != null ? notes.getBytes(StandardCharsets.UTF_8) : null;
+        int payloadSize = 8 * 4 + 4 + (notesBytes != null ? notesBytes.length : 0);
+        if (payloadSize > MAX_RECORD_SIZE) {
+            throw new IOException("Journal record is too large");
+        }
+        long journaledAt = System.currentTimeMillis();
+
+        ByteBuffer record = ByteBuffer.allocate(HEADER_SIZE + payloadSize);
+        record.position(HEADER_SIZE);
+        record.putLong(appointmentId);
+        record.putLong(completedById);
+        record.putLong(completedAt.toInstant(ZoneOffset.UTC).toEpochMilli());
+        record.putLong(journaledAt);
+        record.putInt(notesBytes != null ? notesBytes.length : -1);
+        if (notesBytes != null) {
+            record.put(notesBytes);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(record.array(), HEADER_SIZE, payloadSize);
+        record.putInt(0, payloadSize);
+        record.putInt(4, (int) crc.getValue());
+        record.flip();
+
+        long end;
+        synchronized (appendLock) {
+            long position = writePosition;
+            while (record.hasRemaining()) {
+                position += log.write(record, position);
+            }
+            writePosition = position;
+            end = position;
+            if (depth.getAndIncrement() == 0) {
+                oldestPendingAt = journaledAt;
+            }
+        }
+        sync(end);
+    }
+
+    /**
+     * Очередная порция записей начиная с контрольной точки; отдаются только записи, уже сброшенные на диск.
+     */
+    public List<Entry> readBatch(int maxEntries) throws IOException {
+        List<Entry> entries = new ArrayList<>();
+        long position = readPosition;
+        long limit = syncedPosition;
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        while (entries.size() < maxEntries && position + HEADER_SIZE <= limit) {
+            Entry entry = readEntry(position, limit, header);
+            if (entry == null) {
+                logger.error("Corrupted completion journal record at offset {}", position);
+                break;
+            }
+            entries.add(entry);
+            position = entry.getNextOffset();
+        }
+        return entries;
+    }
+
+    /**
+     * Отмечает записи до {@code nextOffset} перенесёнными. Вызывается после коммита транзакции с ними.
+     */
+    public void acknowledge(long nextOffset, int count) throws IOException {
+        synchronized (appendLock) {
+            readPosition = nextOffset;
+            if (depth.addAndGet(-count) == 0 && nextOffset == writePosition) {
+                // Всё перенесено: журнал начинается заново
+                synchronized (syncLock) {
+                    log.truncate(0);
+                    log.force(true);
+                    writePosition = 0;
+                    syncedPosition = 0;
+                    readPosition = 0;
+                }
+                oldestPendingAt = 0;
+            } else {
+                Entry next = readEntry(nextOffset, writePosition, ByteBuffer.allocate(HEADER_SIZE));
+                oldestPendingAt = next != null ? next.getJournaledAt() : 0;
+            }
+            writeCheckpoint(readPosition);
+        }
+    }
+
+    public long getDepth() {
+        return depth.get();
+    }
+
+    public long getReplayLagMs() {
+        long since = oldestPendingAt;
+        return since == 0 ? 0 : Math.max(0, System.currentTimeMillis() - since);
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        synchronized (appendLock) {
+            log.close();
+            checkpoint.close();
+        }
+    }
+
+    // Групповой fsync: писатель, дождавшийся блокировки, сбрасывает и чужие записи, дописанные до него
+    private void sync(long end) throws IOException {
+        if (syncedPosition >= end) {
+            return;
+        }
+        synchronized (syncLock) {
+            if (syncedPosition >= end) {
+                return;
+            }
+            long target = writePosition;
+            log.force(false);
+            syncedPosition = target;
+        }
+    }
+
+    private void recover() throws IOException {
+        long size = log.size();
+        long start = readCheckpoint();
+        if (start > size) {
+            start = 0;
+        }
+
+        // Хвост после сбоя посреди записи отбрасывается
+        long position = start;
+        long count = 0;
+        long oldest = 0;
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        while (position + HEADER_SIZE <= size) {
+            Entry entry = readEntry(position, size, header);
+            if (entry == null) {
+                break;
+            }
+            if (count++ == 0) {
+                oldest = entry.getJournaledAt();
+            }
+            position = entry.getNextOffset();
+        }
+        if (position < size) {
+            logger.warn("Truncating completion journal tail at offset {} of {}", position, size);
+            log.truncate(position);
+            log.force(true);
+        }
+
+        readPosition = start;
+        writePosition = position;
+        syncedPosition = position;
+        depth.set(count);
+        oldestPendingAt = oldest;
+        if (count > 0) {
+            logger.info("Completion journal has {} pending entries", count);
+        }
+    }
+
+    private Entry readEntry(long position, long limit, ByteBuffer header) throws IOException {
+        header.clear();
+        if (!readFully(header, position)) {
+            return null;
+        }
+        int payloadSize = header.getInt(0);
+        int expectedCrc = header.getInt(4);
+        if (payloadSize < 8 * 4 + 4 || payloadSize > MAX_RECORD_SIZE || position + HEADER_SIZE + payloadSize > limit) {
+            return null;
+        }
+
+        ByteBuffer payload = ByteBuffer.allocate(payloadSize);
+        if (!readFully(payload, position + HEADER_SIZE)) {
+            return null;
+        }
+        CRC32 crc = new CRC32();
+        crc.update(payload.array(), 0, payloadSize);
+        if ((int) crc.getValue() != expectedCrc) {
+            return null;
+        }
+
+        payload.flip();
+        long appointmentId = payload.getLong();
+        long completedById = payload.getLong();
+        LocalDateTime completedAt = LocalDateTime.ofInstant(Instant.ofEpochMilli(payload.getLong()), ZoneOffset.UTC);
+        long journaledAt = payload.getLong();
+        int notesLength = payload.getInt();
+        String notes = null;
+        if (notesLength >= 0) {
+            notes = new String(payload.array(), payload.position(), notesLength, StandardCharsets.UTF_8);
+        }
+        return new Entry(appointmentId, completedById, completedAt, notes, journaledAt,
+                position + HEADER_SIZE + payloadSize);
+    }
+
+    private boolean readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = log.read(buffer, position + buffer.position());
+            if (read < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private long readCheckpoint() throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(8);
+        if (checkpoint.read(buffer, 0) < 8) {
+            return 0;
+        }
+        return buffer.getLong(0);
+    }
+
+    private void writeCheckpoint(long offset) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(8).putLong(0, offset);
+        checkpoint.write(buffer, 0);
+        checkpoint.force(false);
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class Entry implements ProcedureCompletionBatchRepository.PendingCompletion {
+        private final Long appointmentId;
+        private final Long completedById;
+        private final LocalDateTime completedAt;
+        private final String notes;
+        private final long journaledAt;
+        private final long nextOffset;
+    }
+}
@@ -0,0 +1,222 @@
+package ru.naumen.sanatoriumproject.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionTimedOutException;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+import ru.naumen.sanatoriumproject.dtos.ProcedureCompletionBatchDTO;
+import ru.naumen.sanatoriumproject.dtos.ProcedureCompletionDTO;
+import ru.naumen.sanatoriumproject.dtos.ProcedureCompletionResultDTO;
+import ru.naumen.sanatoriumproject.security.CheckInToken;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Приём отметок выполнения с откатом на локальный журнал, когда БД недоступна или не укладывается в таймаут.
+ * После первого сбоя отметки пишутся сразу в журнал, не дожидаясь таймаута, пока фоновый перенос
+ * не опустошит журнал. Перенос идёт порциями; повтор порции после сбоя не создаёт дублей,
+ * потому что на запись приходится не больше одной отметки. Запись, которую нельзя применить и после
+ * восстановления БД, отбрасывается как отклонённая и не задерживает остальной журнал.
+ */
+@Service
+public class CompletionJournalService {
+    private static final Logger logger = LoggerFactory.getLogger(CompletionJournalService.class);
+
+    private final ProcedureCompletionService completionService;
+    private final CompletionJournal journal;
+    private final TransactionTemplate transactionTemplate;
+    private final ScheduledExecutorService replayer = Executors.newSingleThreadScheduledExecutor();
+    private final int batchSize;
+    private final Counter journaled;
+    private final Counter replayed;
+    private final Counter rejected;
+
+    private volatile boolean degraded;
+
+    public CompletionJournalService(ProcedureCompletionService completionService,
+                                    CompletionJournal journal,
+                                    PlatformTransactionManager transactionManager,
+                                    MeterRegistry meterRegistry,
+                                    @Value("${completion.journal.db-timeout-seconds:3}") int dbTimeoutSeconds,
+                                    @Value("${completion.journal.batch-size:500}") int batchSize,
+                                    @Value("${completion.journal.replay-interval-ms:1000}") long replayIntervalMs) {
+        this.completionService = completionService;
+        this.journal = journal;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setTimeout(dbTimeoutSeconds);
+        this.batchSize = batchSize;
+        this.journaled = meterRegistry.counter("completion.journal.appended");
+        this.replayed = meterRegistry.counter("completion.journal.replayed");
+        this.rejected = meterRegistry.counter("completion.journal.rejected");
+        this.degraded = journal.getDepth() > 0;
+        replayer.scheduleWithFixedDelay(this::replay, replayIntervalMs, replayIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @return отметка; у отметки, принятой в журнал, ещё нет id
+     */
+    public ProcedureCompletionDTO markProcedureAsCompleted(Long appointmentId, Long userId, String notes) {
+        if (!degraded) {
+            try {
+                return inTransaction(() -> completionService.markProcedureAsCompleted(appointmentId, userId, notes));
+            } catch (DatabaseUnavailableException e) {
+                logger.warn("Database unavailable, journaling completion of appointment {}", appointmentId, e.getCause());
+            }
+        }
+
+        completionService.verifyCanJournal(userId);
+        LocalDateTime completedAt = LocalDateTime.now();
+        append(appointmentId, userId, completedAt, notes);
+        ProcedureCompletionDTO dto = new ProcedureCompletionDTO();
+        dto.setAppointmentId(appointmentId);
+        dto.setCompletedById(userId);
+        dto.setCompletedAt(completedAt);
+        dto.setNotes(notes);
+        return dto;
+    }
+
+    public ProcedureCompletionResultDTO markProcedureAsCompletedByToken(String token, Long userId, String notes) {
+        if (!degraded) {
+            try {
+                return inTransaction(() -> completionService.markProcedureAsCompletedByToken(token, userId, notes));
+            } catch (DatabaseUnavailableException e) {
+                logger.warn("Database unavailable, journaling check-in completion", e.getCause());
+            }
+        }
+
+        // Токен проверяется и без БД, так что в журнал попадают только отметки с доступом к кабинету
+        CheckInToken checkIn = completionService.verifyCheckInToken(token, userId);
+        append(checkIn.getAppointmentId(), userId, LocalDateTime.now(), notes);
+        return new ProcedureCompletionResultDTO(checkIn.getAppointmentId(), ProcedureCompletionResultDTO.Status.QUEUED);
+    }
+
+    public List<ProcedureCompletionResultDTO> markProceduresAsCompleted(ProcedureCompletionBatchDTO batchDTO) {
+        if (!degraded) {
+            try {
+                return inTransaction(() -> completionService.markProceduresAsCompleted(batchDTO));
+            } catch (DatabaseUnavailableException e) {
+                logger.warn("Database unavailable, journaling completion batch", e.getCause());
+            }
+        }
+        if (batchDTO.getUserId() == null || batchDTO.getAppointmentIds() == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "userId and appointmentIds are required");
+        }
+        completionService.verifyCanJournal(batchDTO.getUserId());
+
+        Set<Long> appointmentIds = new LinkedHashSet<>(batchDTO.getAppointmentIds());
+        appointmentIds.remove(null);
+        LocalDateTime completedAt = LocalDateTime.now();
+        List<ProcedureCompletionResultDTO> results = new ArrayList<>(appointmentIds.size());
+        for (Long appointmentId : appointmentIds) {
+            append(appointmentId, batchDTO.getUserId(), completedAt, batchDTO.getNotes());
+            results.add(new ProcedureCompletionResultDTO(appointmentId, ProcedureCompletionResultDTO.Status.QUEUED));
+        }
+        return results;
+    }
+
+    /**
+     * Переносит журнал в БД, пока он не опустеет или БД снова не откажет.
+     */
+    public synchronized void replay() {
+        try {
+            while (journal.getDepth() > 0) {
+                List<CompletionJournal.Entry> batch = journal.readBatch(batchSize);
+                if (batch.isEmpty()) {
+                    break;
+                }
+                List<CompletionJournal.Entry> failed = replayBatch(batch);
+                journal.acknowledge(batch.get(batch.size() - 1).getNextOffset(), batch.size());
+                replayed.increment(batch.size() - failed.size());
+                rejected.increment(failed.size());
+                failed.forEach(entry -> logger.warn("Dropped journaled completion of appointment {} by user {}",
+                        entry.getAppointmentId(), entry.getCompletedById()));
+            }
+            if (degraded && journal.getDepth() == 0) {
+                degraded = false;
+                logger.info("Completion journal drained, writing to database again");
+            }
+        } catch (DatabaseUnavailableException e) {
+            logger.debug("Database still unavailable, {} completions pending", journal.getDepth());
+        } catch (IOException | RuntimeException e) {
+            logger.error("Completion journal replay failed", e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        replayer.shutdownNow();
+    }
+
+    // Порция, упавшая не из-за недоступности БД, переносится по одной записи: отбрасывается только запись,
+    // которую применить нельзя (например, её автор уже удалён), а журнал продолжает разбираться
+    private List<CompletionJournal.Entry> replayBatch(List<CompletionJournal.Entry> batch) {
+        try {
+            return inTransaction(() -> completionService.replayJournaled(batch));
+        } catch (DatabaseUnavailableException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            logger.warn("Completion journal batch failed, replaying its {} entries one by one", batch.size(), e);
+        }
+
+        List<CompletionJournal.Entry> failed = new ArrayList<>();
+        for (CompletionJournal.Entry entry : batch) {
+            try {
+                failed.addAll(inTransaction(() -> completionService.replayJournaled(List.of(entry))));
+            } catch (DatabaseUnavailableException e) {
+                throw e;
+            } catch (RuntimeException e) {
+                logger.error("Journaled completion of appointment {} by user {} cannot be applied",
+                        entry.getAppointmentId(), entry.getCompletedById(), e);
+                failed.add(entry);
+            }
+        }
+        return failed;
+    }
+
+    private void append(Long appointmentId, Long userId, LocalDateTime completedAt, String notes) {
+        try {
+            journal.append(appointmentId, userId, completedAt, notes);
+        } catch (IOException e) {
+            logger.error("Could not journal completion of appointment {}", appointmentId, e);
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Completion could not be saved");
+        }
+        degraded = true;
+        journaled.increment();
+    }
+
+    // Сбои соединения и таймауты переводят в режим журнала; ошибки данных и доступа пробрасываются как есть
+    private <T> T inTransaction(Supplier<T> action) {
+        try {
+            return transactionTemplate.execute(status -> action.get());
+        } catch (CannotCreateTransactionException | TransactionTimedOutException
+                 | TransientDataAccessException | DataAccessResourceFailureException e) {
+            throw new DatabaseUnavailableException(e);
+        }
+    }
+
+    private static class DatabaseUnavailableException extends RuntimeException {
+        DatabaseUnavailableException(Throwable cause) {
+            super(cause);
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package ru.naumen.sanatoriumproject.services;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import ru.naumen.sanatoriumproject.dtos.CompletionStatsDTO;
+import ru.naumen.sanatoriumproject.dtos.StatsRebuildDTO;
+import ru.naumen.sanatoriumproject.models.*;
+import ru.naumen.sanatoriumproject.repositories.*;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Счётчики назначенных и выполненных процедур по (смена, студент), (смена, кабинет, день) и (смена, процедура).
+ * Обновляются в той же транзакции, что и записи/отметки, поэтому чтение — один поиск по первичному ключу.
+ */
+@Service
+@RequiredArgsConstructor
+public class CompletionStatsService {
+    private final StudentShiftStatsRepository studentStatsRepository;
+    private final CabinetDayStatsRepository cabinetDayStatsRepository;
+    private final ProcedureShiftStatsRepository procedureStatsRepository;
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void onAppointmentCreated(Appointment appointment) {
+        apply(appointment.getShift().getId(), appointment.getStudent().getId(), appointment.getProcedure().getId(),
+                appointment.getProcedure().getCabinet().getId(), appointment.getAppointmentDate(), 1, 0);
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void onAppointmentDeleted(AppointmentRepository.AppointmentScope scope) {
+        apply(scope.getShiftId(), scope.getStudentId(), scope.getProcedureId(),
+                scope.getCabinetId(), scope.getAppointmentDate(), -1, 0);
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void onCompletionsCreated(Collection<AppointmentRepository.AppointmentScope> scopes) {
+        // Пакет сворачиваем по ключам, чтобы на каждый счётчик пришёлся один upsert
+        Map<StudentShiftStatsId, Long> students = new HashMap<>();
+        Map<CabinetDayStatsId, Long> cabinetDays = new HashMap<>();
+        Map<ProcedureShiftStatsId, Long> procedures = new HashMap<>();
+        for (AppointmentRepository.AppointmentScope scope : scopes) {
+            students.merge(new StudentShiftStatsId(scope.getShiftId(), scope.getStudentId()), 1L, Long::sum);
+            cabinetDays.merge(new CabinetDayStatsId(scope.getShiftId(), scope.getCabinetId(),
+                    scope.getAppointmentDate()), 1L, Long::sum);
+            procedures.merge(new ProcedureShiftStatsId(scope.getShiftId(), scope.getProcedureId()), 1L, Long::sum);
+        }
+
+        students.forEach((id, count) ->
+                studentStatsRepository.addDelta(id.getShiftId(), id.getStudentId(), 0, count));
+        cabinetDays.forEach((id, count) ->
+                cabinetDayStatsRepository.addDelta(id.getShiftId(), id.getCabinetId(), id.getAppointmentDate(), 0, count));
+        procedures.forEach((id, count) ->
+                procedureStatsRepository.addDelta(id.getShiftId(), id.getProcedureId(), 0, count));
+    }
+
+    // Процедуру перевели в другой кабинет: её записи и отметки переходят вместе с ней
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void onProcedureCabinetChanged(Long procedureId, Long oldCabinetId, Long newCabinetId) {
+        cabinetDayStatsRepository.addProcedureDelta(procedureId, oldCabinetId, -1);
+        cabinetDayStatsRepository.addProcedureDelta(procedureId, newCabinetId, 1);
+    }
+
+    public CompletionStatsDTO getStudentStats(Long shiftId, Long studentId) {
+        return studentStatsRepository.findById(new StudentShiftStatsId(shiftId, studentId))
+                .map(stats -> convertToDto(stats.getPrescribed(), stats.getCompleted()))
+                .orElseGet(() -> convertToDto(0, 0));
+    }
+
+    public CompletionStatsDTO getCabinetDayStats(Long shiftId, Long cabinetId, LocalDate date) {
+        return cabinetDayStatsRepository.findById(new CabinetDayStatsId(shiftId, cabinetId, date))
+                .map(stats -> convertToDto(stats.getPrescribed(), stats.getCompleted()))
+                .orElseGet(() -> convertToDto(0, 0));
+    }
+
+    public CompletionStatsDTO getProcedureStats(Long shiftId, Long procedureId) {
+        return procedureStatsRepository.findById(new ProcedureShiftStatsId(shiftId, procedureId))
+                .map(stats -> convertToDto(stats.getPrescribed(), stats.getCompleted()))
+                .orElseGet(() -> convertToDto(0, 0));
+    }
+
+    // Пересчёт с нуля по исходным таблицам; возвращает число расхождений, найденных до пересчёта
+    @Transactional
+    public StatsRebuildDTO rebuild() {
+        StatsRebuildDTO result = new StatsRebuildDTO(
+                studentStatsRepository.countMismatches(),
+                cabinetDayStatsRepository.countMismatches(),
+                procedureStatsRepository.countMismatches());
+
+        studentStatsRepository.deleteAllRows();
+        studentStatsRepository.insertFromAggregate();
+        cabinetDayStatsRepository.deleteAllRows();
+        cabinetDayStatsRepository.insertFromAggregate();
+        procedureStatsRepository.deleteAllRows();
+        procedureStatsRepository.insertFromAggregate();
+        return result;
+    }
+
+    @Transactional(readOnly = true)
+    public StatsRebuildDTO verify() {
+        return new StatsRebuildDTO(
+                studentStatsRepository.countMismatches(),
+                cabinetDayStatsRepository.countMismatches(),
+                procedureStatsRepository.countMismatches());
+    }
+
+    private void apply(Long shiftId, Long studentId, Long procedureId, Long cabinetId, LocalDate date,
+                       long prescribed, long completed) {
+        studentStatsRepository.addDelta(shiftId, studentId, prescribed, completed);
+        cabinetDayStatsRepository.addDelta(shiftId, cabinetId, date, prescribed, completed);
+        procedureStatsRepository.addDelta(shiftId, procedureId, prescribed, completed);
+    }
+
+    private CompletionStatsDTO convertToDto(long prescribed, long completed) {
+        CompletionStatsDTO dto = new CompletionStatsDTO();
+        dto.setPrescribed(prescribed);
+        dto.setCompleted(completed);
+        dto.setCompletionRate(prescribed > 0 ? (double) completed / prescribed : 0);
+        return dto;
+    }
+}
@@ -0,0 +1,71 @@
+package ru.naumen.sanatoriumproject.services;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * CSV по RFC 4180 в UTF-8 с BOM, чтобы Excel открывал кириллицу без мастера импорта.
+ * Текст, который табличный редактор принял бы за формулу, предваряется апострофом (защита от CSV-инъекций).
+ */
+public class CsvReportWriter implements ReportWriter {
+    private final Writer writer;
+
+    public CsvReportWriter(OutputStream out) throws IOException {
+        this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        writer.write('\uFEFF');
+    }
+
+    @Override
+    public void header(String... columns) throws IOException {
+        row(columns);
+    }
+
+    @Override
+    public void row(Object[] values) throws IOException {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            if (values[i] instanceof CharSequence text) {
+                writeField(neutralize(text.toString()));
+            } else if (values[i] != null) {
+                writeField(values[i].toString());
+            }
+        }
+        writer.write("\r\n");
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.flush();
+    }
+
+    // Числа и даты пишутся как есть: формулами становятся только пользовательские строки
+    private static String neutralize(String value) {
+        if (value.isEmpty()) {
+            return value;
+        }
+        char first = value.charAt(0);
+        boolean formula = first == '=' || first == '+' || first == '-' || first == '@' || first == '\t' || first == '\r';
+        return formula ? "'" + value : value;
+    }
+
+    private void writeField(String value) throws IOException {
+        boolean quoted = false;
+        for (int i = 0; i < value.length() && !quoted; i++) {
+            char c = value.charAt(i);
+            quoted = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quoted) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+}
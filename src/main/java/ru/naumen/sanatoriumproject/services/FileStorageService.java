@@ -1,39 +1,253 @@
 package ru.naumen.sanatoriumproject.services;
 
+import jakarta.annotation.PostConstruct;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.apache.commons.io.FilenameUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
-import org.apache.commons.io.FilenameUtils;
+import org.springframework.web.server.ResponseStatusException;
+import ru.naumen.sanatoriumproject.repositories.StoredFileRepository;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.UUID;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
 
+/**
+ * Хранилище загрузок с адресацией по содержимому: файл называется SHA-256 своих байтов, поэтому одна
+ * картинка в нескольких новостях лежит на диске один раз. Число ссылок хранится в stored_files;
+ * файл удаляется, когда снята последняя. Расширение имени выводится из проверенного типа картинки,
+ * а не из имени файла у клиента, и отдаются только файлы картинок. Файлы со старыми UUID-именами
+ * продолжают отдаваться как есть.
+ */
 @Service
 public class FileStorageService {
+    private static final Logger logger = LoggerFactory.getLogger(FileStorageService.class);
+    private static final int LOCK_STRIPES = 64;
+    private static final Map<String, String> EXTENSIONS_BY_TYPE = Map.of(
+            "image/jpeg", "jpg",
+            "image/png", "png",
+            "image/gif", "gif");
+    // jpeg — у файлов, сохранённых под расширением из имени у клиента
+    private static final Set<String> SERVED_EXTENSIONS = Set.of("jpg", "jpeg", "png", "gif");
+
+    private final StoredFileRepository storedFileRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    // Счётчики меняются отдельными короткими транзакциями и не держат блокировку строки до коммита новости
+    private final TransactionTemplate separateTransaction;
+    // Размещение файла со взятием ссылки и удаление после последней ссылки не должны пересекаться
+    private final Object[] locks = new Object[LOCK_STRIPES];
+
     @Value("${news.upload.dir}")
     private String uploadDir;
 
+    public FileStorageService(StoredFileRepository storedFileRepository,
+                              ApplicationEventPublisher eventPublisher,
+                              PlatformTransactionManager transactionManager) {
+        this.storedFileRepository = storedFileRepository;
+        this.eventPublisher = eventPublisher;
+        this.separateTransaction = new TransactionTemplate(transactionManager);
+        this.separateTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    @PostConstruct
+    public void registerExistingFiles() {
+        Integer registered = separateTransaction.execute(status -> storedFileRepository.registerExisting());
+        if (registered != null && registered > 0) {
+            logger.info("Registered {} previously uploaded files", registered);
+        }
+    }
+
+    /**
+     * Сохраняет файл и берёт на него ссылку. Байты читаются один раз: хеш считается при копировании
+     * во временный файл, который становится итоговым, только если такого содержимого ещё нет.
+     * При откате текущей транзакции ссылка снимается.
+     */
     public String storeFile(MultipartFile file) throws IOException {
-        Path uploadPath = Paths.get(uploadDir);
-        if (!Files.exists(uploadPath)) {
-            Files.createDirectories(uploadPath);
+        String contentType = file.getContentType() != null ? file.getContentType().toLowerCase() : "";
+        String extension = EXTENSIONS_BY_TYPE.get(contentType);
+        if (extension == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unsupported image type: " + contentType);
         }
+        Path uploadPath = Paths.get(uploadDir);
+        Files.createDirectories(uploadPath);
 
-        // Генерируем уникальное имя файла
-        String extension = FilenameUtils.getExtension(file.getOriginalFilename());
-        String fileName = UUID.randomUUID() + "." + extension;
+        MessageDigest digest = sha256();
+        Path temp = Files.createTempFile(uploadPath, ".upload", ".tmp");
+        try {
+            try (InputStream in = new DigestInputStream(file.getInputStream(), digest)) {
+                Files.copy(in, temp, StandardCopyOption.REPLACE_EXISTING);
+            }
+            String fileName = HexFormat.of().formatHex(digest.digest()) + "." + extension;
 
-        // Сохраняем файл
-        Path filePath = uploadPath.resolve(fileName);
-        Files.copy(file.getInputStream(), filePath);
+            synchronized (lockFor(fileName)) {
+                Path target = uploadPath.resolve(fileName);
+                if (!Files.exists(target)) {
+                    Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+                } else {
+                    // Старый файл снова в деле: очистка загрузок не тронет его, пока не выйдет срок ожидания
+                    Files.setLastModifiedTime(target, FileTime.from(Instant.now()));
+                }
+                separateTransaction.executeWithoutResult(status -> storedFileRepository.increment(fileName));
+            }
+            if (TransactionSynchronizationManager.isSynchronizationActive()) {
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCompletion(int status) {
+                        if (status != STATUS_COMMITTED) {
+                            releaseNow(fileName);
+                        }
+                    }
+                });
+            }
+            return fileName;
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
 
-        return fileName;
+    /**
+     * Снимает ссылку на файл после коммита. Файл без ссылок удаляется вместе с уменьшенными копиями.
+     */
+    public void release(String fileName) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            releaseNow(fileName);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                releaseNow(fileName);
+            }
+        });
     }
 
     public Path loadFile(String filename) {
         return Paths.get(uploadDir).resolve(filename);
     }
-}
\ No newline at end of file
+
+    /**
+     * Сохранённый файл для отдачи по имени из URL. Имена, выводящие из каталога загрузок,
+     * файлы не картинок и отсутствующие файлы дают 404.
+     */
+    public Path loadStoredFile(String filename) {
+        Path root = Paths.get(uploadDir).toAbsolutePath().normalize();
+        Path file = root.resolve(filename).normalize();
+        if (!root.equals(file.getParent()) || !Files.isRegularFile(file)
+                || !SERVED_EXTENSIONS.contains(FilenameUtils.getExtension(filename).toLowerCase())) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "File not found");
+        }
+        return file;
+    }
+
+    public Path getUploadPath() {
+        return Paths.get(uploadDir);
+    }
+
+    /**
+     * Удаляет файл без ссылок из новостей, если он так и не изменялся с момента cutoff. Проверка идёт под той же
+     * блокировкой, что и повторное использование файла при загрузке, поэтому только что взятый файл не удаляется.
+     *
+     * @param owner имя оригинала для уменьшенной копии или сам файл; null для брошенных временных файлов
+     * @return размер удалённого файла или -1, если файл остался
+     */
+    public long deleteOrphan(String fileName, String owner, Instant cutoff) throws IOException {
+        Path file = Paths.get(uploadDir).resolve(fileName);
+        synchronized (lockFor(owner != null ? owner : fileName)) {
+            BasicFileAttributes attributes;
+            try {
+                attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            } catch (NoSuchFileException e) {
+                return -1;
+            }
+            if (!attributes.isRegularFile() || !attributes.lastModifiedTime().toInstant().isBefore(cutoff)) {
+                return -1;
+            }
+            Files.delete(file);
+            if (fileName.equals(owner)) {
+                separateTransaction.executeWithoutResult(status -> storedFileRepository.deleteById(owner));
+                eventPublisher.publishEvent(new FileDeleted(owner));
+            }
+            return attributes.size();
+        }
+    }
+
+    private void releaseNow(String fileName) {
+        try {
+            synchronized (lockFor(fileName)) {
+                Boolean unreferenced = separateTransaction.execute(status ->
+                        storedFileRepository.decrement(fileName) > 0
+                                && storedFileRepository.deleteIfUnreferenced(fileName) > 0);
+                if (Boolean.TRUE.equals(unreferenced)) {
+                    deleteWithVariants(fileName);
+                }
+            }
+        } catch (RuntimeException | IOException e) {
+            // Файл останется на диске лишним, но ни одна ссылка не сломается
+            logger.warn("Failed to release stored file {}", fileName, e);
+        }
+    }
+
+    // Уменьшенные копии называются "имя.w320.png"; та же картинка с другим расширением — отдельный файл
+    private void deleteWithVariants(String fileName) throws IOException {
+        Pattern variant = Pattern.compile(Pattern.quote(FilenameUtils.getBaseName(fileName)) + "\\.w\\d+\\."
+                + Pattern.quote(FilenameUtils.getExtension(fileName)));
+        boolean resizable = ImageVariantService.isResizable(fileName);
+        DirectoryStream.Filter<Path> ownFiles = path -> {
+            String name = path.getFileName().toString();
+            return name.equals(fileName) || resizable && variant.matcher(name).matches();
+        };
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(Paths.get(uploadDir), ownFiles)) {
+            for (Path path : files) {
+                Files.deleteIfExists(path);
+            }
+        }
+        eventPublisher.publishEvent(new FileDeleted(fileName));
+    }
+
+    private Object lockFor(String fileName) {
+        return locks[Math.floorMod(fileName.hashCode(), LOCK_STRIPES)];
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Getter
+    @RequiredArgsConstructor
+    public static class FileDeleted {
+        private final String fileName;
+    }
+}
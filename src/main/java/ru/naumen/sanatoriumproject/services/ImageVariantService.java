@@ -0,0 +1,233 @@
+package ru.naumen.sanatoriumproject.services;
+
+import jakarta.annotation.PreDestroy;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.apache.commons.io.FilenameUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Уменьшенные копии картинок новостей — по одной на каждую ширину из news.image.variant-widths,
+ * рядом с оригиналом под именем "имя.w320.png". Копии строятся на виртуальных потоках; готовые
+ * не пересоздаются, а файл появляется под итоговым именем только целиком. Пока копии нет, отдаётся оригинал.
+ */
+@Service
+public class ImageVariantService {
+    private static final Logger logger = LoggerFactory.getLogger(ImageVariantService.class);
+    private static final Set<String> RESIZABLE = Set.of("jpg", "jpeg", "png");
+
+    private final FileStorageService fileStorageService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int[] widths;
+    private final float quality;
+    private final int maxAttempts;
+    private final long retryDelayMs;
+    // Декодированный оригинал в 5MB занимает десятки мегабайт, поэтому одновременно декодируется немного
+    private final Semaphore decoders;
+    private final ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor();
+    // Оригиналы, по которым генерация уже запускалась: в работе, готовы или попытки исчерпаны
+    private final Set<String> started = ConcurrentHashMap.newKeySet();
+
+    public ImageVariantService(FileStorageService fileStorageService,
+                               ApplicationEventPublisher eventPublisher,
+                               @Value("${news.image.variant-widths:320,640,1280}") int[] widths,
+                               @Value("${news.image.quality:0.8}") float quality,
+                               @Value("${news.image.max-attempts:3}") int maxAttempts,
+                               @Value("${news.image.retry-delay-ms:1000}") long retryDelayMs,
+                               @Value("${news.image.max-concurrent:2}") int maxConcurrent) {
+        this.fileStorageService = fileStorageService;
+        this.eventPublisher = eventPublisher;
+        this.widths = Arrays.stream(widths).sorted().toArray();
+        this.quality = quality;
+        this.maxAttempts = maxAttempts;
+        this.retryDelayMs = retryDelayMs;
+        this.decoders = new Semaphore(maxConcurrent);
+    }
+
+    /**
+     * Запускает построение копий в фоне; повторный вызов для того же файла ничего не делает.
+     */
+    public void generateAsync(String filename) {
+        if (isResizable(filename) && started.add(filename)) {
+            workers.execute(() -> generate(filename));
+        }
+    }
+
+    /**
+     * Готовые копии: ширина → имя файла. Ширины не больше оригинала не строятся, для них нужен оригинал.
+     * Для картинок, загруженных до появления копий, построение запускается здесь.
+     */
+    public Map<Integer, String> readyVariants(String filename) {
+        Map<Integer, String> ready = new TreeMap<>();
+        if (!isResizable(filename)) {
+            return ready;
+        }
+        for (int width : widths) {
+            String name = variantName(filename, width);
+            if (Files.exists(fileStorageService.loadFile(name))) {
+                ready.put(width, name);
+            }
+        }
+        if (ready.size() < widths.length) {
+            generateAsync(filename);
+        }
+        return ready;
+    }
+
+    // Если то же содержимое загрузят снова, копии нужно построить заново
+    @EventListener
+    public void onFileDeleted(FileStorageService.FileDeleted event) {
+        started.remove(event.getFileName());
+    }
+
+    public static String variantName(String filename, int width) {
+        return FilenameUtils.getBaseName(filename) + ".w" + width + "." + FilenameUtils.getExtension(filename);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdownNow();
+    }
+
+    private void generate(String filename) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                decoders.acquire();
+                boolean written;
+                try {
+                    written = writeVariants(filename);
+                } finally {
+                    decoders.release();
+                }
+                if (written) {
+                    eventPublisher.publishEvent(new VariantsReady(filename));
+                }
+                return;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (IOException | RuntimeException e) {
+                if (attempt >= maxAttempts) {
+                    logger.warn("Giving up on variants of {} after {} attempts", filename, attempt, e);
+                    return;
+                }
+                logger.info("Variants of {} failed, retrying: {}", filename, e.toString());
+            }
+            try {
+                Thread.sleep(retryDelayMs * attempt);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private boolean writeVariants(String filename) throws IOException {
+        boolean written = false;
+        BufferedImage original = null;
+        for (int width : widths) {
+            Path target = fileStorageService.loadFile(variantName(filename, width));
+            if (Files.exists(target)) {
+                continue;
+            }
+            if (original == null) {
+                original = ImageIO.read(fileStorageService.loadFile(filename).toFile());
+                if (original == null) {
+                    throw new IOException("Unsupported image format: " + filename);
+                }
+            }
+            if (original.getWidth() <= width) {
+                continue;
+            }
+
+            boolean png = "png".equalsIgnoreCase(FilenameUtils.getExtension(filename));
+            BufferedImage resized = resize(original, width, png && original.getColorModel().hasAlpha());
+            Path temp = Files.createTempFile(target.getParent(), ".variant", ".tmp");
+            try {
+                write(resized, png ? "png" : "jpeg", temp);
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+                written = true;
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        }
+        return written;
+    }
+
+    private static BufferedImage resize(BufferedImage source, int width, boolean alpha) {
+        int targetHeight = Math.max(1, (int) Math.round((double) source.getHeight() * width / source.getWidth()));
+        BufferedImage current = source;
+        int w = source.getWidth();
+        int h = source.getHeight();
+        // Уменьшаем шагами не больше чем вдвое: одна билинейная интерполяция на большом масштабе даёт «лесенку»
+        do {
+            w = Math.max(width, w / 2);
+            h = w == width ? targetHeight : Math.max(targetHeight, h / 2);
+            BufferedImage next = new BufferedImage(w, h, alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+            Graphics2D graphics = next.createGraphics();
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            if (!alpha) {
+                graphics.setColor(Color.WHITE);
+                graphics.fillRect(0, 0, w, h);
+            }
+            graphics.drawImage(current, 0, 0, w, h, null);
+            graphics.dispose();
+            current = next;
+        } while (w > width);
+        return current;
+    }
+
+    private void write(BufferedImage image, String format, Path target) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName(format).next();
+        try (ImageOutputStream out = ImageIO.createImageOutputStream(target.toFile())) {
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            if ("jpeg".equals(format)) {
+                param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                param.setCompressionQuality(quality);
+            }
+            writer.setOutput(out);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+    }
+
+    @Getter
+    @RequiredArgsConstructor
+    public static class VariantsReady {
+        private final String fileName;
+    }
+
+    // Копии есть только у jpg, jpeg и png; по этому же списку их ищут при удалении и очистке загрузок
+    static boolean isResizable(String filename) {
+        return filename != null && RESIZABLE.contains(FilenameUtils.getExtension(filename).toLowerCase());
+    }
+}
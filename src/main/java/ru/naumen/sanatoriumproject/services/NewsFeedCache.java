@@ -0,0 +1,145 @@
+package ru.naumen.sanatoriumproject.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.DigestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Публичная лента новостей, уже сериализованная в JSON и сжатая gzip, вместе с ETag и Last-Modified.
+ * После коммита создания, изменения или удаления новости лента пересобирается сразу, на потоке того же
+ * запроса; готовые уменьшенные копии картинок только помечают её устаревшей, и её соберёт следующий запрос.
+ * Сборка, пересёкшаяся с незавершённым изменением, в кэш не попадает.
+ */
+@Component
+public class NewsFeedCache {
+    private static final Logger logger = LoggerFactory.getLogger(NewsFeedCache.class);
+
+    private final ObjectMapper objectMapper;
+    private final Counter hits;
+    private final Counter misses;
+    // Пока лента собирается, остальные запросы ждут её, а не идут в БД следом
+    private final Object buildLock = new Object();
+    private Feed feed;
+    private long version;
+    private int pending;
+
+    public NewsFeedCache(ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        this.objectMapper = objectMapper;
+        this.hits = meterRegistry.counter("news.feed.cache.requests", "result", "hit");
+        this.misses = meterRegistry.counter("news.feed.cache.requests", "result", "miss");
+    }
+
+    public Feed get(Supplier<?> loader) {
+        synchronized (this) {
+            if (feed != null) {
+                hits.increment();
+                return feed;
+            }
+        }
+        synchronized (buildLock) {
+            long started;
+            synchronized (this) {
+                if (feed != null) {
+                    hits.increment();
+                    return feed;
+                }
+                started = version;
+            }
+            misses.increment();
+            Feed built = serialize(loader.get());
+            synchronized (this) {
+                if (version == started && pending == 0) {
+                    feed = built;
+                }
+            }
+            return built;
+        }
+    }
+
+    /**
+     * Новость создана, изменена или удалена; вызывается внутри транзакции. После коммита лента собирается
+     * заново через loader.
+     */
+    public void onNewsChanged(Supplier<?> loader) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            invalidate();
+            rebuild(loader);
+            return;
+        }
+        synchronized (this) {
+            pending++;
+            invalidate();
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                synchronized (NewsFeedCache.this) {
+                    pending--;
+                    invalidate();
+                }
+                if (status == STATUS_COMMITTED) {
+                    rebuild(loader);
+                }
+            }
+        });
+    }
+
+    @EventListener
+    public void onVariantsReady(ImageVariantService.VariantsReady event) {
+        invalidate();
+    }
+
+    private synchronized void invalidate() {
+        feed = null;
+        version++;
+    }
+
+    private void rebuild(Supplier<?> loader) {
+        try {
+            get(loader);
+        } catch (RuntimeException e) {
+            logger.warn("News feed rebuild failed, the next request will retry", e);
+        }
+    }
+
+    private Feed serialize(Object body) {
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(body);
+            ByteArrayOutputStream gzip = new ByteArrayOutputStream(json.length / 4 + 64);
+            try (GZIPOutputStream out = new GZIPOutputStream(gzip)) {
+                out.write(json);
+            }
+            String hash = DigestUtils.md5DigestAsHex(json);
+            // Сжатое и несжатое представления разные, поэтому и сильные ETag у них разные
+            return new Feed(json, gzip.toByteArray(), "\"" + hash + "\"", "\"" + hash + "-gzip\"",
+                    System.currentTimeMillis() / 1000 * 1000);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class Feed {
+        private final byte[] json;
+        private final byte[] gzip;
+        private final String etag;
+        private final String gzipEtag;
+        private final long lastModified;
+    }
+}
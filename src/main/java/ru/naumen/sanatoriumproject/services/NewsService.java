@@ -3,8 +3,9 @@ package ru.naumen.sanatoriumproject.services;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
-import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import org.springframework.web.util.UriComponentsBuilder;
 import ru.naumen.sanatoriumproject.dtos.NewsCreateDTO;
 import ru.naumen.sanatoriumproject.dtos.NewsDTO;
 import ru.naumen.sanatoriumproject.models.News;
@@ -13,6 +14,8 @@ import ru.naumen.sanatoriumproject.repositories.NewsRepository;
 import java.io.IOException;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 import java.util.stream.Collectors;
 
 @Service
@@ -20,26 +23,41 @@ import java.util.stream.Collectors;
 public class NewsService {
     private final NewsRepository newsRepository;
     private final FileStorageService fileStorageService;
+    private final ImageVariantService imageVariantService;
+    private final NewsFeedCache newsFeedCache;
 
     @Value("${file.allowed-types}")
     private List<String> allowedFileTypes;
 
+    // Адрес картинок берётся из настроек, а не из заголовков запроса: лента с ними кэшируется для всех
+    @Value("${news.image.base-url:}")
+    private String imageBaseUrl;
+
     public List<NewsDTO> getAllNews() {
         return newsRepository.findAllByOrderByCreatedAtDesc().stream()
                 .map(this::convertToDto)
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Лента для GET /api/news из кэша; в БД она идёт только после изменения новостей.
+     */
+    public NewsFeedCache.Feed getFeed() {
+        return newsFeedCache.get(this::getAllNews);
+    }
+
     public NewsDTO getNewsById(Long id) {
         News news = newsRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("News not found with id: " + id));
         return convertToDto(news);
     }
 
+    @Transactional
     public NewsDTO createNews(NewsCreateDTO newsCreateDTO) throws IOException {
         validateFile(newsCreateDTO.getImageFile());
 
         String fileName = fileStorageService.storeFile(newsCreateDTO.getImageFile());
+        imageVariantService.generateAsync(fileName);
 
         News news = new News();
         news.setTitle(newsCreateDTO.getTitle());
@@ -47,9 +65,11 @@ public class NewsService {
         news.setImagePath(fileName);
 
         News savedNews = newsRepository.save(news);
+        newsFeedCache.onNewsChanged(this::getAllNews);
         return convertToDto(savedNews);
     }
 
+    @Transactional
     public NewsDTO updateNews(Long id, NewsCreateDTO newsCreateDTO) throws IOException {
         News existingNews = newsRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("News not found with id: " + id));
@@ -57,6 +77,8 @@ public class NewsService {
         if (newsCreateDTO.getImageFile() != null && !newsCreateDTO.getImageFile().isEmpty()) {
             validateFile(newsCreateDTO.getImageFile());
             String fileName = fileStorageService.storeFile(newsCreateDTO.getImageFile());
+            imageVariantService.generateAsync(fileName);
+            fileStorageService.release(existingNews.getImagePath());
             existingNews.setImagePath(fileName);
         }
 
@@ -64,13 +86,17 @@ public class NewsService {
         existingNews.setContent(newsCreateDTO.getContent());
 
         News updatedNews = newsRepository.save(existingNews);
+        newsFeedCache.onNewsChanged(this::getAllNews);
         return convertToDto(updatedNews);
     }
 
+    @Transactional
     public void deleteNews(Long id) {
         News news = newsRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("News not found with id: " + id));
         newsRepository.delete(news);
+        fileStorageService.release(news.getImagePath());
+        newsFeedCache.onNewsChanged(this::getAllNews);
     }
 
     private void validateFile(MultipartFile file) {
@@ -90,12 +116,18 @@ public class NewsService {
         dto.setContent(news.getContent());
         dto.setCreatedAt(news.getCreatedAt());
 
-        String imageUrl = ServletUriComponentsBuilder.fromCurrentContextPath()
+        dto.setImageUrl(imageUrl(news.getImagePath()));
+        Map<Integer, String> variants = new TreeMap<>();
+        imageVariantService.readyVariants(news.getImagePath())
+                .forEach((width, fileName) -> variants.put(width, imageUrl(fileName)));
+        dto.setImageVariants(variants);
+        return dto;
+    }
+
+    private String imageUrl(String fileName) {
+        return UriComponentsBuilder.fromUriString(imageBaseUrl)
                 .path("/uploads/news/")
-                .path(news.getImagePath())
+                .path(fileName)
                 .toUriString();
-
-        dto.setImageUrl(imageUrl);
-        return dto;
     }
 }
\ No newline at end of file
@@ -1,19 +1,26 @@
 package ru.naumen.sanatoriumproject.services;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.server.ResponseStatusException;
+import ru.naumen.sanatoriumproject.dtos.AppointmentDTO;
+import ru.naumen.sanatoriumproject.dtos.ChangeEventDTO;
+import ru.naumen.sanatoriumproject.dtos.ProcedureCompletionBatchDTO;
 import ru.naumen.sanatoriumproject.dtos.ProcedureCompletionDTO;
+import ru.naumen.sanatoriumproject.dtos.ProcedureCompletionResultDTO;
 import ru.naumen.sanatoriumproject.models.*;
 import ru.naumen.sanatoriumproject.repositories.AppointmentRepository;
 import ru.naumen.sanatoriumproject.repositories.ProcedureCompletionRepository;
-import ru.naumen.sanatoriumproject.repositories.StaffCabinetRepository;
-import ru.naumen.sanatoriumproject.repositories.UserRepository;
+import ru.naumen.sanatoriumproject.security.CheckInToken;
+import ru.naumen.sanatoriumproject.security.CheckInTokenUtils;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.util.List;
+import java.util.*;
 import java.util.stream.Collectors;
 
 @Service
@@ -21,33 +28,204 @@ import java.util.stream.Collectors;
 public class ProcedureCompletionService {
     private final ProcedureCompletionRepository completionRepository;
     private final AppointmentRepository appointmentRepository;
-    private final StaffCabinetRepository staffCabinetRepository;
-    private final UserRepository userRepository;
+    private final StaffCabinetAccessMatrix accessMatrix;
+    private final ApplicationEventPublisher eventPublisher;
+    private final CompletionStatsService statsService;
+    private final CheckInTokenUtils checkInTokenUtils;
+    private final UserProfileCache profileCache;
 
     @Transactional
     public ProcedureCompletionDTO markProcedureAsCompleted(Long appointmentId, Long userId, String notes) {
-        Appointment appointment = appointmentRepository.findById(appointmentId)
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Appointment not found"));
+        List<AppointmentRepository.AppointmentScope> scopes =
+                appointmentRepository.findScopesByIds(List.of(appointmentId));
 
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found"));
+        if (scopes.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Appointment not found");
+        }
+        AppointmentRepository.AppointmentScope scope = scopes.get(0);
 
         // Проверка что медсестра имеет доступ к кабинету
-        boolean hasAccess = staffCabinetRepository.existsByUserIdAndCabinetId(
-                userId, appointment.getProcedure().getCabinet().getId());
+        if (!accessMatrix.hasAccess(userId, scope.getCabinetId())) {
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "User doesn't have access to this cabinet");
+        }
+
+        Optional<Long> inserted = completionRepository.insertIfAbsent(appointmentId, userId, LocalDateTime.now(), notes);
+        Long completionId;
+        if (inserted.isPresent()) {
+            completionId = inserted.get();
+            statsService.onCompletionsCreated(scopes);
+            profileCache.onUserChanged(scope.getStudentId());
+            eventPublisher.publishEvent(new ChangeEventDTO(ChangeEventDTO.Type.COMPLETION_CREATED,
+                    appointmentId, completionId, scope.getCabinetId(), scope.getShiftId()));
+        } else {
+            // Повторная отметка: возвращаем уже существующую
+            completionId = completionRepository.findIdByAppointmentId(appointmentId)
+                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Completion not found"));
+        }
+        ProcedureCompletion completion = completionRepository.findByIdWithDetails(completionId)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Completion not found"));
+        return convertToDto(completion);
+    }
+
+    @Transactional
+    public List<ProcedureCompletionResultDTO> markProceduresAsCompleted(ProcedureCompletionBatchDTO batchDTO) {
+        if (batchDTO.getUserId() == null || batchDTO.getAppointmentIds() == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "userId and appointmentIds are required");
+        }
+
+        Set<Long> appointmentIds = new LinkedHashSet<>(batchDTO.getAppointmentIds());
+        appointmentIds.remove(null);
+        if (appointmentIds.isEmpty()) {
+            return List.of();
+        }
+
+        Map<Long, AppointmentRepository.AppointmentScope> scopes = new HashMap<>();
+        appointmentRepository.findScopesByIds(appointmentIds)
+                .forEach(scope -> scopes.put(scope.getAppointmentId(), scope));
 
-        if (!hasAccess) {
+        Set<Long> allowed = new LinkedHashSet<>();
+        for (Long appointmentId : appointmentIds) {
+            AppointmentRepository.AppointmentScope scope = scopes.get(appointmentId);
+            if (scope != null && accessMatrix.hasAccess(batchDTO.getUserId(), scope.getCabinetId())) {
+                allowed.add(appointmentId);
+            }
+        }
+
+        Set<Long> inserted = allowed.isEmpty() ? Set.of() : completionRepository.insertAllIfAbsent(
+                allowed, batchDTO.getUserId(), LocalDateTime.now(), batchDTO.getNotes());
+        if (!inserted.isEmpty()) {
+            List<AppointmentRepository.AppointmentScope> insertedScopes = inserted.stream()
+                    .map(scopes::get)
+                    .collect(Collectors.toList());
+            statsService.onCompletionsCreated(insertedScopes);
+            profileCache.onUsersChanged(insertedScopes.stream()
+                    .map(AppointmentRepository.AppointmentScope::getStudentId)
+                    .collect(Collectors.toSet()));
+            insertedScopes.forEach(scope -> eventPublisher.publishEvent(new ChangeEventDTO(
+                    ChangeEventDTO.Type.COMPLETION_CREATED,
+                    scope.getAppointmentId(), null, scope.getCabinetId(), scope.getShiftId())));
+        }
+
+        List<ProcedureCompletionResultDTO> results = new ArrayList<>(appointmentIds.size());
+        for (Long appointmentId : appointmentIds) {
+            ProcedureCompletionResultDTO.Status status;
+            if (!scopes.containsKey(appointmentId)) {
+                status = ProcedureCompletionResultDTO.Status.NOT_FOUND;
+            } else if (inserted.contains(appointmentId)) {
+                status = ProcedureCompletionResultDTO.Status.COMPLETED;
+            } else if (allowed.contains(appointmentId)) {
+                status = ProcedureCompletionResultDTO.Status.ALREADY_COMPLETED;
+            } else {
+                status = ProcedureCompletionResultDTO.Status.FORBIDDEN;
+            }
+            results.add(new ProcedureCompletionResultDTO(appointmentId, status));
+        }
+        return results;
+    }
+
+    // Токен сверяется с текущей записью: после переноса, удаления или смены процедуры он больше не действует
+    @Transactional
+    public ProcedureCompletionResultDTO markProcedureAsCompletedByToken(String token, Long userId, String notes) {
+        CheckInToken checkIn = verifyCheckInToken(token, userId);
+
+        List<AppointmentRepository.AppointmentScope> scopes =
+                appointmentRepository.findScopesByIds(List.of(checkIn.getAppointmentId()));
+        if (scopes.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Appointment not found");
+        }
+        AppointmentRepository.AppointmentScope scope = scopes.get(0);
+        if (!checkIn.matches(scope)) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Check-in token no longer matches the appointment");
+        }
+
+        Optional<Long> inserted;
+        try {
+            inserted = completionRepository.insertIfAbsent(checkIn.getAppointmentId(), userId, LocalDateTime.now(), notes);
+        } catch (DataIntegrityViolationException e) {
+            // Запись удалена после проверки
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Appointment not found");
+        }
+        if (inserted.isEmpty()) {
+            return new ProcedureCompletionResultDTO(checkIn.getAppointmentId(),
+                    ProcedureCompletionResultDTO.Status.ALREADY_COMPLETED);
+        }
+
+        statsService.onCompletionsCreated(scopes);
+        profileCache.onUserChanged(scope.getStudentId());
+        eventPublisher.publishEvent(new ChangeEventDTO(ChangeEventDTO.Type.COMPLETION_CREATED,
+                scope.getAppointmentId(), inserted.get(), scope.getCabinetId(), scope.getShiftId()));
+        return new ProcedureCompletionResultDTO(checkIn.getAppointmentId(), ProcedureCompletionResultDTO.Status.COMPLETED);
+    }
+
+    // Проверка подписи, даты и доступа не обращается к БД, поэтому возможна и когда база недоступна
+    public CheckInToken verifyCheckInToken(String token, Long userId) {
+        CheckInToken checkIn = checkInTokenUtils.parseToken(token);
+        if (checkIn == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid check-in token");
+        }
+        if (!checkIn.getAppointmentDate().equals(LocalDate.now())) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Check-in token is not valid today");
+        }
+        if (!accessMatrix.hasAccess(userId, checkIn.getCabinetId())) {
             throw new ResponseStatusException(HttpStatus.FORBIDDEN, "User doesn't have access to this cabinet");
         }
+        return checkIn;
+    }
+
+    // Без БД кабинет записи неизвестен, поэтому в журнал принимаются отметки только медработников,
+    // закреплённых хотя бы за одним кабинетом; доступ к кабинету самой записи проверяется при переносе
+    public void verifyCanJournal(Long userId) {
+        if (accessMatrix.getCabinetIds(userId).length == 0) {
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "User doesn't have access to any cabinet");
+        }
+    }
+
+    /**
+     * Перенос отметок из локального журнала. Повтор одной и той же записи ничего не меняет:
+     * на запись приходится не больше одной отметки, поэтому повторное применение порции безопасно.
+     *
+     * @return отметки, отклонённые из-за отсутствующей записи или отсутствия доступа к кабинету
+     */
+    @Transactional
+    public List<CompletionJournal.Entry> replayJournaled(List<CompletionJournal.Entry> entries) {
+        Map<Long, CompletionJournal.Entry> byAppointment = new LinkedHashMap<>();
+        entries.forEach(entry -> byAppointment.putIfAbsent(entry.getAppointmentId(), entry));
 
-        ProcedureCompletion completion = new ProcedureCompletion();
-        completion.setAppointment(appointment);
-        completion.setCompletedAt(LocalDateTime.now());
-        completion.setCompletedBy(user);
-        completion.setNotes(notes);
+        Map<Long, AppointmentRepository.AppointmentScope> scopes = new HashMap<>();
+        appointmentRepository.findScopesByIds(byAppointment.keySet())
+                .forEach(scope -> scopes.put(scope.getAppointmentId(), scope));
 
-        ProcedureCompletion saved = completionRepository.save(completion);
-        return convertToDto(saved);
+        List<CompletionJournal.Entry> allowed = new ArrayList<>();
+        List<CompletionJournal.Entry> rejected = new ArrayList<>();
+        for (CompletionJournal.Entry entry : byAppointment.values()) {
+            AppointmentRepository.AppointmentScope scope = scopes.get(entry.getAppointmentId());
+            if (scope != null && accessMatrix.hasAccess(entry.getCompletedById(), scope.getCabinetId())) {
+                allowed.add(entry);
+            } else {
+                rejected.add(entry);
+            }
+        }
+
+        Set<Long> inserted = allowed.isEmpty() ? Set.of() : completionRepository.insertAllIfAbsent(allowed);
+        if (!inserted.isEmpty()) {
+            List<AppointmentRepository.AppointmentScope> insertedScopes = inserted.stream()
+                    .map(scopes::get)
+                    .collect(Collectors.toList());
+            statsService.onCompletionsCreated(insertedScopes);
+            profileCache.onUsersChanged(insertedScopes.stream()
+                    .map(AppointmentRepository.AppointmentScope::getStudentId)
+                    .collect(Collectors.toSet()));
+            insertedScopes.forEach(scope -> eventPublisher.publishEvent(new ChangeEventDTO(
+                    ChangeEventDTO.Type.COMPLETION_CREATED,
+                    scope.getAppointmentId(), null, scope.getCabinetId(), scope.getShiftId())));
+        }
+        return rejected;
+    }
+
+    public String generateCheckInToken(AppointmentDTO appointment) {
+        return checkInTokenUtils.generateToken(new CheckInToken(appointment.getId(), appointment.getCabinetId(),
+                appointment.getShiftId(), appointment.getStudentId(), appointment.getProcedureId(),
+                appointment.getAppointmentDate()));
     }
 
     public List<ProcedureCompletionDTO> getCompletionsByAppointment(Long appointmentId) {
@@ -71,6 +249,17 @@ public class ProcedureCompletionService {
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Отметки гостя по нескольким сменам одним запросом; в ключе — смена записи.
+     */
+    public Map<Long, List<ProcedureCompletionDTO>> getCompletionsByUserGroupedByShift(Long userId,
+                                                                                      Collection<Long> shiftIds) {
+        return completionRepository.findByStudentIdAndShiftIdsWithDetails(userId, shiftIds)
+                .stream()
+                .collect(Collectors.groupingBy(completion -> completion.getAppointment().getShift().getId(),
+                        Collectors.mapping(this::convertToDto, Collectors.toList())));
+    }
+
     private ProcedureCompletionDTO convertToDto(ProcedureCompletion completion) {
         ProcedureCompletionDTO dto = new ProcedureCompletionDTO();
         dto.setId(completion.getId());
@@ -17,6 +17,8 @@ import java.util.stream.Collectors;
 public class ProcedureService {
     private final ProcedureRepository procedureRepository;
     private final CabinetRepository cabinetRepository;
+    private final UserProfileCache profileCache;
+    private final CompletionStatsService completionStatsService;
 
     public List<ProcedureDTO> getAllProcedures() {
         return procedureRepository.findAllByOrderByNameAsc().stream()
@@ -58,9 +60,15 @@ public class ProcedureService {
         Cabinet cabinet = cabinetRepository.findById(procedureDTO.getCabinetId())
                 .orElseThrow(() -> new RuntimeException("Cabinet not found"));
 
+        Long oldCabinetId = procedure.getCabinet().getId();
+        if (!oldCabinetId.equals(cabinet.getId())) {
+            completionStatsService.onProcedureCabinetChanged(id, oldCabinetId, cabinet.getId());
+        }
+
         procedure.setName(procedureDTO.getName());
         procedure.setCabinet(cabinet);
         procedure.setDefaultDuration(procedureDTO.getDefaultDuration());
+        profileCache.onSharedDataChanged();
 
         Procedure updatedProcedure = procedureRepository.save(procedure);
         return convertToDto(updatedProcedure);
@@ -71,6 +79,7 @@ public class ProcedureService {
         if (!procedureRepository.existsById(id)) {
             throw new RuntimeException("Procedure not found");
         }
+        profileCache.onSharedDataChanged();
         procedureRepository.deleteById(id);
     }
 
@@ -5,12 +5,16 @@ import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.server.ResponseStatusException;
+import ru.naumen.sanatoriumproject.dtos.GroupRegistrationDTO;
+import ru.naumen.sanatoriumproject.dtos.GroupRegistrationResultDTO;
 import ru.naumen.sanatoriumproject.dtos.RegistrationDTO;
+import ru.naumen.sanatoriumproject.dtos.RoomAllocationResultDTO;
 import ru.naumen.sanatoriumproject.models.*;
 import ru.naumen.sanatoriumproject.repositories.*;
 
-import java.util.List;
-import java.util.Optional;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
 import java.util.stream.Collectors;
 
 @Service
@@ -20,35 +24,50 @@ public class RegistrationService {
     private final UserRepository userRepository;
     private final RoomRepository roomRepository;
     private final ShiftRepository shiftRepository;
+    private final RoomOccupancyIndex occupancyIndex;
+    private final ShiftRosterCache rosterCache;
+    private final UserProfileCache profileCache;
 
     @Transactional
     public RegistrationDTO registerUser(RegistrationDTO registrationDTO) {
         User user = userRepository.findById(registrationDTO.getUserId())
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found"));
 
+        Shift shift = shiftRepository.findById(registrationDTO.getShiftId())
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Shift not found"));
+
+        Optional<Registration> existingRegistration = registrationRepository
+                .findByUserIdAndShiftId(user.getId(), shift.getId());
+
+        // Подсчёт под блокировкой комнаты видит все уже закоммиченные заселения в неё
         Room room = registrationDTO.getRoomId() != null ?
-                roomRepository.findById(registrationDTO.getRoomId())
+                roomRepository.findByIdForUpdate(registrationDTO.getRoomId())
                         .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Room not found")) :
                 null;
 
-        Shift shift = shiftRepository.findById(registrationDTO.getShiftId())
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Shift not found"));
-
-        if (room != null && registrationRepository.countByRoomIdAndShiftId(room.getId(), shift.getId()) >= room.getCapacity()) {
+        boolean alreadyInRoom = room != null && existingRegistration
+                .map(registration -> registration.getRoom() != null && registration.getRoom().getId().equals(room.getId()))
+                .orElse(false);
+        if (room != null && !alreadyInRoom &&
+                registrationRepository.countByRoomIdAndShiftId(room.getId(), shift.getId()) >= room.getCapacity()) {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Room is full");
         }
 
-        Optional<Registration> existingRegistration = registrationRepository
-                .findByUserIdAndShiftId(user.getId(), shift.getId());
-
+        profileCache.onUserChanged(user.getId());
         if (existingRegistration.isPresent()) {
             Registration registration = existingRegistration.get();
+            rosterCache.onShiftChanged(shift.getId());
+            occupancyIndex.onRegistrationChanged(shift.getId(),
+                    registration.getRoom() != null ? registration.getRoom().getId() : null,
+                    room != null ? room.getId() : null);
             registration.setRoom(room);
             registration.setCheckInDate(registrationDTO.getCheckInDate());
             registration.setCheckOutDate(registrationDTO.getCheckOutDate());
             Registration updated = registrationRepository.save(registration);
             return convertToDTO(updated);
         } else {
+            rosterCache.onShiftChanged(shift.getId());
+            occupancyIndex.onRegistrationChanged(shift.getId(), null, room != null ? room.getId() : null);
             Registration registration = new Registration(user, room, shift);
             registration.setCheckInDate(registrationDTO.getCheckInDate());
             registration.setCheckOutDate(registrationDTO.getCheckOutDate());
@@ -57,12 +76,173 @@ public class RegistrationService {
         }
     }
 
+    /**
+     * Заселение группы в одну смену одной транзакцией. Пользователи, комнаты и заселённость проверяются
+     * несколькими запросами на всю группу, регистрации записываются одним upsert.
+     * Строки, не прошедшие проверку, пропускаются и возвращаются со статусом причины.
+     */
+    @Transactional
+    public List<GroupRegistrationResultDTO> registerGroup(GroupRegistrationDTO groupDTO) {
+        if (groupDTO.getShiftId() == null || groupDTO.getMembers() == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "shiftId and members are required");
+        }
+        Long shiftId = groupDTO.getShiftId();
+        if (!shiftRepository.existsById(shiftId)) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Shift not found");
+        }
+
+        List<GroupRegistrationDTO.Member> members = groupDTO.getMembers().stream()
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+        Set<Long> userIds = new HashSet<>();
+        Set<Long> roomIds = new TreeSet<>();
+        for (GroupRegistrationDTO.Member member : members) {
+            if (member.getUserId() != null) {
+                userIds.add(member.getUserId());
+            }
+            if (member.getRoomId() != null) {
+                roomIds.add(member.getRoomId());
+            }
+        }
+        if (userIds.isEmpty()) {
+            return members.stream()
+                    .map(member -> new GroupRegistrationResultDTO(member.getUserId(), member.getRoomId(),
+                            GroupRegistrationResultDTO.Status.USER_NOT_FOUND))
+                    .collect(Collectors.toList());
+        }
+
+        Set<Long> existingUsers = new HashSet<>(userRepository.findExistingIds(userIds));
+        Map<Long, Integer> capacities = new HashMap<>();
+        Map<Long, Integer> occupancy = new HashMap<>();
+        if (!roomIds.isEmpty()) {
+            // Блокировки комнат до подсчёта, как и при одиночном заселении
+            roomRepository.findAllByIdForUpdate(roomIds)
+                    .forEach(room -> capacities.put(room.getId(), room.getCapacity()));
+            registrationRepository.countByShiftIdGroupedByRoom(shiftId, capacities.keySet())
+                    .forEach(count -> occupancy.put(count.getRoomId(), count.getOccupancy().intValue()));
+        }
+        Map<Long, Long> currentRooms = new HashMap<>();
+        registrationRepository.findPlacements(shiftId, existingUsers)
+                .forEach(placement -> currentRooms.put(placement.getUserId(), placement.getRoomId()));
+
+        List<GroupRegistrationResultDTO> results = new ArrayList<>(members.size());
+        Set<Long> seenUsers = new HashSet<>();
+        List<Long> acceptedUsers = new ArrayList<>();
+        List<Long> acceptedRooms = new ArrayList<>();
+        for (GroupRegistrationDTO.Member member : members) {
+            Long userId = member.getUserId();
+            Long roomId = member.getRoomId();
+            GroupRegistrationResultDTO.Status status;
+            if (userId == null || !existingUsers.contains(userId)) {
+                status = GroupRegistrationResultDTO.Status.USER_NOT_FOUND;
+            } else if (!seenUsers.add(userId)) {
+                status = GroupRegistrationResultDTO.Status.DUPLICATE;
+            } else if (roomId != null && !capacities.containsKey(roomId)) {
+                status = GroupRegistrationResultDTO.Status.ROOM_NOT_FOUND;
+            } else {
+                Long currentRoom = currentRooms.get(userId);
+                boolean moves = roomId != null && !roomId.equals(currentRoom);
+                if (moves && occupancy.getOrDefault(roomId, 0) >= capacities.get(roomId)) {
+                    status = GroupRegistrationResultDTO.Status.ROOM_FULL;
+                } else {
+                    if (moves) {
+                        occupancy.merge(roomId, 1, Integer::sum);
+                        if (currentRoom != null) {
+                            occupancy.computeIfPresent(currentRoom, (id, count) -> count - 1);
+                        }
+                    } else {
+                        // Без комнаты в заявке уже назначенная сохраняется, как и в upsert
+                        roomId = currentRoom;
+                    }
+                    occupancyIndex.onRegistrationChanged(shiftId, currentRoom, roomId);
+                    acceptedUsers.add(userId);
+                    acceptedRooms.add(roomId);
+                    status = GroupRegistrationResultDTO.Status.REGISTERED;
+                }
+            }
+            results.add(new GroupRegistrationResultDTO(userId, roomId, status));
+        }
+
+        if (!acceptedUsers.isEmpty()) {
+            rosterCache.onShiftChanged(shiftId);
+            profileCache.onUsersChanged(acceptedUsers);
+            registrationRepository.upsertAll(shiftId, acceptedUsers, acceptedRooms,
+                    groupDTO.getCheckInDate(), groupDTO.getCheckOutDate());
+        }
+        return results;
+    }
+
+    /**
+     * Расселяет все регистрации смены без комнаты (см. {@link RoomAllocator}) и записывает результат одним UPDATE.
+     * Все комнаты блокируются на время расселения, как при одиночном и групповом заселении.
+     */
+    @Transactional
+    public RoomAllocationResultDTO allocateRooms(Long shiftId) {
+        Shift shift = shiftRepository.findById(shiftId)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Shift not found"));
+
+        List<Room> rooms = roomRepository.findAllForUpdate();
+        Map<Long, Integer> roomIndexes = new HashMap<>();
+        int[] capacities = new int[rooms.size()];
+        for (int i = 0; i < rooms.size(); i++) {
+            roomIndexes.put(rooms.get(i).getId(), i);
+            capacities[i] = rooms.get(i).getCapacity();
+        }
+
+        LocalDate start = shift.getStartDate();
+        int days = (int) ChronoUnit.DAYS.between(start, shift.getEndDate());
+        RoomAllocator allocator = new RoomAllocator(capacities);
+        List<Long> pending = new ArrayList<>();
+        List<Long> pendingUsers = new ArrayList<>();
+        List<Integer> pendingFrom = new ArrayList<>();
+        List<Integer> pendingTo = new ArrayList<>();
+        for (RegistrationRepository.Stay stay : registrationRepository.findStays(shiftId)) {
+            if (stay.getRoomId() != null) {
+                allocator.occupy(roomIndexes.get(stay.getRoomId()));
+            } else {
+                // Даты нужны только чтобы селить вместе приехавших одновременно
+                pending.add(stay.getId());
+                pendingUsers.add(stay.getUserId());
+                pendingFrom.add(stay.getCheckInDate() != null ? (int) ChronoUnit.DAYS.between(start, stay.getCheckInDate()) : 0);
+                pendingTo.add(stay.getCheckOutDate() != null ? (int) ChronoUnit.DAYS.between(start, stay.getCheckOutDate()) : days);
+            }
+        }
+
+        int[] assigned = allocator.allocate(pendingFrom.stream().mapToInt(Integer::intValue).toArray(),
+                pendingTo.stream().mapToInt(Integer::intValue).toArray());
+        List<Long> registrationIds = new ArrayList<>();
+        List<Long> userIds = new ArrayList<>();
+        List<Long> roomIds = new ArrayList<>();
+        List<Long> unassigned = new ArrayList<>();
+        for (int i = 0; i < assigned.length; i++) {
+            if (assigned[i] >= 0) {
+                registrationIds.add(pending.get(i));
+                userIds.add(pendingUsers.get(i));
+                roomIds.add(rooms.get(assigned[i]).getId());
+            } else {
+                unassigned.add(pending.get(i));
+            }
+        }
+
+        if (!registrationIds.isEmpty()) {
+            registrationRepository.assignRooms(registrationIds, roomIds);
+            rosterCache.onShiftChanged(shiftId);
+            occupancyIndex.onShiftChanged(shiftId);
+            profileCache.onUsersChanged(userIds);
+        }
+        return new RoomAllocationResultDTO(registrationIds.size(), unassigned);
+    }
+
     public List<RegistrationDTO> getUserRegistrations(Long userId) {
         return registrationRepository.findByUserId(userId).stream()
                 .map(this::convertToDTO)
                 .collect(Collectors.toList());
     }
 
+    public ShiftRosterCache.Roster getShiftRoster(Long shiftId) {
+        return rosterCache.get(shiftId, () -> getRegistrationsByShift(shiftId));
+    }
+
     public List<RegistrationDTO> getRegistrationsByShift(Long shiftId) {
         return registrationRepository.findByShiftIdWithDetails(shiftId).stream()
                 .map(this::convertToDTO)
@@ -71,10 +251,13 @@ public class RegistrationService {
 
     @Transactional
     public void unregisterUser(Long userId, Long shiftId) {
-        if (!registrationRepository.existsByUserIdAndShiftId(userId, shiftId)) {
-            throw new ResponseStatusException(HttpStatus.NOT_FOUND,
-                    "Registration not found for user " + userId + " and shift " + shiftId);
-        }
+        Registration registration = registrationRepository.findByUserIdAndShiftId(userId, shiftId)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND,
+                        "Registration not found for user " + userId + " and shift " + shiftId));
+        rosterCache.onShiftChanged(shiftId);
+        profileCache.onUserChanged(userId);
+        occupancyIndex.onRegistrationChanged(shiftId,
+                registration.getRoom() != null ? registration.getRoom().getId() : null, null);
         registrationRepository.deleteByUserIdAndShiftId(userId, shiftId);
     }
 
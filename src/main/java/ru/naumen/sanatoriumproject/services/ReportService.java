@@ -0,0 +1,111 @@
+package ru.naumen.sanatoriumproject.services;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+import ru.naumen.sanatoriumproject.repositories.ReportRepository;
+import ru.naumen.sanatoriumproject.repositories.ShiftRepository;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Отчёты регистратуры по смене в CSV и XLSX. Строки идут из курсора БД прямо в выходной поток,
+ * поэтому отчёт на десятки тысяч строк не держится в памяти целиком.
+ */
+@Service
+public class ReportService {
+    private final ReportRepository reportRepository;
+    private final ShiftRepository shiftRepository;
+    private final TransactionTemplate readOnlyTransaction;
+
+    public ReportService(ReportRepository reportRepository,
+                         ShiftRepository shiftRepository,
+                         PlatformTransactionManager transactionManager) {
+        this.reportRepository = reportRepository;
+        this.shiftRepository = shiftRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    public enum Report {
+        SHIFT_ROSTER("roster", new String[]{"ФИО", "Телефон", "Email", "Комната", "Заезд", "Выезд"}),
+        ROOMS("rooms", new String[]{"Комната", "Вместимость", "Заселено", "Описание"}),
+        APPOINTMENTS("appointments", new String[]{"Дата", "Студент", "Процедура", "Кабинет", "Врач", "Примечание"});
+
+        private final String fileName;
+        private final String[] columns;
+
+        Report(String fileName, String[] columns) {
+            this.fileName = fileName;
+            this.columns = columns;
+        }
+    }
+
+    public enum Format {
+        CSV("csv", "text/csv; charset=UTF-8"),
+        XLSX("xlsx", "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
+
+        private final String extension;
+        private final String contentType;
+
+        Format(String extension, String contentType) {
+            this.extension = extension;
+            this.contentType = contentType;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public static Format parse(String value) {
+            for (Format format : values()) {
+                if (format.extension.equalsIgnoreCase(value)) {
+                    return format;
+                }
+            }
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unsupported report format: " + value);
+        }
+    }
+
+    /**
+     * Проверяет смену до начала ответа: после первых байт отчёта статус ответа уже не поменять.
+     */
+    public void checkShift(Long shiftId) {
+        if (!shiftRepository.existsById(shiftId)) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Shift not found");
+        }
+    }
+
+    public String fileName(Report report, Long shiftId, Format format) {
+        return report.fileName + "-shift-" + shiftId + "." + format.extension;
+    }
+
+    public void write(Report report, Long shiftId, Format format, OutputStream out) throws IOException {
+        try (ReportWriter writer = format == Format.CSV ? new CsvReportWriter(out) : new XlsxReportWriter(out)) {
+            writer.header(report.columns);
+            Consumer<Object[]> row = values -> {
+                try {
+                    writer.row(values);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            };
+            BiConsumer<Long, Consumer<Object[]>> rows = switch (report) {
+                case SHIFT_ROSTER -> reportRepository::forEachRosterRow;
+                case ROOMS -> reportRepository::forEachRoomRow;
+                case APPOINTMENTS -> reportRepository::forEachAppointmentRow;
+            };
+            try {
+                readOnlyTransaction.executeWithoutResult(status -> rows.accept(shiftId, row));
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
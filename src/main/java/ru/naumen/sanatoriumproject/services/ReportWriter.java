@@ -0,0 +1,18 @@
+package ru.naumen.sanatoriumproject.services;
+
+import java.io.IOException;
+
+/**
+ * Построчная запись отчёта. Строки не накапливаются: записанное уходит в выходной поток или во временный файл.
+ */
+public interface ReportWriter extends AutoCloseable {
+    void header(String... columns) throws IOException;
+
+    void row(Object[] values) throws IOException;
+
+    /**
+     * Дописывает отчёт в выходной поток; сам поток не закрывает.
+     */
+    @Override
+    void close() throws IOException;
+}
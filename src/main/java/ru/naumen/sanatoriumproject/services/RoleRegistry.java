@@ -0,0 +1,69 @@
+package ru.naumen.sanatoriumproject.services;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import ru.naumen.sanatoriumproject.models.ERole;
+import ru.naumen.sanatoriumproject.models.Role;
+import ru.naumen.sanatoriumproject.repositories.RoleRepository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Таблица roles — фиксированный набор, совпадающий с {@link ERole}. Строки читаются один раз при старте,
+ * недостающие создаются; дальше роли выдаются без запросов.
+ */
+@Component
+@RequiredArgsConstructor
+public class RoleRegistry {
+    private static final Logger logger = LoggerFactory.getLogger(RoleRegistry.class);
+
+    private final RoleRepository roleRepository;
+
+    private Map<ERole, Role> roles = Map.of();
+
+    @PostConstruct
+    public void load() {
+        Map<ERole, Role> loaded = new EnumMap<>(ERole.class);
+        roleRepository.findAll().forEach(role -> loaded.put(role.getName(), role));
+
+        List<Role> missing = new ArrayList<>();
+        for (ERole name : ERole.values()) {
+            if (!loaded.containsKey(name)) {
+                missing.add(new Role(name));
+            }
+        }
+        if (!missing.isEmpty()) {
+            logger.info("Creating missing roles {}", missing.stream().map(Role::getName).toList());
+            roleRepository.saveAll(missing).forEach(role -> loaded.put(role.getName(), role));
+        }
+        roles = Collections.unmodifiableMap(loaded);
+    }
+
+    public Role get(ERole name) {
+        return roles.get(name);
+    }
+
+    public Set<Role> resolve(Collection<ERole> names) {
+        Set<Role> resolved = new HashSet<>();
+        for (ERole name : names) {
+            if (name != null) {
+                resolved.add(roles.get(name));
+            }
+        }
+        return resolved;
+    }
+
+    public List<Role> getAll() {
+        return new ArrayList<>(roles.values());
+    }
+}
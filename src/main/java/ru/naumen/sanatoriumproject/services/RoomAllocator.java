@@ -0,0 +1,89 @@
+package ru.naumen.sanatoriumproject.services;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Расселение гостей смены по комнатам. Вместимость комнаты ограничивает число регистраций в ней за смену —
+ * то же правило, что при одиночном и групповом заселении, поэтому даты заезда и выезда место не освобождают.
+ * Гости с одинаковыми датами заезда и выезда считаются одной группой; группы расселяются от больших
+ * к меньшим, каждая — в самую тесную комнату, где она помещается целиком (best fit decreasing),
+ * а если такой нет — по самым свободным комнатам, чтобы разбить группу на как можно меньше частей.
+ */
+public class RoomAllocator {
+    private final int[] free;
+
+    public RoomAllocator(int[] capacities) {
+        this.free = capacities.clone();
+    }
+
+    /**
+     * Учитывает гостя, уже заселённого в комнату.
+     */
+    public void occupy(int room) {
+        free[room]--;
+    }
+
+    /**
+     * @param from день заезда каждого гостя от начала смены
+     * @param to   день выезда каждого гостя от начала смены
+     * @return индекс комнаты для каждого гостя или -1, если места не нашлось
+     */
+    public int[] allocate(int[] from, int[] to) {
+        int[] assigned = new int[from.length];
+        Arrays.fill(assigned, -1);
+
+        Map<Long, List<Integer>> groups = new LinkedHashMap<>();
+        for (int i = 0; i < from.length; i++) {
+            groups.computeIfAbsent(((long) from[i] << 32) | (to[i] & 0xffffffffL), key -> new ArrayList<>()).add(i);
+        }
+        // Сначала большие группы, при равном размере — более длинные заезды
+        List<List<Integer>> ordered = new ArrayList<>(groups.values());
+        ordered.sort(Comparator.<List<Integer>>comparingInt(List::size).reversed()
+                .thenComparingInt(group -> from[group.get(0)] - to[group.get(0)]));
+
+        for (List<Integer> group : ordered) {
+            int placed = 0;
+            while (placed < group.size()) {
+                int remaining = group.size() - placed;
+                int room = bestFit(remaining);
+                if (room < 0) {
+                    room = mostFree();
+                    if (room < 0) {
+                        return assigned;
+                    }
+                }
+                int count = Math.min(free[room], remaining);
+                for (int k = 0; k < count; k++) {
+                    assigned[group.get(placed++)] = room;
+                }
+                free[room] -= count;
+            }
+        }
+        return assigned;
+    }
+
+    private int bestFit(int needed) {
+        int best = -1;
+        for (int r = 0; r < free.length; r++) {
+            if (free[r] >= needed && (best < 0 || free[r] < free[best])) {
+                best = r;
+            }
+        }
+        return best;
+    }
+
+    private int mostFree() {
+        int best = -1;
+        for (int r = 0; r < free.length; r++) {
+            if (free[r] > 0 && (best < 0 || free[r] > free[best])) {
+                best = r;
+            }
+        }
+        return best;
+    }
+}
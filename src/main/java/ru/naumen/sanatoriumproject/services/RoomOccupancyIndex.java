@@ -0,0 +1,218 @@
+package ru.naumen.sanatoriumproject.services;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Заселённость комнат по сменам в памяти: для каждой смены roomId → число регистраций.
+ * Смена попадает в индекс из агрегирующего запроса при первом обращении, дальше её держат
+ * в актуальном состоянии изменения регистраций, применяемые после коммита.
+ * Результат загрузки, пересёкшейся с незавершённой транзакцией регистрации, в индекс не попадает:
+ * его снимок мог как не увидеть это изменение, так и учесть его повторно.
+ * Здесь же хранятся календари заселённости по дням; их не пересчитывают, а сбрасывают при любом изменении смены.
+ */
+@Component
+public class RoomOccupancyIndex {
+    private final Map<Long, LongIntMap> shifts = new HashMap<>();
+    private final Map<Long, OccupancyCalendar> calendars = new HashMap<>();
+    // Незавершённые транзакции с изменением регистраций и счётчик завершённых
+    private int pending;
+    private long version;
+
+    public synchronized boolean isLoaded(Long shiftId) {
+        return shifts.containsKey(shiftId);
+    }
+
+    /**
+     * @return заселённость комнат в порядке {@code roomIds} или null, если смена ещё не загружена
+     */
+    public synchronized int[] getOccupancy(Long shiftId, long[] roomIds) {
+        LongIntMap rooms = shifts.get(shiftId);
+        if (rooms == null) {
+            return null;
+        }
+        int[] occupancy = new int[roomIds.length];
+        for (int i = 0; i < roomIds.length; i++) {
+            occupancy[i] = rooms.get(roomIds[i]);
+        }
+        return occupancy;
+    }
+
+    /**
+     * Метка для {@link #install}; вызывается до запроса, результат которого будет загружен.
+     */
+    public synchronized long beginLoad() {
+        return pending > 0 ? -1 : version;
+    }
+
+    public synchronized void install(Long shiftId, long stamp, long[] roomIds, int[] occupancy) {
+        if (stamp < 0 || pending > 0 || stamp != version || shifts.containsKey(shiftId)) {
+            return;
+        }
+        LongIntMap rooms = new LongIntMap(roomIds.length);
+        for (int i = 0; i < roomIds.length; i++) {
+            if (occupancy[i] != 0) {
+                rooms.add(roomIds[i], occupancy[i]);
+            }
+        }
+        shifts.put(shiftId, rooms);
+    }
+
+    public synchronized OccupancyCalendar getCalendar(Long shiftId) {
+        return calendars.get(shiftId);
+    }
+
+    public synchronized void installCalendar(Long shiftId, long stamp, OccupancyCalendar calendar) {
+        if (stamp < 0 || pending > 0 || stamp != version) {
+            return;
+        }
+        calendars.put(shiftId, calendar);
+    }
+
+    /**
+     * Регистрация в смене переезжает из {@code fromRoomId} в {@code toRoomId}; любой из них может быть null.
+     * Вызывается внутри транзакции, изменение применяется после её коммита.
+     */
+    public void onRegistrationChanged(Long shiftId, Long fromRoomId, Long toRoomId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            evict(shiftId);
+            return;
+        }
+        synchronized (this) {
+            pending++;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                synchronized (RoomOccupancyIndex.this) {
+                    pending--;
+                    version++;
+                    if (status == STATUS_COMMITTED) {
+                        calendars.remove(shiftId);
+                    }
+                    LongIntMap rooms = shifts.get(shiftId);
+                    if (status == STATUS_COMMITTED && rooms != null) {
+                        if (fromRoomId != null) {
+                            rooms.add(fromRoomId, -1);
+                        }
+                        if (toRoomId != null) {
+                            rooms.add(toRoomId, 1);
+                        }
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Регистрации смены меняются массово; после коммита смена будет загружена заново.
+     */
+    public void onShiftChanged(Long shiftId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            evict(shiftId);
+            return;
+        }
+        synchronized (this) {
+            pending++;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                synchronized (RoomOccupancyIndex.this) {
+                    pending--;
+                    version++;
+                    shifts.remove(shiftId);
+                    calendars.remove(shiftId);
+                }
+            }
+        });
+    }
+
+    public synchronized void evict(Long shiftId) {
+        shifts.remove(shiftId);
+        calendars.remove(shiftId);
+        version++;
+    }
+
+    /**
+     * Заселённость по дням смены начиная с {@code start}: для комнаты — число гостей в каждый из {@code days} дней.
+     * Комнат без гостей в {@code rooms} нет.
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class OccupancyCalendar {
+        private final LocalDate start;
+        private final int days;
+        private final Map<Long, int[]> rooms;
+    }
+
+    // Открытая адресация без упаковки: ключи — положительные id комнат, 0 обозначает пустую ячейку
+    private static final class LongIntMap {
+        private long[] keys;
+        private int[] values;
+        private int size;
+
+        LongIntMap(int expected) {
+            int capacity = Integer.highestOneBit(Math.max(4, expected * 2 - 1)) << 1;
+            keys = new long[capacity];
+            values = new int[capacity];
+        }
+
+        int get(long key) {
+            int mask = keys.length - 1;
+            for (int i = slot(key, mask); keys[i] != 0; i = (i + 1) & mask) {
+                if (keys[i] == key) {
+                    return values[i];
+                }
+            }
+            return 0;
+        }
+
+        void add(long key, int delta) {
+            int mask = keys.length - 1;
+            int i = slot(key, mask);
+            while (keys[i] != 0 && keys[i] != key) {
+                i = (i + 1) & mask;
+            }
+            if (keys[i] == 0) {
+                keys[i] = key;
+                if (++size * 2 > keys.length) {
+                    values[i] = delta;
+                    rehash();
+                    return;
+                }
+            }
+            values[i] += delta;
+        }
+
+        private void rehash() {
+            long[] oldKeys = keys;
+            int[] oldValues = values;
+            keys = new long[oldKeys.length * 2];
+            values = new int[oldValues.length * 2];
+            int mask = keys.length - 1;
+            for (int j = 0; j < oldKeys.length; j++) {
+                if (oldKeys[j] != 0) {
+                    int i = slot(oldKeys[j], mask);
+                    while (keys[i] != 0) {
+                        i = (i + 1) & mask;
+                    }
+                    keys[i] = oldKeys[j];
+                    values[i] = oldValues[j];
+                }
+            }
+        }
+
+        private static int slot(long key, int mask) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32)) & mask;
+        }
+    }
+}
@@ -1,14 +1,27 @@
 package ru.naumen.sanatoriumproject.services;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
+import ru.naumen.sanatoriumproject.dtos.OccupancyCalendarDTO;
 import ru.naumen.sanatoriumproject.dtos.RoomDTO;
 import ru.naumen.sanatoriumproject.models.Room;
+import ru.naumen.sanatoriumproject.models.Shift;
+import ru.naumen.sanatoriumproject.repositories.CascadeDeleteRepository;
 import ru.naumen.sanatoriumproject.repositories.RegistrationRepository;
 import ru.naumen.sanatoriumproject.repositories.RoomRepository;
+import ru.naumen.sanatoriumproject.repositories.ShiftRepository;
 
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @Service
@@ -16,6 +29,11 @@ import java.util.stream.Collectors;
 public class RoomService {
     private final RoomRepository roomRepository;
     private final RegistrationRepository registrationRepository;
+    private final ShiftRepository shiftRepository;
+    private final RoomOccupancyIndex occupancyIndex;
+    private final ShiftRosterCache rosterCache;
+    private final UserProfileCache profileCache;
+    private final CascadeDeleteRepository cascadeDeleteRepository;
 
     @Transactional
     public RoomDTO createRoom(RoomDTO roomDTO) {
@@ -57,29 +75,126 @@ public class RoomService {
         room.setNumber(roomDTO.getNumber());
         room.setCapacity(roomDTO.getCapacity());
         room.setDescription(roomDTO.getDescription());
+        rosterCache.onRosterDataChanged();
+        profileCache.onSharedDataChanged();
 
         Room updatedRoom = roomRepository.save(room);
         return convertToDto(updatedRoom);
     }
 
+    /**
+     * Удаляет комнату; регистрации в ней остаются без комнаты.
+     */
     @Transactional
     public void deleteRoom(Long id) {
         if (!roomRepository.existsById(id)) {
             throw new IllegalArgumentException("Room not found");
         }
-        roomRepository.deleteById(id);
+        rosterCache.onRosterDataChanged();
+        profileCache.onSharedDataChanged();
+        cascadeDeleteRepository.deleteRoom(id).stream()
+                .distinct()
+                .forEach(occupancyIndex::onShiftChanged);
     }
 
     public List<RoomDTO> getAvailableRooms(Long shiftId) {
-        return roomRepository.findAll().stream()
-                .map(room -> {
-                    RoomDTO dto = convertToDto(room);
-                    long occupied = registrationRepository.countByRoomIdAndShiftId(room.getId(), shiftId);
-                    dto.setCurrentOccupancy((int) occupied);
-                    return dto;
-                })
-                .filter(room -> room.getCurrentOccupancy() < room.getCapacity())
-                .collect(Collectors.toList());
+        if (occupancyIndex.isLoaded(shiftId)) {
+            List<Room> rooms = roomRepository.findAll(Sort.by("id"));
+            int[] occupancy = occupancyIndex.getOccupancy(shiftId,
+                    rooms.stream().mapToLong(Room::getId).toArray());
+            List<RoomDTO> available = new ArrayList<>();
+            for (int i = 0; i < rooms.size(); i++) {
+                if (occupancy[i] < rooms.get(i).getCapacity()) {
+                    RoomDTO dto = convertToDto(rooms.get(i));
+                    dto.setCurrentOccupancy(occupancy[i]);
+                    available.add(dto);
+                }
+            }
+            return available;
+        }
+
+        // Смены ещё нет в индексе: берём заселённость агрегирующим запросом и заодно загружаем её
+        long stamp = occupancyIndex.beginLoad();
+        List<RoomRepository.RoomOccupancy> rows = roomRepository.findAllWithOccupancy(shiftId);
+        long[] roomIds = new long[rows.size()];
+        int[] occupancy = new int[rows.size()];
+        List<RoomDTO> available = new ArrayList<>();
+        for (int i = 0; i < rows.size(); i++) {
+            RoomRepository.RoomOccupancy row = rows.get(i);
+            roomIds[i] = row.getId();
+            occupancy[i] = row.getOccupancy().intValue();
+            if (occupancy[i] < row.getCapacity()) {
+                RoomDTO dto = new RoomDTO();
+                dto.setId(row.getId());
+                dto.setNumber(row.getNumber());
+                dto.setCapacity(row.getCapacity());
+                dto.setDescription(row.getDescription());
+                dto.setCurrentOccupancy(occupancy[i]);
+                available.add(dto);
+            }
+        }
+        occupancyIndex.install(shiftId, stamp, roomIds, occupancy);
+        return available;
+    }
+
+    /**
+     * Заселённость каждой комнаты по дням с {@code from} по {@code to} включительно; по умолчанию — вся смена.
+     * Гость занимает место с дня заезда до дня выезда, не включая его.
+     */
+    public OccupancyCalendarDTO getOccupancyCalendar(Long shiftId, LocalDate from, LocalDate to) {
+        Shift shift = shiftRepository.findById(shiftId)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Shift not found"));
+        LocalDate start = shift.getStartDate();
+        int days = (int) Math.max(1, ChronoUnit.DAYS.between(start, shift.getEndDate()));
+
+        int fromDay = from != null ? (int) Math.max(0, ChronoUnit.DAYS.between(start, from)) : 0;
+        int toDay = to != null ? (int) Math.min(days, ChronoUnit.DAYS.between(start, to) + 1) : days;
+        if (fromDay >= toDay) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Date range does not overlap the shift");
+        }
+
+        RoomOccupancyIndex.OccupancyCalendar calendar = occupancyIndex.getCalendar(shiftId);
+        // Календарь, посчитанный до изменения дат смены, не подходит
+        if (calendar == null || !calendar.getStart().equals(start) || calendar.getDays() != days) {
+            long stamp = occupancyIndex.beginLoad();
+            calendar = buildCalendar(shiftId, start, days);
+            occupancyIndex.installCalendar(shiftId, stamp, calendar);
+        }
+
+        List<OccupancyCalendarDTO.RoomDays> rooms = new ArrayList<>();
+        for (Room room : roomRepository.findAll(Sort.by("id"))) {
+            int[] occupancy = calendar.getRooms().get(room.getId());
+            rooms.add(new OccupancyCalendarDTO.RoomDays(room.getId(), room.getNumber(), room.getCapacity(),
+                    occupancy != null ? Arrays.copyOfRange(occupancy, fromDay, toDay) : new int[toDay - fromDay]));
+        }
+        return new OccupancyCalendarDTO(shiftId, start.plusDays(fromDay), start.plusDays(toDay - 1), rooms);
+    }
+
+    // Заезд и выезд каждого гостя отмечаются +1 и -1 в массиве разностей комнаты, префиксные суммы дают заселённость по дням
+    private RoomOccupancyIndex.OccupancyCalendar buildCalendar(Long shiftId, LocalDate start, int days) {
+        Map<Long, int[]> rooms = new HashMap<>();
+        for (RegistrationRepository.Stay stay : registrationRepository.findStays(shiftId)) {
+            if (stay.getRoomId() == null) {
+                continue;
+            }
+            long checkIn = stay.getCheckInDate() != null ? ChronoUnit.DAYS.between(start, stay.getCheckInDate()) : 0;
+            long checkOut = stay.getCheckOutDate() != null ? ChronoUnit.DAYS.between(start, stay.getCheckOutDate()) : days;
+            // Заезд и выезд в один день занимают место на этот день
+            checkOut = Math.max(checkOut, checkIn + 1);
+            int in = (int) Math.min(Math.max(checkIn, 0), days);
+            int out = (int) Math.min(Math.max(checkOut, 0), days);
+            if (in < out) {
+                int[] diff = rooms.computeIfAbsent(stay.getRoomId(), id -> new int[days + 1]);
+                diff[in]++;
+                diff[out]--;
+            }
+        }
+        for (int[] occupancy : rooms.values()) {
+            for (int d = 1; d < occupancy.length; d++) {
+                occupancy[d] += occupancy[d - 1];
+            }
+        }
+        return new RoomOccupancyIndex.OccupancyCalendar(start, days, rooms);
     }
 
     private RoomDTO convertToDto(Room room) {
@@ -0,0 +1,134 @@
+package ru.naumen.sanatoriumproject.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.DigestUtils;
+import ru.naumen.sanatoriumproject.dtos.RegistrationDTO;
+
+import java.io.UncheckedIOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Списки регистраций смен, уже сериализованные в JSON, вместе с ETag.
+ * Список сбрасывается после коммита транзакции, изменившей регистрации смены; изменение пользователей,
+ * комнат или смен, чьи поля попадают в список, сбрасывает все списки. Загрузка, пересёкшаяся
+ * с незавершённым изменением, в кэш не попадает — как и в {@link RoomOccupancyIndex}.
+ */
+@Component
+public class ShiftRosterCache {
+    private final ObjectMapper objectMapper;
+    private final Map<Long, Roster> rosters = new HashMap<>();
+    private final Counter hits;
+    private final Counter misses;
+    // Незавершённые транзакции с изменениями и счётчик завершённых
+    private int pending;
+    private long version;
+
+    public ShiftRosterCache(ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        this.objectMapper = objectMapper;
+        this.hits = meterRegistry.counter("shift.roster.cache.requests", "result", "hit");
+        this.misses = meterRegistry.counter("shift.roster.cache.requests", "result", "miss");
+        Gauge.builder("shift.roster.cache.hit.ratio", this, ShiftRosterCache::getHitRatio)
+                .description("Доля запросов списка смены, обслуженных из кэша")
+                .register(meterRegistry);
+        Gauge.builder("shift.roster.cache.size", this, ShiftRosterCache::size)
+                .description("Смены, чьи списки лежат в кэше")
+                .register(meterRegistry);
+    }
+
+    public Roster get(Long shiftId, Supplier<List<RegistrationDTO>> loader) {
+        long stamp;
+        synchronized (this) {
+            Roster roster = rosters.get(shiftId);
+            if (roster != null) {
+                hits.increment();
+                return roster;
+            }
+            stamp = pending > 0 ? -1 : version;
+        }
+        misses.increment();
+
+        Roster roster = serialize(loader.get());
+        synchronized (this) {
+            if (stamp >= 0 && pending == 0 && stamp == version) {
+                rosters.put(shiftId, roster);
+            }
+        }
+        return roster;
+    }
+
+    /**
+     * Регистрации смены меняются; вызывается внутри транзакции, список сбрасывается после её коммита.
+     */
+    public void onShiftChanged(Long shiftId) {
+        invalidate(() -> rosters.remove(shiftId));
+    }
+
+    /**
+     * Меняются данные, которые могут быть в списке любой смены: ФИО и контакты, номер комнаты, название смены.
+     */
+    public void onRosterDataChanged() {
+        invalidate(rosters::clear);
+    }
+
+    public double getHitRatio() {
+        double total = hits.count() + misses.count();
+        return total == 0 ? 0 : hits.count() / total;
+    }
+
+    private synchronized int size() {
+        return rosters.size();
+    }
+
+    private void invalidate(Runnable eviction) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            synchronized (this) {
+                eviction.run();
+                version++;
+            }
+            return;
+        }
+        synchronized (this) {
+            pending++;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                synchronized (ShiftRosterCache.this) {
+                    pending--;
+                    version++;
+                    if (status == STATUS_COMMITTED) {
+                        eviction.run();
+                    }
+                }
+            }
+        });
+    }
+
+    private Roster serialize(List<RegistrationDTO> registrations) {
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(registrations);
+            return new Roster(json, "\"" + DigestUtils.md5DigestAsHex(json) + "\"");
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class Roster {
+        private final byte[] json;
+        private final String etag;
+    }
+}
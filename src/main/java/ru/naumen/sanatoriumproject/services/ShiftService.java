@@ -5,6 +5,7 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import ru.naumen.sanatoriumproject.dtos.ShiftDTO;
 import ru.naumen.sanatoriumproject.models.Shift;
+import ru.naumen.sanatoriumproject.repositories.CascadeDeleteRepository;
 import ru.naumen.sanatoriumproject.repositories.ShiftRepository;
 
 import java.util.List;
@@ -15,6 +16,10 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class ShiftService {
     private final ShiftRepository shiftRepository;
+    private final ShiftRosterCache rosterCache;
+    private final UserProfileCache profileCache;
+    private final RoomOccupancyIndex occupancyIndex;
+    private final CascadeDeleteRepository cascadeDeleteRepository;
 
     public List<ShiftDTO> getAllShifts() {
         return shiftRepository.findAllByOrderByStartDateDesc().stream()
@@ -57,17 +62,25 @@ public class ShiftService {
         shift.setEndDate(shiftDTO.getEndDate());
         shift.setActive(shiftDTO.isActive());
         shift.setDescription(shiftDTO.getDescription());
+        rosterCache.onShiftChanged(id);
+        profileCache.onSharedDataChanged();
 
         Shift updatedShift = shiftRepository.save(shift);
         return convertToDto(updatedShift);
     }
 
+    /**
+     * Удаляет смену вместе с регистрациями, назначениями, отметками выполнения и статистикой.
+     */
     @Transactional
     public void deleteShift(Long id) {
         if (!shiftRepository.existsById(id)) {
             throw new NoSuchElementException("Shift not found with id: " + id);
         }
-        shiftRepository.deleteById(id);
+        rosterCache.onShiftChanged(id);
+        profileCache.onSharedDataChanged();
+        occupancyIndex.onShiftChanged(id);
+        cascadeDeleteRepository.deleteShift(id);
     }
 
     @Transactional
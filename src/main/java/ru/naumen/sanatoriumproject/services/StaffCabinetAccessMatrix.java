@@ -0,0 +1,80 @@
+package ru.naumen.sanatoriumproject.services;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import ru.naumen.sanatoriumproject.models.StaffCabinetId;
+import ru.naumen.sanatoriumproject.repositories.StaffCabinetRepository;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Копия таблицы staff_cabinets в памяти: для каждого сотрудника битовая маска id кабинетов.
+ * Маски не изменяются после публикации, поэтому чтение идёт без блокировок.
+ */
+@Component
+@RequiredArgsConstructor
+public class StaffCabinetAccessMatrix {
+    private static final BitSet EMPTY = new BitSet();
+
+    private final StaffCabinetRepository staffCabinetRepository;
+
+    private volatile Map<Long, BitSet> cabinetsByUser = Map.of();
+
+    @PostConstruct
+    public synchronized void reload() {
+        Map<Long, BitSet> loaded = new HashMap<>();
+        for (StaffCabinetId id : staffCabinetRepository.findAllIds()) {
+            loaded.computeIfAbsent(id.getUserId(), userId -> new BitSet()).set(index(id.getCabinetId()));
+        }
+        cabinetsByUser = loaded;
+    }
+
+    public boolean hasAccess(Long userId, Long cabinetId) {
+        BitSet cabinets = cabinetsByUser.get(userId);
+        return cabinets != null && cabinetId != null && cabinets.get(index(cabinetId));
+    }
+
+    public long[] getCabinetIds(Long userId) {
+        return cabinetsByUser.getOrDefault(userId, EMPTY).stream().asLongStream().toArray();
+    }
+
+    public synchronized void grant(Long userId, Long cabinetId) {
+        Map<Long, BitSet> updated = new HashMap<>(cabinetsByUser);
+        BitSet cabinets = (BitSet) updated.getOrDefault(userId, EMPTY).clone();
+        cabinets.set(index(cabinetId));
+        updated.put(userId, cabinets);
+        cabinetsByUser = updated;
+    }
+
+    public synchronized void revoke(Long userId, Long cabinetId) {
+        BitSet current = cabinetsByUser.get(userId);
+        if (current == null) {
+            return;
+        }
+        Map<Long, BitSet> updated = new HashMap<>(cabinetsByUser);
+        BitSet cabinets = (BitSet) current.clone();
+        cabinets.clear(index(cabinetId));
+        if (cabinets.isEmpty()) {
+            updated.remove(userId);
+        } else {
+            updated.put(userId, cabinets);
+        }
+        cabinetsByUser = updated;
+    }
+
+    public synchronized void revokeAll(Long userId) {
+        if (!cabinetsByUser.containsKey(userId)) {
+            return;
+        }
+        Map<Long, BitSet> updated = new HashMap<>(cabinetsByUser);
+        updated.remove(userId);
+        cabinetsByUser = updated;
+    }
+
+    private static int index(Long cabinetId) {
+        return Math.toIntExact(cabinetId);
+    }
+}
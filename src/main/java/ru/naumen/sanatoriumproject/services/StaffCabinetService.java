@@ -4,6 +4,8 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.web.server.ResponseStatusException;
 import ru.naumen.sanatoriumproject.dtos.StaffCabinetDTO;
 import ru.naumen.sanatoriumproject.models.Cabinet;
@@ -23,6 +25,7 @@ public class StaffCabinetService {
     private final StaffCabinetRepository staffCabinetRepository;
     private final UserRepository userRepository;
     private final CabinetRepository cabinetRepository;
+    private final StaffCabinetAccessMatrix accessMatrix;
 
     @Transactional
     public StaffCabinetDTO assignCabinetToStaff(Long userId, Long cabinetId) {
@@ -46,6 +49,7 @@ public class StaffCabinetService {
         staffCabinet.setCabinet(cabinet);
 
         StaffCabinet saved = staffCabinetRepository.save(staffCabinet);
+        afterCommit(() -> accessMatrix.grant(userId, cabinetId));
         return convertToDto(saved);
     }
 
@@ -59,10 +63,14 @@ public class StaffCabinetService {
             throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Assignment not found");
         }
         staffCabinetRepository.deleteById(id);
+        afterCommit(() -> accessMatrix.revoke(userId, cabinetId));
     }
 
     public List<StaffCabinetDTO> getCabinetsByStaff(Long userId) {
-        return staffCabinetRepository.findByUserId(userId)
+        if (accessMatrix.getCabinetIds(userId).length == 0) {
+            return List.of();
+        }
+        return staffCabinetRepository.findByUserIdWithDetails(userId)
                 .stream()
                 .map(this::convertToDto)
                 .collect(Collectors.toList());
@@ -82,6 +90,16 @@ public class StaffCabinetService {
                 .collect(Collectors.toList());
     }
 
+    // Матрицу доступа меняем только после успешного коммита, чтобы откат не выдал лишних прав
+    private void afterCommit(Runnable action) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
     private StaffCabinetDTO convertToDto(StaffCabinet staffCabinet) {
         StaffCabinetDTO dto = new StaffCabinetDTO();
         dto.setUserId(staffCabinet.getUser().getId());
@@ -0,0 +1,181 @@
+package ru.naumen.sanatoriumproject.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import ru.naumen.sanatoriumproject.repositories.NewsRepository;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Фоновая очистка каталога загрузок от файлов, на которые не ссылается ни одна новость: картинок,
+ * оставшихся от обновлений и удалений до появления счётчиков ссылок или после сбоев, их уменьшенных копий
+ * и недописанных временных файлов. Каталог читается потоком, ссылки проверяются одним запросом на пакет имён,
+ * между пакетами выдерживается пауза. Удаляются только файлы, не менявшиеся дольше срока ожидания.
+ */
+@Service
+public class UploadSweeper {
+    private static final Logger logger = LoggerFactory.getLogger(UploadSweeper.class);
+    private static final Pattern VARIANT = Pattern.compile("(.+)\\.w\\d+\\.([^.]*)");
+    private static final Pattern TEMP = Pattern.compile("\\.(upload|variant).*\\.tmp");
+
+    private final FileStorageService fileStorageService;
+    private final NewsRepository newsRepository;
+    private final ScheduledExecutorService sweeper = Executors.newSingleThreadScheduledExecutor();
+    private final Duration gracePeriod;
+    private final int batchSize;
+    private final long batchPauseMs;
+    private final Counter reclaimedBytes;
+    private final Counter deletedFiles;
+
+    public UploadSweeper(FileStorageService fileStorageService,
+                         NewsRepository newsRepository,
+                         MeterRegistry meterRegistry,
+                         @Value("${uploads.sweep.grace-hours:24}") long graceHours,
+                         @Value("${uploads.sweep.batch-size:500}") int batchSize,
+                         @Value("${uploads.sweep.batch-pause-ms:100}") long batchPauseMs,
+                         @Value("${uploads.sweep.interval-minutes:60}") long intervalMinutes) {
+        this.fileStorageService = fileStorageService;
+        this.newsRepository = newsRepository;
+        this.gracePeriod = Duration.ofHours(graceHours);
+        this.batchSize = batchSize;
+        this.batchPauseMs = batchPauseMs;
+        this.reclaimedBytes = Counter.builder("uploads.sweep.reclaimed")
+                .baseUnit("bytes")
+                .description("Место, освобождённое удалением файлов без ссылок")
+                .register(meterRegistry);
+        this.deletedFiles = meterRegistry.counter("uploads.sweep.deleted.files");
+        sweeper.scheduleWithFixedDelay(this::sweepQuietly, intervalMinutes, intervalMinutes, TimeUnit.MINUTES);
+    }
+
+    public synchronized Result sweep() throws IOException, InterruptedException {
+        Path root = fileStorageService.getUploadPath();
+        Result total = new Result(0, 0);
+        if (!Files.isDirectory(root)) {
+            return total;
+        }
+        Instant cutoff = Instant.now().minus(gracePeriod);
+        List<Candidate> batch = new ArrayList<>(batchSize);
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(root)) {
+            for (Path entry : entries) {
+                BasicFileAttributes attributes;
+                try {
+                    attributes = Files.readAttributes(entry, BasicFileAttributes.class);
+                } catch (NoSuchFileException e) {
+                    continue;
+                }
+                if (!attributes.isRegularFile() || !attributes.lastModifiedTime().toInstant().isBefore(cutoff)) {
+                    continue;
+                }
+                batch.add(candidate(entry.getFileName().toString()));
+                if (batch.size() == batchSize) {
+                    total.add(deleteUnreferenced(batch, cutoff));
+                    batch.clear();
+                    Thread.sleep(batchPauseMs);
+                }
+            }
+        }
+        if (!batch.isEmpty()) {
+            total.add(deleteUnreferenced(batch, cutoff));
+        }
+        if (total.getDeletedFiles() > 0) {
+            logger.info("Upload sweep deleted {} files, {} bytes", total.getDeletedFiles(), total.getReclaimedBytes());
+        }
+        return total;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sweeper.shutdownNow();
+    }
+
+    private void sweepQuietly() {
+        try {
+            sweep();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            logger.warn("Upload sweep failed", e);
+        }
+    }
+
+    private Result deleteUnreferenced(List<Candidate> batch, Instant cutoff) throws IOException {
+        Set<String> owners = batch.stream()
+                .map(Candidate::getOwner)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        Set<String> referenced = owners.isEmpty()
+                ? Set.of()
+                : new HashSet<>(newsRepository.findReferencedImagePaths(owners));
+
+        Result result = new Result(0, 0);
+        for (Candidate candidate : batch) {
+            if (candidate.getOwner() != null && referenced.contains(candidate.getOwner())) {
+                continue;
+            }
+            long size = fileStorageService.deleteOrphan(candidate.getName(), candidate.getOwner(), cutoff);
+            if (size >= 0) {
+                result.add(new Result(1, size));
+                deletedFiles.increment();
+                reclaimedBytes.increment(size);
+            }
+        }
+        return result;
+    }
+
+    // Уменьшенная копия живёт, пока есть ссылка на её оригинал; у временных файлов владельца нет.
+    // Файл с именем копии, но с расширением, у которого копий не бывает, сам себе владелец
+    private static Candidate candidate(String name) {
+        if (TEMP.matcher(name).matches()) {
+            return new Candidate(name, null);
+        }
+        Matcher variant = VARIANT.matcher(name);
+        if (variant.matches() && ImageVariantService.isResizable(name)) {
+            return new Candidate(name, variant.group(1) + "." + variant.group(2));
+        }
+        return new Candidate(name, name);
+    }
+
+    @Getter
+    @AllArgsConstructor
+    private static class Candidate {
+        private final String name;
+        private final String owner;
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class Result {
+        private int deletedFiles;
+        private long reclaimedBytes;
+
+        private void add(Result other) {
+            deletedFiles += other.deletedFiles;
+            reclaimedBytes += other.reclaimedBytes;
+        }
+    }
+}
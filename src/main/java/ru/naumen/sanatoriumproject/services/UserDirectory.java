@@ -0,0 +1,311 @@
+package ru.naumen.sanatoriumproject.services;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Справочник пользователей для поиска по ФИО, логину, email и телефону.
+ * Каждое поле разбито на триграммы, а слова — ещё и на префиксы из одного-двух символов,
+ * так что любой фрагмент длиной от трёх символов и начало любого слова находятся пересечением
+ * списков. Записи только дописываются: изменённый пользователь получает новую ячейку, старая
+ * помечается удалённой, поэтому списки ячеек остаются отсортированными без перестроения.
+ * Порядок выдачи — по ФИО, он поддерживается вставкой в отсортированный массив.
+ * Класс не потокобезопасен.
+ */
+public class UserDirectory {
+    private static final int GRAM = 3;
+
+    private Entry[] entries = new Entry[16];
+    private String[] sortKeys = new String[16];
+    private String[] texts = new String[16];
+    private int[] masks = new int[16];
+    private final BitSet dead = new BitSet();
+    private int slots;
+    private int deadCount;
+    private final Map<Long, Integer> slotById = new HashMap<>();
+    private final Map<String, IntList> postings = new HashMap<>();
+    // Ячейки (в том числе удалённые) по возрастанию ФИО и id
+    private int[] order = new int[16];
+    private final Comparator<Integer> byName = Comparator.<Integer, String>comparing(slot -> sortKeys[slot])
+            .thenComparingLong(slot -> entries[slot].getId());
+
+    public void put(Entry entry) {
+        remove(entry.getId());
+        if (slots == entries.length) {
+            int capacity = slots * 2;
+            entries = Arrays.copyOf(entries, capacity);
+            sortKeys = Arrays.copyOf(sortKeys, capacity);
+            texts = Arrays.copyOf(texts, capacity);
+            masks = Arrays.copyOf(masks, capacity);
+            order = Arrays.copyOf(order, capacity);
+        }
+        int slot = slots++;
+        entries[slot] = entry;
+        sortKeys[slot] = normalize(entry.getFullName());
+        masks[slot] = entry.getRoleMask();
+        slotById.put(entry.getId(), slot);
+
+        String[] fields = {sortKeys[slot], normalize(entry.getLogin()), normalize(entry.getEmail()),
+                digits(entry.getPhone())};
+        texts[slot] = String.join("\n", fields);
+        Set<String> keys = new HashSet<>();
+        for (String field : fields) {
+            for (int i = 0; i + GRAM <= field.length(); i++) {
+                keys.add(field.substring(i, i + GRAM));
+            }
+            for (String word : field.split("[^\\p{L}\\p{N}]+")) {
+                for (int length = 1; length < GRAM && length <= word.length(); length++) {
+                    keys.add("^" + word.substring(0, length));
+                }
+            }
+        }
+        keys.forEach(key -> postings.computeIfAbsent(key, k -> new IntList()).add(slot));
+
+        int position = insertionPoint(slot);
+        System.arraycopy(order, position, order, position + 1, slot - position);
+        order[position] = slot;
+    }
+
+    public void remove(Long id) {
+        Integer slot = slotById.remove(id);
+        if (slot == null) {
+            return;
+        }
+        dead.set(slot);
+        deadCount++;
+        // Удалённых больше, чем живых: ячейки и списки строятся заново
+        if (deadCount > 1024 && deadCount * 2 > slots) {
+            compact();
+        }
+    }
+
+    public Entry get(Long id) {
+        Integer slot = slotById.get(id);
+        return slot != null ? entries[slot] : null;
+    }
+
+    public int size() {
+        return slotById.size();
+    }
+
+    /**
+     * @param query    слова запроса; каждое должно встретиться в одном из полей
+     * @param roleMask биты ролей (см. {@link #roleBit}), 0 — без фильтра по ролям
+     */
+    public Result search(String query, int roleMask, int offset, int limit) {
+        List<IntList> lists = new ArrayList<>();
+        List<String> verify = new ArrayList<>();
+        for (String term : terms(query)) {
+            if (term.length() < GRAM) {
+                lists.add(postings.get("^" + term));
+                continue;
+            }
+            // Достаточно самого редкого фрагмента: длинное слово потом проверяется целиком
+            IntList rarest = null;
+            for (int i = 0; i + GRAM <= term.length(); i++) {
+                IntList posting = postings.get(term.substring(i, i + GRAM));
+                if (posting == null) {
+                    return new Result(List.of(), 0);
+                }
+                if (rarest == null || posting.size < rarest.size) {
+                    rarest = posting;
+                }
+            }
+            lists.add(rarest);
+            if (term.length() > GRAM) {
+                verify.add(term);
+            }
+        }
+        if (lists.contains(null)) {
+            return new Result(List.of(), 0);
+        }
+
+        List<Entry> page = new ArrayList<>();
+        int from = Math.max(offset, 0);
+        int count = 0;
+        if (lists.isEmpty()) {
+            for (int i = 0; i < slots; i++) {
+                if (accept(order[i], roleMask, verify) && count++ >= from && page.size() < limit) {
+                    page.add(entries[order[i]]);
+                }
+            }
+            return new Result(page, count);
+        }
+
+        // Кандидаты — самый короткий список, остальные проверяются двоичным поиском
+        lists.sort(Comparator.comparingInt(list -> list.size));
+        IntList shortest = lists.get(0);
+        int[] candidates = new int[shortest.size];
+        int found = 0;
+        for (int i = 0; i < shortest.size; i++) {
+            int slot = shortest.values[i];
+            if (containsInAll(lists, slot) && accept(slot, roleMask, verify)) {
+                candidates[found++] = slot;
+            }
+        }
+
+        if (found * 512L < slots) {
+            // Совпадений единицы: сортировка дешевле прохода по всему порядку
+            Integer[] sorted = new Integer[found];
+            for (int i = 0; i < found; i++) {
+                sorted[i] = candidates[i];
+            }
+            Arrays.sort(sorted, byName);
+            for (int i = from; i < found && page.size() < limit; i++) {
+                page.add(entries[sorted[i]]);
+            }
+        } else {
+            // Проход по порядку останавливается, как только страница заполнена
+            BitSet matched = new BitSet(slots);
+            for (int i = 0; i < found; i++) {
+                matched.set(candidates[i]);
+            }
+            for (int i = 0; i < slots && page.size() < limit; i++) {
+                if (matched.get(order[i]) && count++ >= from) {
+                    page.add(entries[order[i]]);
+                }
+            }
+        }
+        return new Result(page, found);
+    }
+
+    public static int roleBit(Enum<?> role) {
+        return 1 << role.ordinal();
+    }
+
+    static List<String> terms(String query) {
+        List<String> terms = new ArrayList<>();
+        if (query == null) {
+            return terms;
+        }
+        // Телефон ищется по цифрам целиком, без пробелов, скобок и дефисов
+        if (query.matches("[\\s+()\\-\\d]*\\d[\\s+()\\-\\d]*")) {
+            terms.add(digits(query));
+            return terms;
+        }
+        for (String term : normalize(query).split(" +")) {
+            if (!term.isEmpty()) {
+                terms.add(term);
+            }
+        }
+        return terms;
+    }
+
+    static String normalize(String value) {
+        if (value == null) {
+            return "";
+        }
+        StringBuilder normalized = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = Character.toLowerCase(value.charAt(i));
+            if (c == 'ё') {
+                c = 'е';
+            }
+            boolean kept = Character.isLetterOrDigit(c) || c == '@' || c == '.' || c == '_' || c == '-' || c == '+';
+            normalized.append(kept ? c : ' ');
+        }
+        return normalized.toString().trim();
+    }
+
+    static String digits(String value) {
+        return value == null ? "" : value.replaceAll("\\D", "");
+    }
+
+    private boolean accept(int slot, int roleMask, List<String> verify) {
+        if (dead.get(slot) || (roleMask != 0 && (masks[slot] & roleMask) == 0)) {
+            return false;
+        }
+        for (String term : verify) {
+            if (!texts[slot].contains(term)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean containsInAll(List<IntList> lists, int slot) {
+        for (int i = 1; i < lists.size(); i++) {
+            IntList list = lists.get(i);
+            if (Arrays.binarySearch(list.values, 0, list.size, slot) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int insertionPoint(int slot) {
+        int low = 0;
+        int high = slot;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (byName.compare(order[mid], slot) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private void compact() {
+        List<Entry> live = new ArrayList<>(slotById.size());
+        for (int i = 0; i < slots; i++) {
+            if (!dead.get(order[i])) {
+                live.add(entries[order[i]]);
+            }
+        }
+        entries = new Entry[Math.max(16, live.size())];
+        sortKeys = new String[entries.length];
+        texts = new String[entries.length];
+        masks = new int[entries.length];
+        order = new int[entries.length];
+        dead.clear();
+        slots = 0;
+        deadCount = 0;
+        slotById.clear();
+        postings.clear();
+        live.forEach(this::put);
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class Entry {
+        private final Long id;
+        private final String fullName;
+        private final String login;
+        private final String email;
+        private final String phone;
+        private final LocalDate birthDate;
+        private final int roleMask;
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class Result {
+        private final List<Entry> items;
+        private final int total;
+    }
+
+    private static final class IntList {
+        private int[] values = new int[4];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package ru.naumen.sanatoriumproject.services;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.naumen.sanatoriumproject.models.ERole;
+import ru.naumen.sanatoriumproject.models.Role;
+import ru.naumen.sanatoriumproject.models.User;
+import ru.naumen.sanatoriumproject.repositories.UserRepository;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * {@link UserDirectory} для всех пользователей: загружается при старте,
+ * дальше изменения пользователей применяются к нему после коммита.
+ */
+@Component
+@RequiredArgsConstructor
+public class UserDirectoryIndex {
+    private final UserRepository userRepository;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private UserDirectory directory = new UserDirectory();
+
+    @PostConstruct
+    public void reload() {
+        Map<Long, Integer> masks = new HashMap<>();
+        userRepository.findUserRoles()
+                .forEach(row -> masks.merge(row.getUserId(), UserDirectory.roleBit(row.getRole()), (a, b) -> a | b));
+        UserDirectory loaded = new UserDirectory();
+        userRepository.findDirectoryRows().forEach(row -> loaded.put(new UserDirectory.Entry(row.getId(),
+                row.getFullName(), row.getLogin(), row.getEmail(), row.getPhone(), row.getBirthDate(),
+                masks.getOrDefault(row.getId(), 0))));
+
+        lock.writeLock().lock();
+        try {
+            directory = loaded;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public UserDirectory.Result search(String query, Collection<ERole> roles, int offset, int limit) {
+        int roleMask = 0;
+        if (roles != null) {
+            for (ERole role : roles) {
+                roleMask |= UserDirectory.roleBit(role);
+            }
+        }
+        lock.readLock().lock();
+        try {
+            return directory.search(query, roleMask, offset, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Пользователь создан или изменён.
+     *
+     * @param roles новые роли или null, если роли не менялись
+     */
+    public void onUserSaved(User user, Collection<Role> roles) {
+        Integer roleMask = null;
+        if (roles != null) {
+            roleMask = 0;
+            for (Role role : roles) {
+                roleMask |= UserDirectory.roleBit(role.getName());
+            }
+        }
+        Integer newMask = roleMask;
+        afterCommit(() -> {
+            int mask = newMask != null ? newMask : currentMask(user.getId());
+            directory.put(new UserDirectory.Entry(user.getId(), user.getFullName(), user.getLogin(),
+                    user.getEmail(), user.getPhone(), user.getBirthDate(), mask));
+        });
+    }
+
+    public void onUserDeleted(Long userId) {
+        afterCommit(() -> directory.remove(userId));
+    }
+
+    private int currentMask(Long userId) {
+        UserDirectory.Entry entry = directory.get(userId);
+        return entry != null ? entry.getRoleMask() : 0;
+    }
+
+    private void afterCommit(Runnable change) {
+        Runnable locked = () -> {
+            lock.writeLock().lock();
+            try {
+                change.run();
+            } finally {
+                lock.writeLock().unlock();
+            }
+        };
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            locked.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                locked.run();
+            }
+        });
+    }
+}
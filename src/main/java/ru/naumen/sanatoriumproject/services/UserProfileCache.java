@@ -0,0 +1,211 @@
+package ru.naumen.sanatoriumproject.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.DigestUtils;
+
+import java.io.UncheckedIOException;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * Ответы личного кабинета (профиль и смены гостя), уже сериализованные в JSON, вместе с ETag.
+ * Ответы пользователя сбрасываются после коммита транзакции, изменившей его регистрации, записи,
+ * отметки или поля профиля; изменение смен, комнат, процедур, кабинетов и ФИО сотрудников,
+ * которые видны в чужих кабинетах, сбрасывает все ответы. Размер ограничен, давно не запрошенные
+ * пользователи вытесняются, а ответ старше TTL загружается заново, даже если сброс был пропущен.
+ * Загрузка, пересёкшаяся с незавершённым изменением того же пользователя, в кэш не попадает.
+ */
+@Component
+public class UserProfileCache {
+    private final ObjectMapper objectMapper;
+    private final long ttlMillis;
+    private final Map<Long, Map<Kind, View>> users;
+    // Незавершённые транзакции с изменениями по пользователям и со сбросом всего кэша
+    private final Map<Long, Integer> pending = new HashMap<>();
+    private int pendingAll;
+    // Идущие загрузки; сброс помечает их устаревшими, и результат не кэшируется
+    private final Map<Long, Load> loads = new HashMap<>();
+    private final Counter hits;
+    private final Counter misses;
+
+    public UserProfileCache(ObjectMapper objectMapper,
+                            MeterRegistry meterRegistry,
+                            @Value("${user.profile.cache.max-entries:10000}") int maxEntries,
+                            @Value("${user.profile.cache.ttl-seconds:300}") long ttlSeconds) {
+        this.objectMapper = objectMapper;
+        this.ttlMillis = ttlSeconds * 1000;
+        this.users = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Map<Kind, View>> eldest) {
+                return size() > maxEntries;
+            }
+        };
+        this.hits = meterRegistry.counter("user.profile.cache.requests", "result", "hit");
+        this.misses = meterRegistry.counter("user.profile.cache.requests", "result", "miss");
+        Gauge.builder("user.profile.cache.size", this, UserProfileCache::size)
+                .description("Пользователи, чьи ответы лежат в кэше")
+                .register(meterRegistry);
+    }
+
+    public View get(Long userId, Kind kind, Supplier<?> loader) {
+        Load load = null;
+        synchronized (this) {
+            Map<Kind, View> views = users.get(userId);
+            View view = views != null ? views.get(kind) : null;
+            if (view != null && System.currentTimeMillis() - view.getLoadedAt() < ttlMillis) {
+                hits.increment();
+                return view;
+            }
+            if (pendingAll == 0 && !pending.containsKey(userId)) {
+                load = loads.computeIfAbsent(userId, id -> new Load());
+                load.running++;
+            }
+        }
+        misses.increment();
+
+        View view = null;
+        try {
+            view = serialize(loader.get());
+            return view;
+        } finally {
+            if (load != null) {
+                synchronized (this) {
+                    if (--load.running == 0) {
+                        loads.remove(userId);
+                    }
+                    if (view != null && !load.stale && pendingAll == 0 && !pending.containsKey(userId)) {
+                        users.computeIfAbsent(userId, id -> new EnumMap<>(Kind.class)).put(kind, view);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Меняются данные пользователя; вызывается внутри транзакции, ответы сбрасываются после её коммита.
+     */
+    public void onUserChanged(Long userId) {
+        onUsersChanged(Set.of(userId));
+    }
+
+    public void onUsersChanged(Collection<Long> userIds) {
+        if (userIds.isEmpty()) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            synchronized (this) {
+                userIds.forEach(this::evict);
+            }
+            return;
+        }
+        synchronized (this) {
+            userIds.forEach(userId -> {
+                pending.merge(userId, 1, Integer::sum);
+                markStale(userId);
+            });
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                synchronized (UserProfileCache.this) {
+                    userIds.forEach(userId -> {
+                        pending.computeIfPresent(userId, (id, count) -> count > 1 ? count - 1 : null);
+                        if (status == STATUS_COMMITTED) {
+                            evict(userId);
+                        }
+                    });
+                }
+            }
+        });
+    }
+
+    /**
+     * Меняются данные, которые видны в кабинете любого гостя: смены, комнаты, процедуры, кабинеты, ФИО врачей.
+     */
+    public void onSharedDataChanged() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            synchronized (this) {
+                clear();
+            }
+            return;
+        }
+        synchronized (this) {
+            pendingAll++;
+            loads.values().forEach(load -> load.stale = true);
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                synchronized (UserProfileCache.this) {
+                    pendingAll--;
+                    if (status == STATUS_COMMITTED) {
+                        clear();
+                    }
+                }
+            }
+        });
+    }
+
+    private synchronized int size() {
+        return users.size();
+    }
+
+    private void evict(Long userId) {
+        users.remove(userId);
+        markStale(userId);
+    }
+
+    private void clear() {
+        users.clear();
+        loads.values().forEach(load -> load.stale = true);
+    }
+
+    private void markStale(Long userId) {
+        Load load = loads.get(userId);
+        if (load != null) {
+            load.stale = true;
+        }
+    }
+
+    private View serialize(Object body) {
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(body);
+            return new View(json, "\"" + DigestUtils.md5DigestAsHex(json) + "\"", System.currentTimeMillis());
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public enum Kind {
+        PROFILE,
+        SHIFTS
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class View {
+        private final byte[] json;
+        private final String etag;
+        private final long loadedAt;
+    }
+
+    private static class Load {
+        private int running;
+        private boolean stale;
+    }
+}
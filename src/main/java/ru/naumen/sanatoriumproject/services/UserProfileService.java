@@ -0,0 +1,94 @@
+package ru.naumen.sanatoriumproject.services;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
+import ru.naumen.sanatoriumproject.dtos.AppointmentDTO;
+import ru.naumen.sanatoriumproject.dtos.ProcedureCompletionDTO;
+import ru.naumen.sanatoriumproject.dtos.UserProfileDTO;
+import ru.naumen.sanatoriumproject.dtos.UserShiftInfoDTO;
+import ru.naumen.sanatoriumproject.models.Registration;
+import ru.naumen.sanatoriumproject.models.User;
+import ru.naumen.sanatoriumproject.repositories.RegistrationRepository;
+import ru.naumen.sanatoriumproject.repositories.UserRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Личный кабинет гостя. Смены со всеми записями и отметками собираются за три запроса
+ * независимо от числа смен: регистрации, записи по всем сменам и отметки по всем сменам.
+ * Готовые ответы кэшируются в {@link UserProfileCache}.
+ */
+@Service
+@RequiredArgsConstructor
+public class UserProfileService {
+    private final UserRepository userRepository;
+    private final RegistrationRepository registrationRepository;
+    private final AppointmentService appointmentService;
+    private final ProcedureCompletionService completionService;
+    private final UserProfileCache profileCache;
+
+    public UserProfileCache.View getProfileView(Long userId) {
+        return profileCache.get(userId, UserProfileCache.Kind.PROFILE, () -> getProfile(userId));
+    }
+
+    public UserProfileCache.View getShiftsView(Long userId) {
+        return profileCache.get(userId, UserProfileCache.Kind.SHIFTS, () -> getUserShifts(userId));
+    }
+
+    public UserProfileDTO getProfile(Long userId) {
+        User user = userRepository.findById(userId)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found"));
+
+        UserProfileDTO profile = new UserProfileDTO();
+        profile.setFullName(user.getFullName());
+        profile.setEmail(user.getEmail());
+        profile.setPhone(user.getPhone());
+        profile.setBirthDate(user.getBirthDate());
+        return profile;
+    }
+
+    @Transactional(readOnly = true)
+    public List<UserShiftInfoDTO> getUserShifts(Long userId) {
+        List<Registration> registrations = registrationRepository.findByUserIdWithDetails(userId);
+        if (registrations.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<Long> shiftIds = registrations.stream()
+                .map(reg -> reg.getShift().getId())
+                .toList();
+
+        Map<Long, List<AppointmentDTO>> appointments = appointmentService
+                .getAppointmentsByStudentAndShifts(userId, shiftIds).stream()
+                .collect(Collectors.groupingBy(AppointmentDTO::getShiftId));
+        Map<Long, List<ProcedureCompletionDTO>> completions = completionService
+                .getCompletionsByUserGroupedByShift(userId, shiftIds);
+
+        List<UserShiftInfoDTO> result = new ArrayList<>(registrations.size());
+        for (Registration reg : registrations) {
+            UserShiftInfoDTO dto = new UserShiftInfoDTO();
+            dto.setShiftId(reg.getShift().getId());
+            dto.setShiftName(reg.getShift().getName());
+            dto.setStartDate(reg.getShift().getStartDate());
+            dto.setEndDate(reg.getShift().getEndDate());
+
+            if (reg.getRoom() != null) {
+                dto.setRoomNumber(reg.getRoom().getNumber());
+                dto.setRoomDescription(reg.getRoom().getDescription());
+            }
+
+            List<AppointmentDTO> shiftAppointments = appointments.getOrDefault(dto.getShiftId(), new ArrayList<>());
+            shiftAppointments.forEach(appointment -> appointment.setCheckInToken(
+                    completionService.generateCheckInToken(appointment)));
+            dto.setAppointments(shiftAppointments);
+            dto.setCompletedProcedures(completions.getOrDefault(dto.getShiftId(), new ArrayList<>()));
+            result.add(dto);
+        }
+        return result;
+    }
+}
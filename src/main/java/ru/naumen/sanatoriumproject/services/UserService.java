@@ -1,35 +1,61 @@
 package ru.naumen.sanatoriumproject.services;
 
+import jakarta.persistence.EntityManager;
 import lombok.RequiredArgsConstructor;
+import org.hibernate.Session;
+import org.springframework.http.HttpStatus;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+import ru.naumen.sanatoriumproject.dtos.UserBulkUpdateDTO;
+import ru.naumen.sanatoriumproject.dtos.UserBulkUpdateResultDTO;
 import ru.naumen.sanatoriumproject.dtos.UserDTO;
+import ru.naumen.sanatoriumproject.dtos.UserDirectoryPageDTO;
+import ru.naumen.sanatoriumproject.dtos.UserWithRolesDTO;
 import ru.naumen.sanatoriumproject.models.ERole;
 import ru.naumen.sanatoriumproject.models.Role;
 import ru.naumen.sanatoriumproject.models.User;
-import ru.naumen.sanatoriumproject.repositories.RoleRepository;
+import ru.naumen.sanatoriumproject.repositories.CascadeDeleteRepository;
 import ru.naumen.sanatoriumproject.repositories.UserRepository;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.TreeSet;
 import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 public class UserService {
+    private static final int BULK_BATCH_SIZE = 50;
+
     private final UserRepository userRepository;
-    private final RoleRepository roleRepository;
+    private final RoleRegistry roleRegistry;
     private final PasswordEncoder passwordEncoder;
+    private final ShiftRosterCache rosterCache;
+    private final UserProfileCache profileCache;
+    private final CascadeDeleteRepository cascadeDeleteRepository;
+    private final RoomOccupancyIndex occupancyIndex;
+    private final StaffCabinetAccessMatrix accessMatrix;
+    private final UserDirectoryIndex directoryIndex;
+    private final TransactionTemplate transactionTemplate;
+    private final EntityManager entityManager;
 
     public List<UserDTO> getRegularUsers() {
-        Role userRole = roleRepository.findByName(ERole.ROLE_USER)
-                .orElseThrow(() -> new RuntimeException("Error: Role USER not found."));
-
-        return userRepository.findByRolesContaining(userRole).stream()
+        return userRepository.findByRolesContaining(roleRegistry.get(ERole.ROLE_USER)).stream()
                 .map(this::convertToDto)
                 .collect(Collectors.toList());
     }
@@ -52,11 +78,10 @@ public class UserService {
 
         user.setPhone(userDTO.getPhone());
 
-        Role userRole = roleRepository.findByName(ERole.ROLE_USER)
-                .orElseThrow(() -> new RuntimeException("Error: Role USER not found."));
-        user.setRoles(Collections.singleton(userRole));
+        user.setRoles(Collections.singleton(roleRegistry.get(ERole.ROLE_USER)));
 
         User savedUser = userRepository.save(user);
+        directoryIndex.onUserSaved(savedUser, savedUser.getRoles());
         return convertToDto(savedUser);
     }
 
@@ -78,11 +103,7 @@ public class UserService {
 
         user.setPhone(userDTO.getPhone());
 
-        Set<Role> roles = roleNames.stream()
-                .map(roleName -> roleRepository.findByName(roleName))
-                .filter(Optional::isPresent)
-                .map(Optional::get)
-                .collect(Collectors.toSet());
+        Set<Role> roles = roleRegistry.resolve(roleNames);
 
         if (roles.isEmpty()) {
             throw new RuntimeException("Error: No valid roles provided!");
@@ -90,20 +111,43 @@ public class UserService {
 
         user.setRoles(roles);
         User savedUser = userRepository.save(user);
+        directoryIndex.onUserSaved(savedUser, savedUser.getRoles());
         return convertToDto(savedUser);
     }
 
+    /**
+     * Удаляет пользователя вместе с его регистрациями, назначениями и отметками выполнения в них.
+     * Врача или медсестру, назначавших или отмечавших процедуры других гостей, удалить нельзя:
+     * эти записи — история гостей.
+     */
+    @Transactional
     public void deleteUser(Long id) {
         if (!userRepository.existsById(id)) {
             throw new RuntimeException("Error: User not found.");
         }
-        userRepository.deleteById(id);
+        if (cascadeDeleteRepository.lockAndCheckForeignHistory(id)) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT,
+                    "User has appointments or procedure completions of other students");
+        }
+        rosterCache.onRosterDataChanged();
+        profileCache.onUserChanged(id);
+        directoryIndex.onUserDeleted(id);
+        cascadeDeleteRepository.deleteUser(id).stream()
+                .distinct()
+                .forEach(occupancyIndex::onShiftChanged);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                accessMatrix.revokeAll(id);
+            }
+        });
     }
 
     public UserDTO updateUser(Long id, UserDTO userDTO) {
         User user = userRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Error: User not found."));
 
+        boolean renamed = !Objects.equals(user.getFullName(), userDTO.getFullName());
         user.setFullName(userDTO.getFullName());
         user.setPhone(userDTO.getPhone());
         user.setBirthDate(userDTO.getBirthDate());
@@ -115,14 +159,23 @@ public class UserService {
         }
 
         User updatedUser = userRepository.save(user);
+        // Сбрасываем после записи: метод без транзакции, загрузка до записи не попадёт в кэш
+        rosterCache.onRosterDataChanged();
+        directoryIndex.onUserSaved(updatedUser, null);
+        onProfileChanged(id, renamed);
         return convertToDto(updatedUser);
     }
 
+    /**
+     * Изменения управляемого пользователя сбрасываются при коммите, роли берутся из реестра без запросов.
+     */
+    @Transactional
     public UserDTO updateUserWithRoles(Long id, UserDTO userDTO, Set<ERole> roleNames) {
         User user = userRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Error: User not found."));
 
         // Обновляем только те поля, которые разрешено изменять
+        boolean renamed = !Objects.equals(user.getFullName(), userDTO.getFullName());
         user.setFullName(userDTO.getFullName());
         user.setPhone(userDTO.getPhone());
         user.setBirthDate(userDTO.getBirthDate());
@@ -140,21 +193,64 @@ public class UserService {
             user.setPassword(passwordEncoder.encode(userDTO.getPassword()));
         }
 
+        Set<Role> roles = null;
         if (roleNames != null && !roleNames.isEmpty()) {
-            Set<Role> roles = roleNames.stream()
-                    .map(roleName -> roleRepository.findByName(roleName))
-                    .filter(Optional::isPresent)
-                    .map(Optional::get)
-                    .collect(Collectors.toSet());
+            roles = roleRegistry.resolve(roleNames);
             user.setRoles(roles);
         }
 
-        User updatedUser = userRepository.save(user);
-        return convertToDto(updatedUser);
+        // save() не нужен: merge перечитал бы каждую роль из нового набора
+        rosterCache.onRosterDataChanged();
+        directoryIndex.onUserSaved(user, roles);
+        onProfileChanged(id, renamed);
+        return convertToDto(user);
+    }
+
+    /**
+     * Массовое изменение пользователей одной транзакцией: пароли хешируются параллельно до её начала,
+     * пользователи читаются одним запросом, а роли меняются по разности наборов — в user_roles
+     * добавляются только недостающие строки и удаляются только снятые.
+     */
+    public UserBulkUpdateResultDTO bulkUpdate(UserBulkUpdateDTO bulkDTO) {
+        if (bulkDTO.getUsers() == null || bulkDTO.getUsers().isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "users are required");
+        }
+        Map<Long, UserBulkUpdateDTO.Change> changes = new LinkedHashMap<>();
+        Map<Long, Set<Role>> roles = new HashMap<>();
+        for (UserBulkUpdateDTO.Change change : bulkDTO.getUsers()) {
+            if (change == null || change.getId() == null) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Every change needs a user id");
+            }
+            if (changes.putIfAbsent(change.getId(), change) != null) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "User " + change.getId() + " is listed twice");
+            }
+            // Как и в updateUserWithRoles, пустой набор роли не меняет, а не снимает их все
+            if (change.getRoles() != null && !change.getRoles().isEmpty()) {
+                roles.put(change.getId(), roleRegistry.resolve(parseRoles(change.getRoles())));
+            }
+        }
+
+        Map<Long, String> passwords = changes.values().parallelStream()
+                .filter(change -> change.getPassword() != null && !change.getPassword().isEmpty())
+                .collect(Collectors.toMap(UserBulkUpdateDTO.Change::getId,
+                        change -> passwordEncoder.encode(change.getPassword())));
+
+        return transactionTemplate.execute(status -> applyBulkUpdate(changes, roles, passwords));
+    }
+
+    /**
+     * Поиск по справочнику пользователей без обращения к БД, страницы упорядочены по ФИО.
+     */
+    public UserDirectoryPageDTO searchDirectory(String query, Set<ERole> roles, int page, int size) {
+        UserDirectory.Result result = directoryIndex.search(query, roles, page * size, size);
+        List<UserWithRolesDTO> items = result.getItems().stream()
+                .map(this::convertToDto)
+                .collect(Collectors.toList());
+        return new UserDirectoryPageDTO(items, page, size, result.getTotal());
     }
 
     public List<Role> getAllRoles() {
-        return roleRepository.findAll();
+        return roleRegistry.getAll();
     }
 
     public boolean hasAdminRole() {
@@ -163,6 +259,102 @@ public class UserService {
                 .anyMatch(grantedAuthority -> grantedAuthority.getAuthority().equals("ROLE_ADMIN"));
     }
 
+    private UserBulkUpdateResultDTO applyBulkUpdate(Map<Long, UserBulkUpdateDTO.Change> changes,
+                                                    Map<Long, Set<Role>> roles, Map<Long, String> passwords) {
+        List<User> users = userRepository.findAllById(changes.keySet());
+        if (users.size() != changes.size()) {
+            Set<Long> missing = new TreeSet<>(changes.keySet());
+            users.forEach(user -> missing.remove(user.getId()));
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Users not found: " + missing);
+        }
+
+        entityManager.unwrap(Session.class).setJdbcBatchSize(BULK_BATCH_SIZE);
+        boolean renamed = false;
+        for (User user : users) {
+            UserBulkUpdateDTO.Change change = changes.get(user.getId());
+            if (change.getFullName() != null && !change.getFullName().equals(user.getFullName())) {
+                user.setFullName(change.getFullName());
+                renamed = true;
+            }
+            if (change.getPhone() != null) {
+                user.setPhone(change.getPhone());
+            }
+            if (change.getBirthDate() != null) {
+                user.setBirthDate(change.getBirthDate());
+            }
+            if (change.getEmail() != null && !change.getEmail().isEmpty()) {
+                user.setEmail(change.getEmail());
+            }
+            if (change.getLogin() != null && !change.getLogin().isEmpty()) {
+                user.setLogin(change.getLogin());
+            }
+            if (passwords.containsKey(user.getId())) {
+                user.setPassword(passwords.get(user.getId()));
+            }
+            directoryIndex.onUserSaved(user, roles.get(user.getId()));
+        }
+        // Коллекции ролей не трогаем, чтобы не загружать их: user_roles меняется ниже напрямую,
+        // а UPDATE пользователей уходят пакетом сейчас, чтобы занятые email и login проявились до этого
+        userRepository.flush();
+
+        int removed = 0;
+        int added = 0;
+        if (!roles.isEmpty()) {
+            List<Long> userIds = new ArrayList<>();
+            List<Integer> roleIds = new ArrayList<>();
+            roles.forEach((userId, userRoles) -> userRoles.forEach(role -> {
+                userIds.add(userId);
+                roleIds.add(role.getId());
+            }));
+            removed = userRepository.deleteRolesNotIn(roles.keySet(), userIds, roleIds);
+            added = userRepository.insertMissingRoles(userIds, roleIds);
+        }
+
+        rosterCache.onRosterDataChanged();
+        if (renamed) {
+            profileCache.onSharedDataChanged();
+        } else {
+            profileCache.onUsersChanged(changes.keySet());
+        }
+        return new UserBulkUpdateResultDTO(users.size(), added, removed, passwords.size());
+    }
+
+    private static Set<ERole> parseRoles(Set<String> names) {
+        Set<ERole> roles = EnumSet.noneOf(ERole.class);
+        for (String name : names) {
+            try {
+                roles.add(ERole.valueOf(name));
+            } catch (IllegalArgumentException | NullPointerException e) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unknown role: " + name);
+            }
+        }
+        return roles;
+    }
+
+    // ФИО видно и в чужих кабинетах: врачом в записях, сотрудником в отметках
+    private void onProfileChanged(Long id, boolean renamed) {
+        if (renamed) {
+            profileCache.onSharedDataChanged();
+        } else {
+            profileCache.onUserChanged(id);
+        }
+    }
+
+    private UserWithRolesDTO convertToDto(UserDirectory.Entry entry) {
+        UserWithRolesDTO dto = new UserWithRolesDTO();
+        dto.setId(entry.getId());
+        dto.setEmail(entry.getEmail());
+        dto.setFullName(entry.getFullName());
+        dto.setLogin(entry.getLogin());
+        dto.setPhone(entry.getPhone());
+        dto.setBirthDate(entry.getBirthDate());
+        dto.setRoles(Arrays.stream(ERole.values())
+                .filter(role -> (entry.getRoleMask() & UserDirectory.roleBit(role)) != 0)
+                .map(ERole::name)
+                .collect(Collectors.toSet()));
+        return dto;
+    }
+
     private UserDTO convertToDto(User user) {
         UserDTO dto = new UserDTO();
         dto.setId(user.getId());
@@ -0,0 +1,98 @@
+package ru.naumen.sanatoriumproject.services;
+
+import org.apache.poi.ss.SpreadsheetVersion;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Font;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
+
+/**
+ * XLSX через потоковую книгу POI: в памяти держится только окно из последних строк,
+ * остальные сжатыми уходят во временный файл. Строки сверх предела листа переносятся на следующий лист.
+ */
+public class XlsxReportWriter implements ReportWriter {
+    private static final int WINDOW_SIZE = 100;
+    private static final int MAX_ROWS = SpreadsheetVersion.EXCEL2007.getMaxRows();
+
+    private final OutputStream out;
+    private final SXSSFWorkbook workbook = new SXSSFWorkbook(WINDOW_SIZE);
+    private final CellStyle headerStyle;
+    private final CellStyle dateStyle;
+    private String[] columns;
+    private SXSSFSheet sheet;
+    private int rowNumber;
+
+    public XlsxReportWriter(OutputStream out) {
+        this.out = out;
+        workbook.setCompressTempFiles(true);
+        Font bold = workbook.createFont();
+        bold.setBold(true);
+        headerStyle = workbook.createCellStyle();
+        headerStyle.setFont(bold);
+        dateStyle = workbook.createCellStyle();
+        dateStyle.setDataFormat(workbook.getCreationHelper().createDataFormat().getFormat("dd.mm.yyyy"));
+    }
+
+    @Override
+    public void header(String... columns) {
+        this.columns = columns;
+        newSheet();
+    }
+
+    @Override
+    public void row(Object[] values) {
+        if (sheet == null || rowNumber == MAX_ROWS) {
+            newSheet();
+        }
+        Row row = sheet.createRow(rowNumber++);
+        for (int i = 0; i < values.length; i++) {
+            Object value = values[i];
+            if (value == null) {
+                continue;
+            }
+            Cell cell = row.createCell(i);
+            if (value instanceof Number number) {
+                cell.setCellValue(number.doubleValue());
+            } else if (value instanceof LocalDate date) {
+                cell.setCellValue(date);
+                cell.setCellStyle(dateStyle);
+            } else {
+                cell.setCellValue(value.toString());
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            if (sheet == null) {
+                newSheet();
+            }
+            workbook.write(out);
+            out.flush();
+        } finally {
+            // close() в POI 5 сам удаляет временные файлы листов
+            workbook.close();
+        }
+    }
+
+    private void newSheet() {
+        sheet = workbook.createSheet("Лист " + (workbook.getNumberOfSheets() + 1));
+        rowNumber = 0;
+        if (columns != null) {
+            Row row = sheet.createRow(rowNumber++);
+            for (int i = 0; i < columns.length; i++) {
+                Cell cell = row.createCell(i);
+                cell.setCellValue(columns[i]);
+                cell.setCellStyle(headerStyle);
+            }
+            sheet.createFreezePane(0, 1);
+        }
+    }
+}
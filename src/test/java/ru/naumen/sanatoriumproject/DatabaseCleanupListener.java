@@ -0,0 +1,44 @@
+package ru.naumen.sanatoriumproject;
+
+import org.springframework.context.ApplicationContext;
+import org.springframework.core.env.Profiles;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestContext;
+import org.springframework.test.context.support.AbstractTestExecutionListener;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Очищает тестовую схему после каждого теста, чтобы данные одного теста не влияли на другие.
+ * Роли не трогаются: их загружает при старте RoleRegistry и держит в памяти весь контекст.
+ * Работает только с профилем test, поэтому рабочую базу очистить не может.
+ */
+public class DatabaseCleanupListener extends AbstractTestExecutionListener {
+    private static final String TABLES = """
+            SELECT quote_ident(table_name) FROM information_schema.tables
+            WHERE table_schema = current_schema() AND table_type = 'BASE TABLE' AND table_name <> 'roles'
+            """;
+
+    @Override
+    public int getOrder() {
+        return LOWEST_PRECEDENCE;
+    }
+
+    @Override
+    public void afterTestMethod(TestContext testContext) {
+        if (!testContext.hasApplicationContext()) {
+            return;
+        }
+        ApplicationContext context = testContext.getApplicationContext();
+        if (!context.getEnvironment().acceptsProfiles(Profiles.of("test"))) {
+            return;
+        }
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        List<String> tables = jdbcTemplate.queryForList(TABLES, String.class);
+        if (!tables.isEmpty()) {
+            // Идентификаторы не сбрасываются: индексы и кэши в памяти контекста могут помнить старые
+            jdbcTemplate.execute("TRUNCATE TABLE " + tables.stream().collect(Collectors.joining(", ")) + " CASCADE");
+        }
+    }
+}
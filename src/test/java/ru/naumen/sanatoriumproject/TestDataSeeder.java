@@ -0,0 +1,134 @@
+package ru.naumen.sanatoriumproject;
+
+import org.springframework.beans.factory.BeanFactory;
+import ru.naumen.sanatoriumproject.dtos.AppointmentDTO;
+import ru.naumen.sanatoriumproject.models.*;
+import ru.naumen.sanatoriumproject.repositories.*;
+import ru.naumen.sanatoriumproject.services.StaffCabinetService;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Создаёт минимальный набор связанных данных (сотрудник, студент, кабинет, процедура, смена)
+ * для тестов и бенчмарков, которым нужна реальная БД.
+ */
+public class TestDataSeeder {
+    private final BeanFactory beanFactory;
+    private final String suffix = UUID.randomUUID().toString().substring(0, 6);
+    private int cabinetCounter;
+    private int roomCounter;
+    private int userCounter;
+
+    private User staff;
+    private User student;
+    private Cabinet cabinet;
+    private Procedure procedure;
+    private Shift shift;
+
+    public TestDataSeeder(BeanFactory beanFactory) {
+        this.beanFactory = beanFactory;
+    }
+
+    protected <T> T bean(Class<T> type) {
+        return beanFactory.getBean(type);
+    }
+
+    public void seed() {
+        UserRepository users = bean(UserRepository.class);
+        staff = users.save(newUser("nurse"));
+        student = users.save(newUser("stud"));
+
+        cabinet = createCabinet();
+
+        procedure = new Procedure();
+        procedure.setName("Benchmark " + suffix);
+        procedure.setCabinet(cabinet);
+        procedure.setDefaultDuration(15);
+        procedure = bean(ProcedureRepository.class).save(procedure);
+
+        shift = new Shift("Benchmark " + suffix, LocalDate.now(), LocalDate.now().plusDays(21), true);
+        shift.setDescription("Benchmark");
+        shift = bean(ShiftRepository.class).save(shift);
+
+        bean(StaffCabinetService.class).assignCabinetToStaff(staff.getId(), cabinet.getId());
+    }
+
+    public Cabinet createCabinet() {
+        Cabinet created = new Cabinet();
+        created.setNumber("b" + suffix + cabinetCounter++);
+        created.setName("Benchmark " + suffix);
+        return bean(CabinetRepository.class).save(created);
+    }
+
+    public List<Room> createRooms(int count, int capacity) {
+        List<Room> rooms = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            rooms.add(new Room("r" + suffix + roomCounter++, capacity));
+        }
+        return bean(RoomRepository.class).saveAll(rooms);
+    }
+
+    public List<User> createStudents(int count) {
+        List<User> students = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            students.add(newUser("s" + userCounter++ + "_"));
+        }
+        return bean(UserRepository.class).saveAll(students);
+    }
+
+    public List<Long> createAppointments(int count) {
+        List<Appointment> appointments = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Appointment appointment = new Appointment();
+            appointment.setProcedure(procedure);
+            appointment.setStudent(student);
+            appointment.setDoctor(staff);
+            appointment.setShift(shift);
+            appointment.setAppointmentDate(LocalDate.now().plusDays(i % 21));
+            appointments.add(appointment);
+        }
+        return bean(AppointmentRepository.class).saveAll(appointments).stream()
+                .map(Appointment::getId)
+                .toList();
+    }
+
+    public AppointmentDTO newAppointmentDto() {
+        AppointmentDTO dto = new AppointmentDTO();
+        dto.setProcedureId(procedure.getId());
+        dto.setStudentId(student.getId());
+        dto.setDoctorId(staff.getId());
+        dto.setShiftId(shift.getId());
+        dto.setAppointmentDate(LocalDate.now());
+        return dto;
+    }
+
+    public User getStaff() {
+        return staff;
+    }
+
+    public User getStudent() {
+        return student;
+    }
+
+    public Cabinet getCabinet() {
+        return cabinet;
+    }
+
+    public Procedure getProcedure() {
+        return procedure;
+    }
+
+    public Shift getShift() {
+        return shift;
+    }
+
+    private User newUser(String prefix) {
+        User user = new User(prefix + suffix + "@bench.local", prefix + suffix, "{noop}bench",
+                "Бенчмарк Пользователь", LocalDate.of(2000, 1, 1));
+        user.setRoles(new java.util.HashSet<>());
+        return user;
+    }
+}
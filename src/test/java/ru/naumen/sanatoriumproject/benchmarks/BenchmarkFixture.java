@@ -0,0 +1,36 @@
+package ru.naumen.sanatoriumproject.benchmarks;
+
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.naumen.sanatoriumproject.SanatoriumProjectApplication;
+import ru.naumen.sanatoriumproject.TestDataSeeder;
+
+/**
+ * Поднимает контекст приложения без веб-сервера поверх тестовой схемы (профиль test).
+ */
+public class BenchmarkFixture extends TestDataSeeder implements AutoCloseable {
+    private final ConfigurableApplicationContext context;
+
+    public BenchmarkFixture() {
+        this(new SpringApplicationBuilder(SanatoriumProjectApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties("spring.jpa.show-sql=false")
+                .run());
+    }
+
+    private BenchmarkFixture(ConfigurableApplicationContext context) {
+        super(context);
+        this.context = context;
+    }
+
+    @Override
+    public <T> T bean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    @Override
+    public void close() {
+        context.close();
+    }
+}
@@ -0,0 +1,129 @@
+package ru.naumen.sanatoriumproject.benchmarks;
+
+import jakarta.persistence.EntityManager;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.naumen.sanatoriumproject.models.Appointment;
+import ru.naumen.sanatoriumproject.models.ProcedureCompletion;
+import ru.naumen.sanatoriumproject.models.Registration;
+import ru.naumen.sanatoriumproject.models.Shift;
+import ru.naumen.sanatoriumproject.models.User;
+import ru.naumen.sanatoriumproject.repositories.ShiftRepository;
+import ru.naumen.sanatoriumproject.services.ShiftService;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Удаление смены с 10 000 зависимых строк: 2000 регистраций, 6000 назначений и 2000 отметок выполнения.
+ * Сравнивается с удалением тех же строк по одной сущности через JPA.
+ * Требует запущенный PostgreSQL из application.properties.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class CascadeDeleteBenchmark {
+    private static final int GUESTS = 2000;
+    private static final int APPOINTMENTS = 6000;
+
+    private BenchmarkFixture fixture;
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate transactionTemplate;
+    private EntityManager entityManager;
+    private ShiftService shiftService;
+    private ShiftRepository shiftRepository;
+    private Long[] studentIds;
+    private Long shiftId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        fixture = new BenchmarkFixture();
+        fixture.seed();
+        jdbcTemplate = fixture.bean(JdbcTemplate.class);
+        transactionTemplate = new TransactionTemplate(fixture.bean(PlatformTransactionManager.class));
+        entityManager = fixture.bean(EntityManager.class);
+        shiftService = fixture.bean(ShiftService.class);
+        shiftRepository = fixture.bean(ShiftRepository.class);
+        studentIds = fixture.createStudents(GUESTS).stream().map(User::getId).toArray(Long[]::new);
+    }
+
+    @Setup(Level.Invocation)
+    public void createShift() {
+        Shift shift = new Shift("Delete benchmark", LocalDate.now(), LocalDate.now().plusDays(21), true);
+        shift.setDescription("Benchmark");
+        shiftId = shiftRepository.save(shift).getId();
+        jdbcTemplate.update(connection -> {
+            var ps = connection.prepareStatement(
+                    "INSERT INTO registrations (user_id, shift_id) SELECT u, ? FROM unnest(?::bigint[]) AS u");
+            ps.setLong(1, shiftId);
+            ps.setArray(2, connection.createArrayOf("bigint", studentIds));
+            return ps;
+        });
+        jdbcTemplate.update(connection -> {
+            var ps = connection.prepareStatement(
+                    "INSERT INTO appointments (procedure_id, student_id, doctor_id, shift_id, appointment_date) " +
+                    "SELECT ?, s.ids[1 + i % array_length(s.ids, 1)], ?, ?, current_date + (i % 21) " +
+                    "FROM generate_series(0, ? - 1) AS i, (SELECT ?::bigint[] AS ids) s");
+            ps.setLong(1, fixture.getProcedure().getId());
+            ps.setLong(2, fixture.getStaff().getId());
+            ps.setLong(3, shiftId);
+            ps.setInt(4, APPOINTMENTS);
+            ps.setArray(5, connection.createArrayOf("bigint", studentIds));
+            return ps;
+        });
+        jdbcTemplate.update("INSERT INTO procedure_completions (appointment_id, completed_by, completed_at) " +
+                "SELECT id, ?, now() FROM appointments WHERE shift_id = ? ORDER BY id LIMIT ?",
+                fixture.getStaff().getId(), shiftId, GUESTS);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        fixture.close();
+    }
+
+    @Benchmark
+    public void setBased() {
+        shiftService.deleteShift(shiftId);
+    }
+
+    // Прежний способ: каждая сущность загружается и удаляется отдельно.
+    // Каскад со смены на регистрации здесь не годится: загрузка Set<Registration> падает с ConcurrentModificationException
+    @Benchmark
+    public void entityByEntity() {
+        transactionTemplate.executeWithoutResult(status -> {
+            entityManager.createQuery("SELECT pc FROM ProcedureCompletion pc WHERE pc.appointment.shift.id = :id",
+                            ProcedureCompletion.class)
+                    .setParameter("id", shiftId)
+                    .getResultList()
+                    .forEach(entityManager::remove);
+            entityManager.flush();
+            List<Appointment> appointments = entityManager.createQuery(
+                            "SELECT a FROM Appointment a WHERE a.shift.id = :id", Appointment.class)
+                    .setParameter("id", shiftId)
+                    .getResultList();
+            appointments.forEach(entityManager::remove);
+            entityManager.flush();
+            entityManager.createQuery("SELECT r FROM Registration r WHERE r.shift.id = :id", Registration.class)
+                    .setParameter("id", shiftId)
+                    .getResultList()
+                    .forEach(entityManager::remove);
+            entityManager.flush();
+            shiftRepository.deleteById(shiftId);
+        });
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(CascadeDeleteBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,43 @@
+package ru.naumen.sanatoriumproject.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import ru.naumen.sanatoriumproject.security.CheckInToken;
+import ru.naumen.sanatoriumproject.security.CheckInTokenUtils;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Проверка QR-токенов на одном ядре; цель — не меньше 100 000 проверок в секунду.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(1)
+@Fork(1)
+public class CheckInTokenBenchmark {
+    private CheckInTokenUtils tokenUtils;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        tokenUtils = new CheckInTokenUtils("benchmark-secret");
+        token = tokenUtils.generateToken(new CheckInToken(1_234_567L, 42L, 17L, 98_765L, 301L, LocalDate.now()));
+    }
+
+    @Benchmark
+    public CheckInToken verify() {
+        return tokenUtils.parseToken(token);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(CheckInTokenBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,68 @@
+package ru.naumen.sanatoriumproject.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import ru.naumen.sanatoriumproject.dtos.ProcedureCompletionBatchDTO;
+import ru.naumen.sanatoriumproject.services.ProcedureCompletionService;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 100 отметок по одной против одного пакета из 100.
+ * Требует запущенный PostgreSQL из application.properties.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 20)
+@Fork(1)
+public class ProcedureCompletionBatchBenchmark {
+    private static final int SIZE = 100;
+
+    private BenchmarkFixture fixture;
+    private ProcedureCompletionService completionService;
+    private List<Long> appointmentIds;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        fixture = new BenchmarkFixture();
+        fixture.seed();
+        completionService = fixture.bean(ProcedureCompletionService.class);
+    }
+
+    @Setup(Level.Invocation)
+    public void prepareAppointments() {
+        appointmentIds = fixture.createAppointments(SIZE);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        fixture.close();
+    }
+
+    @Benchmark
+    public void singleCompletions() {
+        Long staffId = fixture.getStaff().getId();
+        for (Long appointmentId : appointmentIds) {
+            completionService.markProcedureAsCompleted(appointmentId, staffId, null);
+        }
+    }
+
+    @Benchmark
+    public Object batchCompletion() {
+        ProcedureCompletionBatchDTO batch = new ProcedureCompletionBatchDTO();
+        batch.setUserId(fixture.getStaff().getId());
+        batch.setAppointmentIds(appointmentIds);
+        return completionService.markProceduresAsCompleted(batch);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ProcedureCompletionBatchBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,83 @@
+package ru.naumen.sanatoriumproject.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.naumen.sanatoriumproject.services.ReportService;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Выгрузка листа назначений смены на 50 000 строк в CSV и XLSX. Форк запускается с кучей 128 МБ:
+ * отчёт, собранный в памяти целиком, в неё бы не поместился.
+ * Требует запущенный PostgreSQL из application.properties.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx128m")
+public class ReportExportBenchmark {
+    private static final int ROWS = 50_000;
+
+    private BenchmarkFixture fixture;
+    private ReportService reportService;
+    private Long shiftId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        fixture = new BenchmarkFixture();
+        fixture.seed();
+        reportService = fixture.bean(ReportService.class);
+        shiftId = fixture.getShift().getId();
+        fixture.bean(JdbcTemplate.class).update(
+                "INSERT INTO appointments (procedure_id, student_id, doctor_id, shift_id, appointment_date, notes) " +
+                "SELECT ?, ?, ?, ?, current_date + (i % 21), 'Примечание ' || i FROM generate_series(1, ?) AS i",
+                fixture.getProcedure().getId(), fixture.getStudent().getId(),
+                fixture.getStaff().getId(), shiftId, ROWS);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        fixture.close();
+    }
+
+    @Benchmark
+    public long csv() throws IOException {
+        CountingOutputStream out = new CountingOutputStream();
+        reportService.write(ReportService.Report.APPOINTMENTS, shiftId, ReportService.Format.CSV, out);
+        return out.count;
+    }
+
+    @Benchmark
+    public long xlsx() throws IOException {
+        CountingOutputStream out = new CountingOutputStream();
+        reportService.write(ReportService.Report.APPOINTMENTS, shiftId, ReportService.Format.XLSX, out);
+        return out.count;
+    }
+
+    private static class CountingOutputStream extends OutputStream {
+        private long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ReportExportBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,109 @@
+package ru.naumen.sanatoriumproject.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.naumen.sanatoriumproject.dtos.RoomAllocationResultDTO;
+import ru.naumen.sanatoriumproject.models.Registration;
+import ru.naumen.sanatoriumproject.models.Room;
+import ru.naumen.sanatoriumproject.models.User;
+import ru.naumen.sanatoriumproject.repositories.RegistrationRepository;
+import ru.naumen.sanatoriumproject.services.RegistrationService;
+import ru.naumen.sanatoriumproject.services.RoomAllocator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Расселение 2000 гостей по 500 комнатам: сам алгоритм и весь вызов allocateRooms с чтением и записью в БД.
+ * Требует запущенный PostgreSQL из application.properties.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+public class RoomAllocationBenchmark {
+    private static final int ROOMS = 500;
+    private static final int GUESTS = 2000;
+    private static final int DAYS = 21;
+
+    private BenchmarkFixture fixture;
+    private RegistrationService registrationService;
+    private JdbcTemplate jdbcTemplate;
+    private Long shiftId;
+
+    private int[] capacities;
+    private int[] from;
+    private int[] to;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(7);
+        capacities = new int[ROOMS];
+        for (int r = 0; r < ROOMS; r++) {
+            capacities[r] = 2 + random.nextInt(4);
+        }
+        // Группы по 5-40 человек с общими датами и одиночки с произвольными
+        from = new int[GUESTS];
+        to = new int[GUESTS];
+        int i = 0;
+        while (i < GUESTS) {
+            int size = random.nextInt(3) == 0 ? 1 : 5 + random.nextInt(36);
+            int start = random.nextInt(DAYS / 2);
+            int end = start + 5 + random.nextInt(DAYS - start - 4);
+            for (int k = 0; k < size && i < GUESTS; k++, i++) {
+                from[i] = start;
+                to[i] = end;
+            }
+        }
+
+        fixture = new BenchmarkFixture();
+        fixture.seed();
+        registrationService = fixture.bean(RegistrationService.class);
+        jdbcTemplate = fixture.bean(JdbcTemplate.class);
+        shiftId = fixture.getShift().getId();
+
+        List<Room> rooms = fixture.createRooms(ROOMS, 4);
+        List<User> guests = fixture.createStudents(GUESTS);
+        List<Registration> registrations = new ArrayList<>(GUESTS);
+        for (int g = 0; g < GUESTS; g++) {
+            Registration registration = new Registration(guests.get(g), null, fixture.getShift());
+            registration.setCheckInDate(fixture.getShift().getStartDate().plusDays(from[g]));
+            registration.setCheckOutDate(fixture.getShift().getStartDate().plusDays(to[g]));
+            registrations.add(registration);
+        }
+        fixture.bean(RegistrationRepository.class).saveAll(registrations);
+    }
+
+    @Setup(Level.Invocation)
+    public void resetRooms() {
+        jdbcTemplate.update("UPDATE registrations SET room_id = NULL WHERE shift_id = ?", shiftId);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        fixture.close();
+    }
+
+    @Benchmark
+    public int[] allocatorOnly() {
+        return new RoomAllocator(capacities).allocate(from, to);
+    }
+
+    @Benchmark
+    public RoomAllocationResultDTO allocateShift() {
+        return registrationService.allocateRooms(shiftId);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(RoomAllocationBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,93 @@
+package ru.naumen.sanatoriumproject.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import ru.naumen.sanatoriumproject.dtos.RoomDTO;
+import ru.naumen.sanatoriumproject.models.Registration;
+import ru.naumen.sanatoriumproject.models.Room;
+import ru.naumen.sanatoriumproject.models.User;
+import ru.naumen.sanatoriumproject.repositories.RegistrationRepository;
+import ru.naumen.sanatoriumproject.repositories.RoomRepository;
+import ru.naumen.sanatoriumproject.services.RoomService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Свободные комнаты смены при 500 комнатах: COUNT на каждую комнату, один агрегирующий запрос
+ * и индекс заселённости в памяти. Требует запущенный PostgreSQL из application.properties.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RoomAvailabilityBenchmark {
+    private static final int ROOMS = 500;
+    private static final int GUESTS = 1200;
+
+    private BenchmarkFixture fixture;
+    private RoomRepository roomRepository;
+    private RegistrationRepository registrationRepository;
+    private RoomService roomService;
+    private Long shiftId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        fixture = new BenchmarkFixture();
+        fixture.seed();
+        roomRepository = fixture.bean(RoomRepository.class);
+        registrationRepository = fixture.bean(RegistrationRepository.class);
+        roomService = fixture.bean(RoomService.class);
+        shiftId = fixture.getShift().getId();
+
+        List<Room> rooms = fixture.createRooms(ROOMS, 3);
+        List<User> guests = fixture.createStudents(GUESTS);
+        List<Registration> registrations = new ArrayList<>(GUESTS);
+        for (int i = 0; i < GUESTS; i++) {
+            registrations.add(new Registration(guests.get(i), rooms.get(i % ROOMS), fixture.getShift()));
+        }
+        registrationRepository.saveAll(registrations);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        fixture.close();
+    }
+
+    // Прежняя реализация getAvailableRooms
+    @Benchmark
+    public List<RoomDTO> countPerRoom() {
+        List<RoomDTO> available = new ArrayList<>();
+        for (Room room : roomRepository.findAll()) {
+            long occupied = registrationRepository.countByRoomIdAndShiftId(room.getId(), shiftId);
+            if (occupied < room.getCapacity()) {
+                RoomDTO dto = new RoomDTO();
+                dto.setId(room.getId());
+                dto.setCurrentOccupancy((int) occupied);
+                available.add(dto);
+            }
+        }
+        return available;
+    }
+
+    @Benchmark
+    public List<RoomRepository.RoomOccupancy> groupedQuery() {
+        return roomRepository.findAllWithOccupancy(shiftId);
+    }
+
+    @Benchmark
+    public List<RoomDTO> occupancyIndex() {
+        return roomService.getAvailableRooms(shiftId);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(RoomAvailabilityBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
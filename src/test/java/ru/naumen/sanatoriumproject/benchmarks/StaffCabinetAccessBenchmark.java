@@ -0,0 +1,48 @@
+package ru.naumen.sanatoriumproject.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import ru.naumen.sanatoriumproject.services.StaffCabinetAccessMatrix;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Проверка доступа по матрице в памяти: 500 сотрудников, 60 кабинетов, по 5 кабинетов на сотрудника.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StaffCabinetAccessBenchmark {
+    private static final int STAFF = 500;
+    private static final int CABINETS = 60;
+
+    private StaffCabinetAccessMatrix matrix;
+
+    @Setup
+    public void setUp() {
+        matrix = new StaffCabinetAccessMatrix(null);
+        for (long userId = 1; userId <= STAFF; userId++) {
+            for (int i = 0; i < 5; i++) {
+                matrix.grant(userId, (userId * 7 + i * 11) % CABINETS + 1);
+            }
+        }
+    }
+
+    @Benchmark
+    public boolean hasAccess() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return matrix.hasAccess(random.nextLong(1, STAFF + 1), random.nextLong(1, CABINETS + 1));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(StaffCabinetAccessBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
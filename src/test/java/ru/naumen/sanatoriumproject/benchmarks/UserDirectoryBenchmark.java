@@ -0,0 +1,86 @@
+package ru.naumen.sanatoriumproject.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import ru.naumen.sanatoriumproject.models.ERole;
+import ru.naumen.sanatoriumproject.services.UserDirectory;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Поиск по справочнику из 100 000 пользователей; цель — страница меньше чем за миллисекунду.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserDirectoryBenchmark {
+    private static final int USERS = 100_000;
+    private static final String[] LAST_NAMES = {"Иванов", "Смирнов", "Кузнецов", "Попов", "Васильев", "Петров",
+            "Соколов", "Михайлов", "Новиков", "Фёдоров", "Морозов", "Волков", "Алексеев", "Лебедев", "Семёнов"};
+    private static final String[] FIRST_NAMES = {"Александр", "Дмитрий", "Максим", "Сергей", "Андрей", "Алексей",
+            "Артём", "Илья", "Кирилл", "Михаил", "Никита", "Матвей", "Роман", "Егор", "Арсений"};
+
+    private UserDirectory directory;
+    private int userRole;
+    private long nextId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(11);
+        directory = new UserDirectory();
+        userRole = UserDirectory.roleBit(ERole.ROLE_USER);
+        int doctorRole = UserDirectory.roleBit(ERole.ROLE_DOCTOR);
+        for (long id = 1; id <= USERS; id++) {
+            String fullName = LAST_NAMES[random.nextInt(LAST_NAMES.length)] + " "
+                    + FIRST_NAMES[random.nextInt(FIRST_NAMES.length)] + " " + Long.toString(id, 36);
+            directory.put(new UserDirectory.Entry(id, fullName, "user" + id, "user" + id + "@mail.ru",
+                    "+7900" + (1_000_000 + random.nextInt(9_000_000)), null,
+                    random.nextInt(50) == 0 ? doctorRole : userRole));
+        }
+        nextId = USERS + 1;
+    }
+
+    @Benchmark
+    public UserDirectory.Result firstPage() {
+        return directory.search(null, 0, 0, 20);
+    }
+
+    @Benchmark
+    public UserDirectory.Result lastName() {
+        return directory.search("смирнов", userRole, 0, 20);
+    }
+
+    @Benchmark
+    public UserDirectory.Result nameAndInitial() {
+        return directory.search("петров ма", 0, 40, 20);
+    }
+
+    @Benchmark
+    public UserDirectory.Result login() {
+        return directory.search("user4242", 0, 0, 20);
+    }
+
+    @Benchmark
+    public UserDirectory.Result phoneFragment() {
+        return directory.search("900 123", 0, 0, 20);
+    }
+
+    @Benchmark
+    public void update() {
+        long id = nextId++ % USERS + 1;
+        directory.put(new UserDirectory.Entry(id, "Обновлённый Пользователь " + id, "user" + id,
+                "user" + id + "@mail.ru", null, null, userRole));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(UserDirectoryBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,49 @@
+package ru.naumen.sanatoriumproject.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class SecurityConfigTest {
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void actuatorIsForAdminsOnly() throws Exception {
+        mockMvc.perform(get("/actuator/metrics"))
+                .andExpect(status().isUnauthorized());
+        mockMvc.perform(get("/actuator/health"))
+                .andExpect(status().isUnauthorized());
+        mockMvc.perform(get("/actuator/metrics").with(user("nurse").roles("NURSE")))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(get("/actuator/metrics/completion.journal.depth").with(user("admin").roles("ADMIN")))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void reportsAreForRegistrarsAndAdmins() throws Exception {
+        mockMvc.perform(get("/api/reports/shift/1/roster"))
+                .andExpect(status().isUnauthorized());
+        mockMvc.perform(get("/api/reports/shift/1/roster").with(user("nurse").roles("NURSE")))
+                .andExpect(status().isForbidden());
+    }
+
+    @Test
+    void changeStreamsAreForMedicalStaff() throws Exception {
+        mockMvc.perform(get("/api/changes/cabinet/1"))
+                .andExpect(status().isUnauthorized());
+        mockMvc.perform(get("/api/changes/shift/1").with(user("registrar").roles("REGISTRAR")))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(get("/api/changes/cabinet/1").with(user("nurse").roles("NURSE")))
+                .andExpect(request().asyncStarted());
+    }
+}
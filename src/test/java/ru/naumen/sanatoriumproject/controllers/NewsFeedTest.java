@@ -0,0 +1,104 @@
+package ru.naumen.sanatoriumproject.controllers;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.UUID;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class NewsFeedTest {
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    void feedIsServedFromMemoryAndRebuiltOnChanges() throws Exception {
+        String title = "Новость " + UUID.randomUUID();
+        MvcResult created = mockMvc.perform(multipart("/api/news")
+                        .file(new MockMultipartFile("imageFile", "pic.png", "image/png", png()))
+                        .param("title", title)
+                        .param("content", "Текст новости")
+                        .header(HttpHeaders.HOST, "attacker.example")
+                        .with(user("admin").roles("ADMIN")))
+                .andExpect(status().isOk())
+                .andReturn();
+        long newsId = objectMapper.readTree(created.getResponse().getContentAsByteArray()).get("id").asLong();
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        statistics.setStatisticsEnabled(true);
+        MvcResult plain;
+        MvcResult gzipped;
+        try {
+            plain = mockMvc.perform(get("/api/news"))
+                    .andExpect(status().isOk())
+                    .andExpect(header().exists(HttpHeaders.ETAG))
+                    .andExpect(header().exists(HttpHeaders.LAST_MODIFIED))
+                    .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING))
+                    .andReturn();
+            gzipped = mockMvc.perform(get("/api/news").header(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate"))
+                    .andExpect(status().isOk())
+                    .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+                    .andReturn();
+            assertEquals(0, statistics.getPrepareStatementCount());
+        } finally {
+            statistics.setStatisticsEnabled(false);
+        }
+
+        byte[] json = plain.getResponse().getContentAsByteArray();
+        assertArrayEquals(json, new GZIPInputStream(
+                new ByteArrayInputStream(gzipped.getResponse().getContentAsByteArray())).readAllBytes());
+        JsonNode first = objectMapper.readTree(json).get(0);
+        assertEquals(title, first.get("title").asText());
+        // Лента собрана на запросе с чужим Host, но адрес картинки от него не зависит
+        assertTrue(first.get("imageUrl").asText().startsWith("http://localhost:8080/uploads/news/"),
+                first.get("imageUrl").asText());
+
+        String etag = plain.getResponse().getHeader(HttpHeaders.ETAG);
+        assertNotEquals(etag, gzipped.getResponse().getHeader(HttpHeaders.ETAG));
+        mockMvc.perform(get("/api/news").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+
+        mockMvc.perform(delete("/api/news/" + newsId).with(user("admin").roles("ADMIN")))
+                .andExpect(status().isNoContent());
+        MvcResult afterDelete = mockMvc.perform(get("/api/news").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andReturn();
+        assertFalse(afterDelete.getResponse().getContentAsString().contains(title));
+    }
+
+    private static byte[] png() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(40, 30, BufferedImage.TYPE_INT_RGB), "png", bytes);
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,108 @@
+package ru.naumen.sanatoriumproject.controllers;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import ru.naumen.sanatoriumproject.services.FileStorageService;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class NewsImageControllerTest {
+    private static final byte[] IMAGE = "0123456789abcdef".getBytes();
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private FileStorageService fileStorageService;
+
+    private String filename;
+
+    @BeforeEach
+    void storeImage() throws Exception {
+        filename = fileStorageService.storeFile(new MockMultipartFile("imageFile", "photo.png", "image/png", IMAGE));
+    }
+
+    @AfterEach
+    void deleteImage() throws Exception {
+        Files.deleteIfExists(fileStorageService.loadFile(filename));
+    }
+
+    @Test
+    void servesImmutableImageAndRevalidatesByEtag() throws Exception {
+        MvcResult result = mockMvc.perform(get("/uploads/news/" + filename))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("image/png"))
+                .andExpect(header().string(HttpHeaders.ETAG, "\"" + filename + "\""))
+                .andExpect(header().exists(HttpHeaders.LAST_MODIFIED))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "max-age=31536000, public, immutable"))
+                .andExpect(header().string(HttpHeaders.ACCEPT_RANGES, "bytes"))
+                .andExpect(header().string("X-Content-Type-Options", "nosniff"))
+                .andReturn();
+        assertArrayEquals(IMAGE, result.getResponse().getContentAsByteArray());
+
+        mockMvc.perform(get("/uploads/news/" + filename).header(HttpHeaders.IF_NONE_MATCH, "\"" + filename + "\""))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    void servesSingleByteRanges() throws Exception {
+        mockMvc.perform(get("/uploads/news/" + filename).header(HttpHeaders.RANGE, "bytes=2-5"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 2-5/16"))
+                .andExpect(content().bytes("2345".getBytes()));
+
+        mockMvc.perform(get("/uploads/news/" + filename).header(HttpHeaders.RANGE, "bytes=-3"))
+                .andExpect(status().isPartialContent())
+                .andExpect(content().bytes("def".getBytes()));
+
+        mockMvc.perform(get("/uploads/news/" + filename).header(HttpHeaders.RANGE, "bytes=100-"))
+                .andExpect(status().isRequestedRangeNotSatisfiable())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes */16"));
+
+        // Картинка сменилась с момента первой части — отдаётся целиком
+        mockMvc.perform(get("/uploads/news/" + filename)
+                        .header(HttpHeaders.RANGE, "bytes=2-5")
+                        .header(HttpHeaders.IF_RANGE, "\"other.png\""))
+                .andExpect(status().isOk())
+                .andExpect(content().bytes(IMAGE));
+    }
+
+    @Test
+    void rejectsMissingFilesAndPathsOutsideUploads() throws Exception {
+        mockMvc.perform(get("/uploads/news/missing.png"))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(get("/uploads/news/..%2F..%2Fpom.xml"))
+                .andExpect(status().is4xxClientError());
+    }
+
+    @Test
+    void servesOnlyImages() throws Exception {
+        for (String name : List.of("page" + UUID.randomUUID() + ".html", ".upload" + UUID.randomUUID() + ".tmp")) {
+            Path file = fileStorageService.loadFile(name);
+            Files.write(file, IMAGE);
+            try {
+                mockMvc.perform(get("/uploads/news/" + name))
+                        .andExpect(status().isNotFound());
+            } finally {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+}
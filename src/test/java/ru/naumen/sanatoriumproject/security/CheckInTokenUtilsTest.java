@@ -0,0 +1,38 @@
+package ru.naumen.sanatoriumproject.security;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CheckInTokenUtilsTest {
+    private final CheckInTokenUtils tokenUtils = new CheckInTokenUtils("test-secret");
+
+    @Test
+    void roundTripsAllFields() {
+        CheckInToken source = new CheckInToken(123456789L, 7L, 3L, 4242L, 15L, LocalDate.of(2026, 10, 19));
+
+        CheckInToken parsed = tokenUtils.parseToken(tokenUtils.generateToken(source));
+
+        assertNotNull(parsed);
+        assertEquals(source.getAppointmentId(), parsed.getAppointmentId());
+        assertEquals(source.getCabinetId(), parsed.getCabinetId());
+        assertEquals(source.getShiftId(), parsed.getShiftId());
+        assertEquals(source.getStudentId(), parsed.getStudentId());
+        assertEquals(source.getProcedureId(), parsed.getProcedureId());
+        assertEquals(source.getAppointmentDate(), parsed.getAppointmentDate());
+    }
+
+    @Test
+    void rejectsTamperedAndForeignTokens() {
+        String token = tokenUtils.generateToken(new CheckInToken(1L, 2L, 3L, 4L, 5L, LocalDate.of(2026, 1, 1)));
+        char last = token.charAt(3);
+        String tampered = token.substring(0, 3) + (last == 'A' ? 'B' : 'A') + token.substring(4);
+
+        assertNull(tokenUtils.parseToken(tampered));
+        assertNull(new CheckInTokenUtils("other-secret").parseToken(token));
+        assertNull(tokenUtils.parseToken("not a token"));
+        assertNull(tokenUtils.parseToken(""));
+    }
+}
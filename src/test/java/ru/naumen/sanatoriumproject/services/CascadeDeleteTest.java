@@ -0,0 +1,146 @@
+package ru.naumen.sanatoriumproject.services;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.web.server.ResponseStatusException;
+import ru.naumen.sanatoriumproject.TestDataSeeder;
+import ru.naumen.sanatoriumproject.dtos.AppointmentDTO;
+import ru.naumen.sanatoriumproject.dtos.RegistrationDTO;
+import ru.naumen.sanatoriumproject.dtos.StatsRebuildDTO;
+import ru.naumen.sanatoriumproject.models.Room;
+import ru.naumen.sanatoriumproject.models.User;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class CascadeDeleteTest {
+    @Autowired
+    private ApplicationContext context;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private CompletionStatsService statsService;
+
+    @Autowired
+    private AppointmentService appointmentService;
+
+    @Autowired
+    private ProcedureCompletionService completionService;
+
+    @Autowired
+    private RegistrationService registrationService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private ShiftService shiftService;
+
+    @Autowired
+    private RoomService roomService;
+
+    @Autowired
+    private StaffCabinetService staffCabinetService;
+
+    @Autowired
+    private StaffCabinetAccessMatrix accessMatrix;
+
+    @Test
+    void deletingUsersRemovesTheirHistoryAndKeepsCountersExact() {
+        statsService.rebuild();
+        TestDataSeeder data = new TestDataSeeder(context);
+        data.seed();
+        Long staffId = data.getStaff().getId();
+        Long studentId = data.getStudent().getId();
+        Room room = data.createRooms(1, 2).get(0);
+        User other = data.createStudents(1).get(0);
+        register(studentId, room.getId(), data.getShift().getId());
+        register(other.getId(), room.getId(), data.getShift().getId());
+
+        List<Long> ownAppointments = IntStream.range(0, 3)
+                .mapToObj(i -> appointmentService.createAppointment(data.newAppointmentDto()).getId())
+                .toList();
+        AppointmentDTO otherDto = data.newAppointmentDto();
+        otherDto.setStudentId(other.getId());
+        Long otherAppointment = appointmentService.createAppointment(otherDto).getId();
+        User nurse = data.createStudents(1).get(0);
+        staffCabinetService.assignCabinetToStaff(nurse.getId(), data.getCabinet().getId());
+        completionService.markProcedureAsCompleted(ownAppointments.get(0), staffId, null);
+        completionService.markProcedureAsCompleted(otherAppointment, nurse.getId(), null);
+
+        userService.deleteUser(studentId);
+        assertEquals(0, count("SELECT count(*) FROM users WHERE id = ?", studentId));
+        assertEquals(0, count("SELECT count(*) FROM appointments WHERE student_id = ?", studentId));
+        assertEquals(0, count("SELECT count(*) FROM registrations WHERE user_id = ?", studentId));
+        assertEquals(0, count("SELECT count(*) FROM procedure_completions WHERE completed_by = ?", staffId));
+        assertEquals(new StatsRebuildDTO(0, 0, 0), statsService.verify());
+
+        // Отметка медсестры — история другого гостя, поэтому медсестру не удалить
+        assertEquals(HttpStatus.CONFLICT, assertThrows(ResponseStatusException.class,
+                () -> userService.deleteUser(nurse.getId())).getStatusCode());
+        assertEquals(1, count("SELECT count(*) FROM users WHERE id = ?", nurse.getId()));
+        assertEquals(1, count("SELECT count(*) FROM procedure_completions WHERE completed_by = ?", nurse.getId()));
+
+        // Врач назначал процедуры другому гостю — его тоже не удалить, история гостя остаётся целиком
+        assertEquals(HttpStatus.CONFLICT, assertThrows(ResponseStatusException.class,
+                () -> userService.deleteUser(staffId)).getStatusCode());
+        assertEquals(1, count("SELECT count(*) FROM appointments WHERE id = ?", otherAppointment));
+        assertEquals(1, count("SELECT count(*) FROM procedure_completions WHERE appointment_id = ?", otherAppointment));
+
+        // История уходит вместе с самим гостем, после этого удаляются и медсестра, и врач
+        userService.deleteUser(other.getId());
+        assertEquals(0, count("SELECT count(*) FROM appointments WHERE id = ?", otherAppointment));
+        userService.deleteUser(nurse.getId());
+        userService.deleteUser(staffId);
+        assertEquals(0, count("SELECT count(*) FROM users WHERE id = ?", staffId));
+        assertEquals(0, count("SELECT count(*) FROM staff_cabinets WHERE user_id = ?", staffId));
+        assertEquals(0, accessMatrix.getCabinetIds(staffId).length);
+        assertEquals(new StatsRebuildDTO(0, 0, 0), statsService.verify());
+    }
+
+    @Test
+    void deletingRoomKeepsRegistrationsAndDeletingShiftRemovesEverything() {
+        statsService.rebuild();
+        TestDataSeeder data = new TestDataSeeder(context);
+        data.seed();
+        Long shiftId = data.getShift().getId();
+        Room room = data.createRooms(1, 1).get(0);
+        register(data.getStudent().getId(), room.getId(), shiftId);
+        Long appointmentId = appointmentService.createAppointment(data.newAppointmentDto()).getId();
+        appointmentService.createAppointment(data.newAppointmentDto());
+        completionService.markProcedureAsCompleted(appointmentId, data.getStaff().getId(), null);
+
+        roomService.deleteRoom(room.getId());
+        assertEquals(0, count("SELECT count(*) FROM rooms WHERE id = ?", room.getId()));
+        assertEquals(1, count("SELECT count(*) FROM registrations WHERE shift_id = ? AND room_id IS NULL", shiftId));
+
+        shiftService.deleteShift(shiftId);
+        assertEquals(0, count("SELECT count(*) FROM shifts WHERE id = ?", shiftId));
+        assertEquals(0, count("SELECT count(*) FROM registrations WHERE shift_id = ?", shiftId));
+        assertEquals(0, count("SELECT count(*) FROM appointments WHERE shift_id = ?", shiftId));
+        assertEquals(0, count("SELECT count(*) FROM procedure_completions WHERE appointment_id = ?", appointmentId));
+        assertEquals(0, count("SELECT count(*) FROM student_shift_stats WHERE shift_id = ?", shiftId));
+        assertEquals(new StatsRebuildDTO(0, 0, 0), statsService.verify());
+    }
+
+    private void register(Long userId, Long roomId, Long shiftId) {
+        RegistrationDTO dto = new RegistrationDTO();
+        dto.setUserId(userId);
+        dto.setRoomId(roomId);
+        dto.setShiftId(shiftId);
+        registrationService.registerUser(dto);
+    }
+
+    private long count(String sql, Long id) {
+        return jdbcTemplate.queryForObject(sql, Long.class, id);
+    }
+}
@@ -0,0 +1,160 @@
+package ru.naumen.sanatoriumproject.services;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import ru.naumen.sanatoriumproject.dtos.ChangeEventDTO;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChangeStreamServiceTest {
+    private ChangeStreamService service;
+
+    @AfterEach
+    void shutdown() {
+        service.shutdown();
+    }
+
+    @Test
+    void slowSubscriberIsDisconnectedWhenItsBufferOverflows() throws Exception {
+        TestEmitter slow = new TestEmitter(new CountDownLatch(1));
+        service = service(2, TimeUnit.HOURS.toMillis(1), slow);
+        service.subscribeToCabinet(1L);
+
+        service.onChange(event(1L));
+        assertTrue(slow.sending.await(5, TimeUnit.SECONDS));
+        // Одно событие застряло в отправке, два заполнили буфер, четвёртое его переполняет
+        for (int i = 0; i < 3; i++) {
+            service.onChange(event(1L));
+        }
+
+        assertTrue(slow.completed);
+        assertEquals(0, service.getSubscriberCount());
+        // Отключённому подписчику досылается только то, что уже было в отправке
+        slow.release.countDown();
+        assertTrue(slow.awaitSent(1));
+        service.onChange(event(1L));
+        Thread.sleep(100);
+        assertEquals(1, slow.sent.size());
+    }
+
+    @Test
+    void idleSubscriberReceivesHeartbeats() throws Exception {
+        TestEmitter emitter = new TestEmitter(null);
+        service = service(4, 50, emitter);
+        service.subscribeToShift(1L);
+
+        assertTrue(emitter.awaitSent(1));
+        assertTrue(emitter.sent.get(0).contains("heartbeat"), emitter.sent.get(0));
+        assertFalse(emitter.completed);
+    }
+
+    @Test
+    void subscriberIsRemovedOnCompletionTimeoutAndError() {
+        TestEmitter completed = new TestEmitter(null);
+        TestEmitter timedOut = new TestEmitter(null);
+        TestEmitter failed = new TestEmitter(null);
+        service = service(4, TimeUnit.HOURS.toMillis(1), completed, timedOut, failed);
+        service.subscribeToCabinet(1L);
+        service.subscribeToCabinet(2L);
+        service.subscribeToShift(3L);
+        assertEquals(3, service.getSubscriberCount());
+
+        completed.completionCallback.run();
+        assertEquals(2, service.getSubscriberCount());
+
+        timedOut.timeoutCallback.run();
+        assertEquals(1, service.getSubscriberCount());
+        assertTrue(timedOut.completed);
+
+        failed.errorCallback.accept(new IOException("Broken pipe"));
+        assertEquals(0, service.getSubscriberCount());
+    }
+
+    private static ChangeEventDTO event(Long cabinetId) {
+        return new ChangeEventDTO(ChangeEventDTO.Type.COMPLETION_CREATED, 1L, 1L, cabinetId, null);
+    }
+
+    private static ChangeStreamService service(int bufferSize, long heartbeatMs, TestEmitter... emitters) {
+        Deque<TestEmitter> next = new ArrayDeque<>(List.of(emitters));
+        return new ChangeStreamService(bufferSize, 60_000, heartbeatMs) {
+            @Override
+            SseEmitter createEmitter() {
+                return next.removeFirst();
+            }
+        };
+    }
+
+    // Emitter без HTTP-ответа: запоминает отправленное и обработчики, может задерживать отправку
+    private static class TestEmitter extends SseEmitter {
+        private final CountDownLatch release;
+        private final CountDownLatch sending = new CountDownLatch(1);
+        private final List<String> sent = new CopyOnWriteArrayList<>();
+        private volatile boolean completed;
+        private Runnable completionCallback;
+        private Runnable timeoutCallback;
+        private Consumer<Throwable> errorCallback;
+
+        TestEmitter(CountDownLatch release) {
+            this.release = release;
+        }
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            sending.countDown();
+            if (release != null) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException(e);
+                }
+            }
+            sent.add(builder.build().stream()
+                    .map(part -> String.valueOf(part.getData()))
+                    .collect(Collectors.joining()));
+        }
+
+        @Override
+        public void complete() {
+            completed = true;
+            super.complete();
+        }
+
+        @Override
+        public void onCompletion(Runnable callback) {
+            completionCallback = callback;
+            super.onCompletion(callback);
+        }
+
+        @Override
+        public void onTimeout(Runnable callback) {
+            timeoutCallback = callback;
+            super.onTimeout(callback);
+        }
+
+        @Override
+        public void onError(Consumer<Throwable> callback) {
+            errorCallback = callback;
+            super.onError(callback);
+        }
+
+        boolean awaitSent(int count) throws InterruptedException {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (sent.size() < count && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            return sent.size() >= count;
+        }
+    }
+}
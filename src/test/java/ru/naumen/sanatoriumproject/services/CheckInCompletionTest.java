@@ -0,0 +1,80 @@
+package ru.naumen.sanatoriumproject.services;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+import ru.naumen.sanatoriumproject.TestDataSeeder;
+import ru.naumen.sanatoriumproject.dtos.ProcedureCompletionResultDTO;
+import ru.naumen.sanatoriumproject.dtos.ProcedureDTO;
+import ru.naumen.sanatoriumproject.models.Cabinet;
+import ru.naumen.sanatoriumproject.repositories.ProcedureCompletionRepository;
+import ru.naumen.sanatoriumproject.security.CheckInToken;
+import ru.naumen.sanatoriumproject.security.CheckInTokenUtils;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class CheckInCompletionTest {
+    @Autowired
+    private ApplicationContext context;
+
+    @Autowired
+    private ProcedureCompletionService completionService;
+
+    @Autowired
+    private CheckInTokenUtils tokenUtils;
+
+    @Autowired
+    private ProcedureService procedureService;
+
+    @Autowired
+    private StaffCabinetService staffCabinetService;
+
+    @Autowired
+    private AppointmentService appointmentService;
+
+    @Autowired
+    private ProcedureCompletionRepository completionRepository;
+
+    @Test
+    void tokenIsRejectedOnceTheAppointmentChanged() {
+        TestDataSeeder data = new TestDataSeeder(context);
+        data.seed();
+        List<Long> appointmentIds = List.of(data.createAppointments(1).get(0), data.createAppointments(1).get(0));
+        Long staffId = data.getStaff().getId();
+        String moved = token(data, appointmentIds.get(0));
+        String deleted = token(data, appointmentIds.get(1));
+
+        // Процедуру перевели в другой кабинет, к которому у медсестры тоже есть доступ
+        Cabinet target = data.createCabinet();
+        staffCabinetService.assignCabinetToStaff(staffId, target.getId());
+        ProcedureDTO procedure = new ProcedureDTO();
+        procedure.setName(data.getProcedure().getName());
+        procedure.setDefaultDuration(data.getProcedure().getDefaultDuration());
+        procedure.setCabinetId(target.getId());
+        procedureService.updateProcedure(data.getProcedure().getId(), procedure);
+        appointmentService.deleteAppointment(appointmentIds.get(1));
+
+        assertEquals(HttpStatus.CONFLICT, assertThrows(ResponseStatusException.class,
+                () -> completionService.markProcedureAsCompletedByToken(moved, staffId, null)).getStatusCode());
+        assertEquals(HttpStatus.NOT_FOUND, assertThrows(ResponseStatusException.class,
+                () -> completionService.markProcedureAsCompletedByToken(deleted, staffId, null)).getStatusCode());
+        assertTrue(completionRepository.findByAppointmentId(appointmentIds.get(0)).isEmpty());
+
+        String current = tokenUtils.generateToken(new CheckInToken(appointmentIds.get(0), target.getId(),
+                data.getShift().getId(), data.getStudent().getId(), data.getProcedure().getId(), LocalDate.now()));
+        assertEquals(ProcedureCompletionResultDTO.Status.COMPLETED,
+                completionService.markProcedureAsCompletedByToken(current, staffId, null).getStatus());
+    }
+
+    private String token(TestDataSeeder data, Long appointmentId) {
+        return tokenUtils.generateToken(new CheckInToken(appointmentId, data.getCabinet().getId(),
+                data.getShift().getId(), data.getStudent().getId(), data.getProcedure().getId(), LocalDate.now()));
+    }
+}
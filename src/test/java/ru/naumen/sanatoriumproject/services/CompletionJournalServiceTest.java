@@ -0,0 +1,117 @@
+package ru.naumen.sanatoriumproject.services;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.http.HttpStatus;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.web.server.ResponseStatusException;
+import ru.naumen.sanatoriumproject.TestDataSeeder;
+import ru.naumen.sanatoriumproject.repositories.ProcedureCompletionRepository;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class CompletionJournalServiceTest {
+    @Autowired
+    private ApplicationContext context;
+
+    @Autowired
+    private CompletionJournalService journalService;
+
+    @Autowired
+    private CompletionJournal journal;
+
+    @Autowired
+    private ProcedureCompletionRepository completionRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private ProcedureCompletionService completionService;
+
+    @Autowired
+    private StaffCabinetAccessMatrix accessMatrix;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void replayAppliesEachAppointmentOnceAndDropsUnknown() throws Exception {
+        TestDataSeeder data = new TestDataSeeder(context);
+        data.seed();
+        Long appointmentId = data.createAppointments(1).get(0);
+        Long staffId = data.getStaff().getId();
+        LocalDateTime completedAt = LocalDateTime.now().withNano(0).minusMinutes(5);
+        double rejectedBefore = meterRegistry.counter("completion.journal.rejected").count();
+
+        journal.append(appointmentId, staffId, completedAt, "из журнала");
+        journal.append(appointmentId, staffId, completedAt.plusMinutes(1), "повтор");
+        journal.append(-1L, staffId, completedAt, null);
+        journalService.replay();
+        // Повторный перенос тех же записей, как после сбоя до контрольной точки
+        journal.append(appointmentId, staffId, completedAt, "из журнала");
+        journalService.replay();
+
+        assertEquals(0, journal.getDepth());
+        assertEquals(1, completionRepository.findByAppointmentId(appointmentId).size());
+        assertEquals(completedAt, completionRepository.findByAppointmentId(appointmentId).get(0).getCompletedAt());
+        assertEquals(rejectedBefore + 1, meterRegistry.counter("completion.journal.rejected").count());
+    }
+
+    @Test
+    void entryThatCannotBeAppliedIsDroppedWithoutBlockingTheJournal() throws Exception {
+        TestDataSeeder data = new TestDataSeeder(context);
+        data.seed();
+        Long appointmentId = data.createAppointments(1).get(0);
+        Long orphanedId = data.createAppointments(1).get(0);
+        // Автор удалён из БД, а в матрице доступа ещё числится: вставка падает на внешнем ключе
+        Long deletedUserId = Long.MAX_VALUE;
+        accessMatrix.grant(deletedUserId, data.getCabinet().getId());
+        double rejectedBefore = meterRegistry.counter("completion.journal.rejected").count();
+        try {
+            journal.append(appointmentId, data.getStaff().getId(), LocalDateTime.now(), null);
+            journal.append(orphanedId, deletedUserId, LocalDateTime.now(), null);
+            journalService.replay();
+        } finally {
+            accessMatrix.revokeAll(deletedUserId);
+        }
+
+        assertEquals(0, journal.getDepth());
+        assertEquals(1, completionRepository.findByAppointmentId(appointmentId).size());
+        assertTrue(completionRepository.findByAppointmentId(orphanedId).isEmpty());
+        assertEquals(rejectedBefore + 1, meterRegistry.counter("completion.journal.rejected").count());
+    }
+
+    @Test
+    void journalModeRefusesUsersWithoutCabinetAccess(@TempDir Path dir) throws Exception {
+        TestDataSeeder data = new TestDataSeeder(context);
+        data.seed();
+        Long appointmentId = data.createAppointments(1).get(0);
+        CompletionJournal pending = new CompletionJournal(dir.toString(), new SimpleMeterRegistry());
+        // Непустой журнал при старте — сервис сразу пишет в журнал
+        pending.append(-1L, data.getStaff().getId(), LocalDateTime.now(), null);
+        CompletionJournalService degraded = new CompletionJournalService(completionService, pending,
+                transactionManager, new SimpleMeterRegistry(), 3, 500, 3_600_000);
+        try {
+            assertEquals(HttpStatus.FORBIDDEN, assertThrows(ResponseStatusException.class,
+                    () -> degraded.markProcedureAsCompleted(appointmentId, data.getStudent().getId(), null))
+                    .getStatusCode());
+            assertEquals(1, pending.getDepth());
+
+            assertNull(degraded.markProcedureAsCompleted(appointmentId, data.getStaff().getId(), null).getId());
+            assertEquals(2, pending.getDepth());
+        } finally {
+            degraded.shutdown();
+            pending.close();
+        }
+    }
+}
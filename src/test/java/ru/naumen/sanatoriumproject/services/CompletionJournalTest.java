@@ -0,0 +1,67 @@
+package ru.naumen.sanatoriumproject.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompletionJournalTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void pendingEntriesSurviveRestartFromCheckpoint() throws Exception {
+        LocalDateTime completedAt = LocalDateTime.of(2026, 10, 19, 9, 30, 15);
+        CompletionJournal journal = open();
+        journal.append(1L, 10L, completedAt, "первая");
+        journal.append(2L, 10L, completedAt, null);
+        journal.append(3L, 11L, completedAt, "третья");
+
+        List<CompletionJournal.Entry> batch = journal.readBatch(2);
+        assertEquals(List.of(1L, 2L), batch.stream().map(CompletionJournal.Entry::getAppointmentId).toList());
+        assertEquals("первая", batch.get(0).getNotes());
+        assertNull(batch.get(1).getNotes());
+        assertEquals(completedAt, batch.get(0).getCompletedAt());
+        journal.acknowledge(batch.get(1).getNextOffset(), batch.size());
+        journal.close();
+
+        CompletionJournal reopened = open();
+        assertEquals(1, reopened.getDepth());
+        List<CompletionJournal.Entry> rest = reopened.readBatch(10);
+        assertEquals(1, rest.size());
+        assertEquals(3L, rest.get(0).getAppointmentId());
+        assertEquals(11L, rest.get(0).getCompletedById());
+
+        reopened.acknowledge(rest.get(0).getNextOffset(), 1);
+        assertEquals(0, reopened.getDepth());
+        assertEquals(0, reopened.getReplayLagMs());
+        assertEquals(0, Files.size(dir.resolve("completions.log")));
+        reopened.close();
+    }
+
+    @Test
+    void tornTailIsDiscardedOnRecovery() throws Exception {
+        CompletionJournal journal = open();
+        journal.append(1L, 10L, LocalDateTime.now(), "ok");
+        journal.close();
+        long validSize = Files.size(dir.resolve("completions.log"));
+        Files.write(dir.resolve("completions.log"), new byte[]{0, 0, 0, 40, 1, 2, 3}, StandardOpenOption.APPEND);
+
+        CompletionJournal recovered = open();
+        assertEquals(1, recovered.getDepth());
+        assertEquals(validSize, Files.size(dir.resolve("completions.log")));
+        assertEquals(1L, recovered.readBatch(10).get(0).getAppointmentId());
+        recovered.close();
+    }
+
+    private CompletionJournal open() {
+        return new CompletionJournal(dir.toString(), new SimpleMeterRegistry());
+    }
+}
@@ -0,0 +1,88 @@
+package ru.naumen.sanatoriumproject.services;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import ru.naumen.sanatoriumproject.TestDataSeeder;
+import ru.naumen.sanatoriumproject.dtos.CompletionStatsDTO;
+import ru.naumen.sanatoriumproject.dtos.ProcedureCompletionBatchDTO;
+import ru.naumen.sanatoriumproject.dtos.ProcedureDTO;
+import ru.naumen.sanatoriumproject.dtos.StatsRebuildDTO;
+import ru.naumen.sanatoriumproject.models.Cabinet;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest
+class CompletionStatsServiceTest {
+    @Autowired
+    private ApplicationContext context;
+
+    @Autowired
+    private CompletionStatsService statsService;
+
+    @Autowired
+    private ProcedureCompletionService completionService;
+
+    @Autowired
+    private AppointmentService appointmentService;
+
+    @Autowired
+    private ProcedureService procedureService;
+
+    @Test
+    void countersMatchRawTablesAfterWrites() {
+        statsService.rebuild();
+
+        TestDataSeeder data = new TestDataSeeder(context);
+        data.seed();
+        Long staffId = data.getStaff().getId();
+        List<Long> appointmentIds = IntStream.range(0, 6)
+                .mapToObj(i -> appointmentService.createAppointment(data.newAppointmentDto()).getId())
+                .toList();
+
+        completionService.markProcedureAsCompleted(appointmentIds.get(0), staffId, null);
+        completionService.markProcedureAsCompleted(appointmentIds.get(0), staffId, null);
+
+        ProcedureCompletionBatchDTO batch = new ProcedureCompletionBatchDTO();
+        batch.setUserId(staffId);
+        batch.setAppointmentIds(List.of(appointmentIds.get(0), appointmentIds.get(1), appointmentIds.get(2)));
+        completionService.markProceduresAsCompleted(batch);
+
+        appointmentService.deleteAppointment(appointmentIds.get(5));
+
+        CompletionStatsDTO student = statsService.getStudentStats(data.getShift().getId(), data.getStudent().getId());
+        assertEquals(5, student.getPrescribed());
+        assertEquals(3, student.getCompleted());
+
+        assertEquals(new StatsRebuildDTO(0, 0, 0), statsService.verify());
+    }
+
+    @Test
+    void movingProcedureMovesCabinetCounters() {
+        TestDataSeeder data = new TestDataSeeder(context);
+        data.seed();
+        Long appointmentId = appointmentService.createAppointment(data.newAppointmentDto()).getId();
+        appointmentService.createAppointment(data.newAppointmentDto());
+        completionService.markProcedureAsCompleted(appointmentId, data.getStaff().getId(), null);
+
+        Cabinet target = data.createCabinet();
+        ProcedureDTO procedure = new ProcedureDTO();
+        procedure.setName(data.getProcedure().getName());
+        procedure.setDefaultDuration(data.getProcedure().getDefaultDuration());
+        procedure.setCabinetId(target.getId());
+        procedureService.updateProcedure(data.getProcedure().getId(), procedure);
+
+        Long shiftId = data.getShift().getId();
+        LocalDate today = LocalDate.now();
+        CompletionStatsDTO moved = statsService.getCabinetDayStats(shiftId, target.getId(), today);
+        assertEquals(2, moved.getPrescribed());
+        assertEquals(1, moved.getCompleted());
+        assertEquals(0, statsService.getCabinetDayStats(shiftId, data.getCabinet().getId(), today).getPrescribed());
+        assertEquals(new StatsRebuildDTO(0, 0, 0), statsService.verify());
+    }
+}
@@ -0,0 +1,138 @@
+package ru.naumen.sanatoriumproject.services;
+
+import org.apache.commons.io.FilenameUtils;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+import ru.naumen.sanatoriumproject.models.News;
+import ru.naumen.sanatoriumproject.models.StoredFile;
+import ru.naumen.sanatoriumproject.repositories.NewsRepository;
+import ru.naumen.sanatoriumproject.repositories.StoredFileRepository;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class FileStorageServiceTest {
+    @Autowired
+    private FileStorageService fileStorageService;
+
+    @Autowired
+    private StoredFileRepository storedFileRepository;
+
+    @Autowired
+    private NewsRepository newsRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void sameContentIsStoredOnceAndDeletedWithLastReference() throws Exception {
+        byte[] content = ("image " + UUID.randomUUID()).getBytes();
+        String first = fileStorageService.storeFile(new MockMultipartFile("imageFile", "a.PNG", "image/png", content));
+        String second = fileStorageService.storeFile(new MockMultipartFile("imageFile", "b.png", "image/png", content));
+
+        assertEquals(first, second);
+        assertTrue(first.matches("[0-9a-f]{64}\\.png"), first);
+        Path file = fileStorageService.loadFile(first);
+        assertArrayEquals(content, Files.readAllBytes(file));
+        assertEquals(2, refCount(first));
+
+        Path variant = fileStorageService.loadFile(ImageVariantService.variantName(first, 320));
+        Files.write(variant, new byte[]{1});
+        fileStorageService.release(first);
+        assertTrue(Files.exists(file));
+        assertEquals(1, refCount(first));
+
+        fileStorageService.release(first);
+        assertFalse(Files.exists(file));
+        assertFalse(Files.exists(variant));
+        assertFalse(storedFileRepository.existsById(first));
+    }
+
+    @Test
+    void releasingOneExtensionKeepsTheSameContentUnderAnother() throws Exception {
+        byte[] content = ("image " + UUID.randomUUID()).getBytes();
+        String jpg = fileStorageService.storeFile(new MockMultipartFile("imageFile", "a.jpeg", "image/jpeg", content));
+        // Так то же содержимое сохранялось, пока расширение бралось из имени файла у клиента
+        String jpeg = FilenameUtils.getBaseName(jpg) + ".jpeg";
+        Files.write(fileStorageService.loadFile(jpeg), content);
+        transactionTemplate.executeWithoutResult(status -> storedFileRepository.increment(jpeg));
+        Path jpgVariant = fileStorageService.loadFile(ImageVariantService.variantName(jpg, 320));
+        Path jpegVariant = fileStorageService.loadFile(ImageVariantService.variantName(jpeg, 320));
+        Files.write(jpgVariant, new byte[]{1});
+        Files.write(jpegVariant, new byte[]{1});
+
+        fileStorageService.release(jpg);
+        assertFalse(Files.exists(fileStorageService.loadFile(jpg)));
+        assertFalse(Files.exists(jpgVariant));
+        assertTrue(Files.exists(fileStorageService.loadFile(jpeg)));
+        assertTrue(Files.exists(jpegVariant));
+
+        fileStorageService.release(jpeg);
+        assertFalse(Files.exists(fileStorageService.loadFile(jpeg)));
+        assertFalse(Files.exists(jpegVariant));
+    }
+
+    @Test
+    void storedNameTakesItsExtensionFromTheValidatedType() throws Exception {
+        byte[] content = ("image " + UUID.randomUUID()).getBytes();
+        String stored = fileStorageService.storeFile(new MockMultipartFile("imageFile", "x.html", "image/png", content));
+        assertTrue(stored.endsWith(".png"), stored);
+        fileStorageService.release(stored);
+
+        ResponseStatusException error = assertThrows(ResponseStatusException.class, () -> fileStorageService.storeFile(
+                new MockMultipartFile("imageFile", "x.svg", "image/svg+xml", content)));
+        assertEquals(HttpStatus.BAD_REQUEST, error.getStatusCode());
+    }
+
+    @Test
+    void rolledBackUploadDropsItsReference() {
+        byte[] content = ("image " + UUID.randomUUID()).getBytes();
+        String[] stored = new String[1];
+        transactionTemplate.executeWithoutResult(status -> {
+            try {
+                stored[0] = fileStorageService.storeFile(new MockMultipartFile("imageFile", "a.jpg", "image/jpeg", content));
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+            assertTrue(Files.exists(fileStorageService.loadFile(stored[0])));
+            status.setRollbackOnly();
+        });
+
+        assertFalse(storedFileRepository.existsById(stored[0]));
+        assertFalse(Files.exists(fileStorageService.loadFile(stored[0])));
+    }
+
+    @Test
+    void legacyFilesAreCountedFromNews() throws Exception {
+        String legacy = UUID.randomUUID() + ".png";
+        Path file = fileStorageService.loadFile(legacy);
+        Files.createDirectories(file.getParent());
+        Files.write(file, new byte[]{1, 2, 3});
+        News news = new News();
+        news.setTitle("Старая новость");
+        news.setContent("Картинка загружена до перехода на хеши");
+        news.setImagePath(legacy);
+        news = newsRepository.save(news);
+
+        fileStorageService.registerExistingFiles();
+        assertEquals(1, refCount(legacy));
+        assertEquals(file.toAbsolutePath().normalize(), fileStorageService.loadStoredFile(legacy));
+
+        newsRepository.delete(news);
+        fileStorageService.release(legacy);
+        assertFalse(Files.exists(file));
+    }
+
+    private int refCount(String name) {
+        return storedFileRepository.findById(name).map(StoredFile::getRefCount).orElse(0);
+    }
+}
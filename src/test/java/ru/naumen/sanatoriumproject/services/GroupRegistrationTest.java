@@ -0,0 +1,87 @@
+package ru.naumen.sanatoriumproject.services;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import ru.naumen.sanatoriumproject.TestDataSeeder;
+import ru.naumen.sanatoriumproject.dtos.GroupRegistrationDTO;
+import ru.naumen.sanatoriumproject.dtos.GroupRegistrationResultDTO;
+import ru.naumen.sanatoriumproject.dtos.RegistrationDTO;
+import ru.naumen.sanatoriumproject.models.Room;
+import ru.naumen.sanatoriumproject.models.User;
+import ru.naumen.sanatoriumproject.repositories.RegistrationRepository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static ru.naumen.sanatoriumproject.dtos.GroupRegistrationResultDTO.Status.*;
+
+@SpringBootTest
+class GroupRegistrationTest {
+    @Autowired
+    private ApplicationContext context;
+
+    @Autowired
+    private RegistrationService registrationService;
+
+    @Autowired
+    private RegistrationRepository registrationRepository;
+
+    @Test
+    void groupIsValidatedRowByRowAndRespectsCapacity() {
+        TestDataSeeder data = new TestDataSeeder(context);
+        data.seed();
+        Long shiftId = data.getShift().getId();
+        List<Room> rooms = data.createRooms(2, 2);
+        Long roomA = rooms.get(0).getId();
+        Long roomB = rooms.get(1).getId();
+        List<User> users = data.createStudents(7);
+        Long settled = users.get(0).getId();
+        Long u1 = users.get(1).getId();
+        Long u2 = users.get(2).getId();
+        Long u3 = users.get(3).getId();
+        Long u4 = users.get(4).getId();
+        Long u5 = users.get(5).getId();
+        Long u6 = users.get(6).getId();
+
+        RegistrationDTO existing = new RegistrationDTO();
+        existing.setUserId(settled);
+        existing.setRoomId(roomB);
+        existing.setShiftId(shiftId);
+        registrationService.registerUser(existing);
+        RegistrationDTO neighbour = new RegistrationDTO();
+        neighbour.setUserId(u6);
+        neighbour.setRoomId(roomB);
+        neighbour.setShiftId(shiftId);
+        registrationService.registerUser(neighbour);
+
+        LocalDate checkIn = LocalDate.now();
+        List<GroupRegistrationResultDTO> results = registrationService.registerGroup(new GroupRegistrationDTO(
+                shiftId, checkIn, checkIn.plusDays(14), List.of(
+                        new GroupRegistrationDTO.Member(u1, roomA),
+                        new GroupRegistrationDTO.Member(u2, roomB),
+                        new GroupRegistrationDTO.Member(settled, roomA),
+                        new GroupRegistrationDTO.Member(u3, roomB),
+                        new GroupRegistrationDTO.Member(u1, roomA),
+                        new GroupRegistrationDTO.Member(-1L, roomA),
+                        new GroupRegistrationDTO.Member(u4, -1L),
+                        new GroupRegistrationDTO.Member(u5, roomA),
+                        new GroupRegistrationDTO.Member(u6, null))));
+
+        assertEquals(List.of(REGISTERED, ROOM_FULL, REGISTERED, REGISTERED, DUPLICATE, USER_NOT_FOUND,
+                        ROOM_NOT_FOUND, ROOM_FULL, REGISTERED),
+                results.stream().map(GroupRegistrationResultDTO::getStatus).toList());
+        assertEquals(2, registrationRepository.countByRoomIdAndShiftId(roomA, shiftId));
+        assertEquals(2, registrationRepository.countByRoomIdAndShiftId(roomB, shiftId));
+        assertEquals(roomA, registrationRepository.findByUserIdAndShiftId(settled, shiftId)
+                .orElseThrow().getRoom().getId());
+        // Участник без комнаты в заявке остаётся в своей
+        assertEquals(roomB, results.get(8).getRoomId());
+        assertEquals(roomB, registrationRepository.findByUserIdAndShiftId(u6, shiftId)
+                .orElseThrow().getRoom().getId());
+        assertEquals(checkIn, registrationRepository.findByUserIdAndShiftId(u3, shiftId)
+                .orElseThrow().getCheckInDate());
+    }
+}
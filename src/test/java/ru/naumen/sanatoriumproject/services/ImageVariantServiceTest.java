@@ -0,0 +1,96 @@
+package ru.naumen.sanatoriumproject.services;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockMultipartFile;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class ImageVariantServiceTest {
+    @Autowired
+    private ImageVariantService imageVariantService;
+
+    @Autowired
+    private FileStorageService fileStorageService;
+
+    private final List<Path> created = new ArrayList<>();
+
+    @AfterEach
+    void deleteFiles() throws Exception {
+        for (Path path : created) {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    @Test
+    void buildsDownscaledVariantsOnceAndSkipsUpscaling() throws Exception {
+        String filename = store("photo.png", 1000, 500);
+        imageVariantService.generateAsync(filename);
+        Map<Integer, String> ready = awaitVariants(filename, 2);
+
+        assertEquals(List.of(320, 640), List.copyOf(ready.keySet()));
+        BufferedImage small = ImageIO.read(fileStorageService.loadFile(ready.get(320)).toFile());
+        assertEquals(320, small.getWidth());
+        assertEquals(160, small.getHeight());
+
+        long modified = Files.getLastModifiedTime(fileStorageService.loadFile(ready.get(640))).toMillis();
+        imageVariantService.generateAsync(filename);
+        Thread.sleep(200);
+        assertEquals(modified, Files.getLastModifiedTime(fileStorageService.loadFile(ready.get(640))).toMillis());
+    }
+
+    @Test
+    void legacyImagesGetVariantsOnFirstLookup() throws Exception {
+        String filename = store("legacy.jpg", 700, 700);
+
+        // Картинка загружена «до» конвейера: копии запускает первый запрос списка новостей
+        imageVariantService.readyVariants(filename);
+        Map<Integer, String> ready = awaitVariants(filename, 2);
+
+        assertEquals(List.of(320, 640), List.copyOf(ready.keySet()));
+        assertEquals(640, ImageIO.read(fileStorageService.loadFile(ready.get(640)).toFile()).getWidth());
+    }
+
+    private String store(String originalName, int width, int height) throws Exception {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setColor(Color.ORANGE);
+        graphics.fillRect(0, 0, width / 2, height);
+        graphics.dispose();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        String format = originalName.endsWith(".png") ? "png" : "jpeg";
+        ImageIO.write(image, format, bytes);
+
+        String filename = fileStorageService.storeFile(
+                new MockMultipartFile("imageFile", originalName, "image/" + format, bytes.toByteArray()));
+        created.add(fileStorageService.loadFile(filename));
+        for (int variantWidth : new int[]{320, 640, 1280}) {
+            created.add(fileStorageService.loadFile(ImageVariantService.variantName(filename, variantWidth)));
+        }
+        return filename;
+    }
+
+    private Map<Integer, String> awaitVariants(String filename, int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        Map<Integer, String> ready = imageVariantService.readyVariants(filename);
+        while (ready.size() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+            ready = imageVariantService.readyVariants(filename);
+        }
+        return ready;
+    }
+}
@@ -0,0 +1,79 @@
+package ru.naumen.sanatoriumproject.services;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import ru.naumen.sanatoriumproject.TestDataSeeder;
+import ru.naumen.sanatoriumproject.dtos.OccupancyCalendarDTO;
+import ru.naumen.sanatoriumproject.dtos.RegistrationDTO;
+import ru.naumen.sanatoriumproject.models.Room;
+import ru.naumen.sanatoriumproject.models.User;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class OccupancyCalendarTest {
+    @Autowired
+    private ApplicationContext context;
+
+    @Autowired
+    private RoomService roomService;
+
+    @Autowired
+    private RegistrationService registrationService;
+
+    @Autowired
+    private RoomOccupancyIndex occupancyIndex;
+
+    @Test
+    void calendarCountsGuestsPerDayAndFollowsRegistrationChanges() {
+        TestDataSeeder data = new TestDataSeeder(context);
+        data.seed();
+        Long shiftId = data.getShift().getId();
+        LocalDate start = data.getShift().getStartDate();
+        List<Room> rooms = data.createRooms(2, 2);
+        Long first = rooms.get(0).getId();
+        Long second = rooms.get(1).getId();
+        List<User> guests = data.createStudents(3);
+
+        register(guests.get(0), first, shiftId, start, start.plusDays(5));
+        register(guests.get(1), first, shiftId, start.plusDays(3), start.plusDays(10));
+        register(guests.get(2), second, shiftId, null, null);
+
+        OccupancyCalendarDTO calendar = roomService.getOccupancyCalendar(shiftId, start, start.plusDays(5));
+        assertEquals(start, calendar.getFrom());
+        assertEquals(start.plusDays(5), calendar.getTo());
+        assertArrayEquals(new int[]{1, 1, 1, 2, 2, 1}, days(calendar).get(first));
+        assertArrayEquals(new int[]{1, 1, 1, 1, 1, 1}, days(calendar).get(second));
+        assertNotNull(occupancyIndex.getCalendar(shiftId));
+
+        // Выписка сбрасывает календарь смены, следующий запрос считает его заново
+        registrationService.unregisterUser(guests.get(0).getId(), shiftId);
+        assertNull(occupancyIndex.getCalendar(shiftId));
+        calendar = roomService.getOccupancyCalendar(shiftId, start.plusDays(3), null);
+        assertEquals(start.plusDays(20), calendar.getTo());
+        assertArrayEquals(new int[]{1, 1, 1, 1, 1, 1, 1, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0},
+                days(calendar).get(first));
+    }
+
+    private void register(User user, Long roomId, Long shiftId, LocalDate checkIn, LocalDate checkOut) {
+        RegistrationDTO dto = new RegistrationDTO();
+        dto.setUserId(user.getId());
+        dto.setRoomId(roomId);
+        dto.setShiftId(shiftId);
+        dto.setCheckInDate(checkIn);
+        dto.setCheckOutDate(checkOut);
+        registrationService.registerUser(dto);
+    }
+
+    private Map<Long, int[]> days(OccupancyCalendarDTO calendar) {
+        return calendar.getRooms().stream()
+                .collect(Collectors.toMap(OccupancyCalendarDTO.RoomDays::getRoomId, OccupancyCalendarDTO.RoomDays::getOccupancy));
+    }
+}
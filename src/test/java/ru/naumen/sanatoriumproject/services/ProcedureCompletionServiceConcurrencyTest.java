@@ -0,0 +1,67 @@
+package ru.naumen.sanatoriumproject.services;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import ru.naumen.sanatoriumproject.TestDataSeeder;
+import ru.naumen.sanatoriumproject.dtos.ProcedureCompletionDTO;
+import ru.naumen.sanatoriumproject.repositories.ProcedureCompletionRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest
+class ProcedureCompletionServiceConcurrencyTest {
+    private static final int THREADS = 32;
+
+    @Autowired
+    private ApplicationContext context;
+
+    @Autowired
+    private ProcedureCompletionService completionService;
+
+    @Autowired
+    private ProcedureCompletionRepository completionRepository;
+
+    @Test
+    void concurrentCompletionsOfSameAppointmentCreateSingleRow() throws Exception {
+        TestDataSeeder data = new TestDataSeeder(context);
+        data.seed();
+        Long appointmentId = data.createAppointments(1).get(0);
+        Long staffId = data.getStaff().getId();
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<ProcedureCompletionDTO>> futures = new ArrayList<>();
+        try {
+            for (int i = 0; i < THREADS; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return completionService.markProcedureAsCompleted(appointmentId, staffId, null);
+                }));
+            }
+            start.countDown();
+
+            Set<Long> completionIds = futures.stream()
+                    .map(future -> {
+                        try {
+                            return future.get(30, TimeUnit.SECONDS).getId();
+                        } catch (Exception e) {
+                            throw new IllegalStateException(e);
+                        }
+                    })
+                    .collect(Collectors.toSet());
+
+            assertEquals(1, completionIds.size());
+            assertEquals(1, completionRepository.findByAppointmentId(appointmentId).size());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
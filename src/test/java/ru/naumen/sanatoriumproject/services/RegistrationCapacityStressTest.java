@@ -0,0 +1,104 @@
+package ru.naumen.sanatoriumproject.services;
+
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+import ru.naumen.sanatoriumproject.TestDataSeeder;
+import ru.naumen.sanatoriumproject.dtos.RegistrationDTO;
+import ru.naumen.sanatoriumproject.models.Room;
+import ru.naumen.sanatoriumproject.models.User;
+import ru.naumen.sanatoriumproject.repositories.RegistrationRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest
+class RegistrationCapacityStressTest {
+    private static final Logger logger = LoggerFactory.getLogger(RegistrationCapacityStressTest.class);
+    private static final int THREADS = 16;
+
+    @Autowired
+    private ApplicationContext context;
+
+    @Autowired
+    private RegistrationService registrationService;
+
+    @Autowired
+    private RegistrationRepository registrationRepository;
+
+    @Test
+    void concurrentRegistrationsAcrossRoomsNeverOverbook() throws Exception {
+        TestDataSeeder data = new TestDataSeeder(context);
+        data.seed();
+        List<Room> rooms = data.createRooms(100, 2);
+        List<User> guests = data.createStudents(400);
+
+        int registered = registerConcurrently(data, guests, i -> rooms.get(i % rooms.size()).getId(), "spread");
+
+        assertEquals(200, registered);
+        for (Room room : rooms) {
+            assertEquals(2, registrationRepository.countByRoomIdAndShiftId(room.getId(), data.getShift().getId()));
+        }
+    }
+
+    @Test
+    void concurrentRegistrationsIntoOneRoomNeverOverbook() throws Exception {
+        TestDataSeeder data = new TestDataSeeder(context);
+        data.seed();
+        Room room = data.createRooms(1, 5).get(0);
+        List<User> guests = data.createStudents(200);
+
+        int registered = registerConcurrently(data, guests, i -> room.getId(), "single room");
+
+        assertEquals(5, registered);
+        assertEquals(5, registrationRepository.countByRoomIdAndShiftId(room.getId(), data.getShift().getId()));
+    }
+
+    private int registerConcurrently(TestDataSeeder data, List<User> guests,
+                                     IntFunction<Long> roomOf, String scenario) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger registered = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < guests.size(); i++) {
+            RegistrationDTO dto = new RegistrationDTO();
+            dto.setUserId(guests.get(i).getId());
+            dto.setShiftId(data.getShift().getId());
+            dto.setRoomId(roomOf.apply(i));
+            futures.add(executor.submit(() -> {
+                start.await();
+                try {
+                    registrationService.registerUser(dto);
+                    registered.incrementAndGet();
+                } catch (ResponseStatusException e) {
+                    assertEquals(HttpStatus.BAD_REQUEST, e.getStatusCode());
+                }
+                return null;
+            }));
+        }
+
+        long startedAt = System.nanoTime();
+        start.countDown();
+        try {
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        double seconds = (System.nanoTime() - startedAt) / 1e9;
+        logger.info("{}: {} registration attempts in {} ms, {} attempts/s", scenario, guests.size(),
+                Math.round(seconds * 1000), Math.round(guests.size() / seconds));
+        return registered.get();
+    }
+}
@@ -0,0 +1,83 @@
+package ru.naumen.sanatoriumproject.services;
+
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import ru.naumen.sanatoriumproject.TestDataSeeder;
+import ru.naumen.sanatoriumproject.dtos.RegistrationDTO;
+import ru.naumen.sanatoriumproject.models.Room;
+import ru.naumen.sanatoriumproject.models.User;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class ReportServiceTest {
+    @Autowired
+    private ApplicationContext context;
+
+    @Autowired
+    private ReportService reportService;
+
+    @Autowired
+    private RegistrationService registrationService;
+
+    @Test
+    void reportsAreWrittenAsCsvAndXlsx() throws Exception {
+        TestDataSeeder data = new TestDataSeeder(context);
+        data.seed();
+        Long shiftId = data.getShift().getId();
+        Room room = data.createRooms(1, 3).get(0);
+        List<User> guests = data.createStudents(3);
+        for (User guest : guests) {
+            RegistrationDTO dto = new RegistrationDTO();
+            dto.setUserId(guest.getId());
+            dto.setRoomId(room.getId());
+            dto.setShiftId(shiftId);
+            registrationService.registerUser(dto);
+        }
+        data.createAppointments(5);
+
+        ByteArrayOutputStream csv = new ByteArrayOutputStream();
+        reportService.write(ReportService.Report.SHIFT_ROSTER, shiftId, ReportService.Format.CSV, csv);
+        String[] lines = csv.toString(StandardCharsets.UTF_8).split("\r\n");
+        assertEquals(4, lines.length);
+        assertTrue(lines[0].startsWith("\uFEFFФИО,"));
+        assertTrue(lines[1].contains("," + room.getNumber() + ","));
+
+        ByteArrayOutputStream xlsx = new ByteArrayOutputStream();
+        reportService.write(ReportService.Report.APPOINTMENTS, shiftId, ReportService.Format.XLSX, xlsx);
+        try (XSSFWorkbook workbook = new XSSFWorkbook(new ByteArrayInputStream(xlsx.toByteArray()))) {
+            Sheet sheet = workbook.getSheetAt(0);
+            assertEquals(5, sheet.getLastRowNum());
+            assertEquals("Дата", sheet.getRow(0).getCell(0).getStringCellValue());
+            assertEquals(data.getShift().getStartDate(), sheet.getRow(1).getCell(0).getLocalDateTimeCellValue().toLocalDate());
+        }
+    }
+
+    @Test
+    void csvFieldsAreQuotedWhenNeeded() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (CsvReportWriter writer = new CsvReportWriter(out)) {
+            writer.row(new Object[]{"plain", "a,b", "say \"hi\"", null, 3});
+        }
+        assertEquals("\uFEFFplain,\"a,b\",\"say \"\"hi\"\"\",,3\r\n", out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void csvTextThatLooksLikeFormulaIsNeutralized() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (CsvReportWriter writer = new CsvReportWriter(out)) {
+            writer.row(new Object[]{"=HYPERLINK(\"x\")", "+1", "-2", "@SUM(A1)", "\tx", "a=b", -5});
+        }
+        assertEquals("\uFEFF\"'=HYPERLINK(\"\"x\"\")\",'+1,'-2,'@SUM(A1),'\tx,a=b,-5\r\n",
+                out.toString(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,82 @@
+package ru.naumen.sanatoriumproject.services;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.naumen.sanatoriumproject.dtos.UserDTO;
+import ru.naumen.sanatoriumproject.models.ERole;
+import ru.naumen.sanatoriumproject.models.Role;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class RoleRegistryTest {
+    @Autowired
+    private RoleRegistry roleRegistry;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void everyRoleIsRegistered() {
+        for (ERole name : ERole.values()) {
+            assertEquals(name, roleRegistry.get(name).getName());
+            assertNotNull(roleRegistry.get(name).getId());
+        }
+        assertEquals(ERole.values().length, roleRegistry.getAll().size());
+    }
+
+    @Test
+    void userCreationAndUpdateDoNotQueryRoles() {
+        Long createdId;
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        statistics.setStatisticsEnabled(true);
+        try {
+            UserDTO created = userService.createUserWithRoles(newUser(),
+                    EnumSet.of(ERole.ROLE_DOCTOR, ERole.ROLE_NURSE, ERole.ROLE_REGISTRAR));
+            UserDTO plain = userService.createUser(newUser());
+            created.setPassword(null);
+            userService.updateUserWithRoles(created.getId(), created, EnumSet.of(ERole.ROLE_USER, ERole.ROLE_ADMIN));
+
+            createdId = created.getId();
+            assertNotNull(plain.getId());
+            assertEquals(0, statistics.getEntityStatistics(Role.class.getName()).getLoadCount());
+            assertTrue(Arrays.stream(statistics.getQueries()).noneMatch(query -> query.contains("Role")),
+                    () -> Arrays.toString(statistics.getQueries()));
+        } finally {
+            statistics.setStatisticsEnabled(false);
+        }
+        assertEquals(Set.of("ROLE_USER", "ROLE_ADMIN"), Set.copyOf(jdbcTemplate.queryForList(
+                "SELECT r.name FROM user_roles ur JOIN roles r ON r.id = ur.role_id WHERE ur.user_id = ?",
+                String.class, createdId)));
+    }
+
+    private static UserDTO newUser() {
+        String suffix = UUID.randomUUID().toString().substring(0, 8);
+        UserDTO dto = new UserDTO();
+        dto.setLogin("role" + suffix);
+        dto.setEmail("role" + suffix + "@test.local");
+        dto.setPassword("secret");
+        dto.setFullName("Проверка Ролей");
+        dto.setPhone("+79990000000");
+        dto.setBirthDate(LocalDate.of(2000, 1, 1));
+        return dto;
+    }
+}
@@ -0,0 +1,66 @@
+package ru.naumen.sanatoriumproject.services;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import ru.naumen.sanatoriumproject.TestDataSeeder;
+import ru.naumen.sanatoriumproject.dtos.RegistrationDTO;
+import ru.naumen.sanatoriumproject.dtos.RoomAllocationResultDTO;
+import ru.naumen.sanatoriumproject.models.Registration;
+import ru.naumen.sanatoriumproject.models.Room;
+import ru.naumen.sanatoriumproject.models.User;
+import ru.naumen.sanatoriumproject.repositories.RegistrationRepository;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+class RoomAllocationTest {
+    @Autowired
+    private ApplicationContext context;
+
+    @Autowired
+    private RegistrationService registrationService;
+
+    @Autowired
+    private RegistrationRepository registrationRepository;
+
+    @Test
+    void allocationNeverExceedsPerShiftCapacity() {
+        TestDataSeeder data = new TestDataSeeder(context);
+        data.seed();
+        Long shiftId = data.getShift().getId();
+        List<Room> rooms = data.createRooms(2, 2);
+        List<User> guests = data.createStudents(6);
+
+        RegistrationDTO placed = new RegistrationDTO();
+        placed.setUserId(guests.get(0).getId());
+        placed.setRoomId(rooms.get(0).getId());
+        placed.setShiftId(shiftId);
+        registrationService.registerUser(placed);
+
+        // Заезды не пересекаются по датам, но каждая регистрация занимает место на всю смену
+        LocalDate start = data.getShift().getStartDate();
+        List<Registration> pending = new ArrayList<>();
+        for (int i = 1; i < guests.size(); i++) {
+            Registration registration = new Registration(guests.get(i), null, data.getShift());
+            registration.setCheckInDate(start.plusDays(i * 3L));
+            registration.setCheckOutDate(start.plusDays(i * 3L + 2));
+            pending.add(registration);
+        }
+        registrationRepository.saveAll(pending);
+
+        RoomAllocationResultDTO result = registrationService.allocateRooms(shiftId);
+
+        assertEquals(3, result.getAssigned());
+        assertEquals(2, result.getUnassignedRegistrationIds().size());
+        for (Room room : rooms) {
+            assertTrue(registrationRepository.countByRoomIdAndShiftId(room.getId(), shiftId) <= room.getCapacity());
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package ru.naumen.sanatoriumproject.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RoomAllocatorTest {
+    @Test
+    void groupsGoToTightestRoomThatFitsThemWhole() {
+        RoomAllocator allocator = new RoomAllocator(new int[]{2, 4, 3});
+        int[] from = {0, 0, 0, 0, 2, 2, 2, 5, 5};
+        int[] to = {14, 14, 14, 14, 9, 9, 9, 12, 12};
+
+        int[] rooms = allocator.allocate(from, to);
+
+        assertArrayEquals(new int[]{1, 1, 1, 1, 2, 2, 2, 0, 0}, rooms);
+    }
+
+    @Test
+    void guestsWithDisjointStaysStillTakeSeparatePlaces() {
+        RoomAllocator allocator = new RoomAllocator(new int[]{1, 1});
+        int[] rooms = allocator.allocate(new int[]{0, 5, 3}, new int[]{5, 10, 7});
+
+        assertEquals(2, Arrays.stream(rooms).filter(room -> room >= 0).distinct().count());
+        assertEquals(1, Arrays.stream(rooms).filter(room -> room == -1).count());
+    }
+
+    @Test
+    void oversizedGroupIsSplitIntoFewestRooms() {
+        RoomAllocator allocator = new RoomAllocator(new int[]{2, 1, 3});
+        allocator.occupy(2);
+
+        int[] rooms = allocator.allocate(new int[]{0, 0, 0, 0, 0}, new int[]{7, 7, 7, 7, 7});
+
+        assertEquals(2, Arrays.stream(rooms).filter(room -> room == 2).count());
+        assertEquals(2, Arrays.stream(rooms).filter(room -> room == 0).count());
+        assertEquals(1, Arrays.stream(rooms).filter(room -> room == -1 || room == 1).count());
+    }
+
+    @Test
+    void capacityHoldsForTheWholeShift() {
+        Random random = new Random(42);
+        int days = 21;
+        int[] capacities = new int[500];
+        for (int r = 0; r < capacities.length; r++) {
+            capacities[r] = 1 + random.nextInt(4);
+        }
+        RoomAllocator allocator = new RoomAllocator(capacities);
+        int[] occupancy = new int[capacities.length];
+        for (int r = 0; r < capacities.length; r += 7) {
+            allocator.occupy(r);
+            occupancy[r]++;
+        }
+        int[] from = new int[2000];
+        int[] to = new int[2000];
+        for (int i = 0; i < from.length; i++) {
+            from[i] = random.nextInt(days);
+            to[i] = from[i] + 1 + random.nextInt(days - from[i]);
+        }
+
+        int[] rooms = allocator.allocate(from, to);
+
+        for (int room : rooms) {
+            if (room >= 0) {
+                occupancy[room]++;
+            }
+        }
+        for (int r = 0; r < capacities.length; r++) {
+            assertTrue(occupancy[r] <= capacities[r], "room " + r);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package ru.naumen.sanatoriumproject.services;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import ru.naumen.sanatoriumproject.TestDataSeeder;
+import ru.naumen.sanatoriumproject.dtos.RegistrationDTO;
+import ru.naumen.sanatoriumproject.dtos.RoomDTO;
+import ru.naumen.sanatoriumproject.models.Room;
+import ru.naumen.sanatoriumproject.models.User;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class RoomOccupancyIndexTest {
+    @Autowired
+    private ApplicationContext context;
+
+    @Autowired
+    private RoomService roomService;
+
+    @Autowired
+    private RegistrationService registrationService;
+
+    @Autowired
+    private RoomOccupancyIndex occupancyIndex;
+
+    @Test
+    void indexFollowsRegistrationChanges() {
+        TestDataSeeder data = new TestDataSeeder(context);
+        data.seed();
+        Long shiftId = data.getShift().getId();
+        List<Room> rooms = data.createRooms(2, 2);
+        Long first = rooms.get(0).getId();
+        Long second = rooms.get(1).getId();
+        List<User> guests = data.createStudents(3);
+
+        register(guests.get(0), first, shiftId);
+        assertEquals(1, occupancy(shiftId).get(first));
+        assertTrue(occupancyIndex.isLoaded(shiftId));
+
+        register(guests.get(1), first, shiftId);
+        register(guests.get(2), second, shiftId);
+        assertFalse(occupancy(shiftId).containsKey(first), "full room is not available");
+        assertEquals(1, occupancy(shiftId).get(second));
+
+        // Переселение и выписка
+        register(guests.get(1), second, shiftId);
+        registrationService.unregisterUser(guests.get(2).getId(), shiftId);
+        assertEquals(1, occupancy(shiftId).get(first));
+        assertEquals(1, occupancy(shiftId).get(second));
+
+        occupancyIndex.evict(shiftId);
+        assertEquals(Map.of(first, 1, second, 1), occupancy(shiftId).entrySet().stream()
+                .filter(e -> e.getKey().equals(first) || e.getKey().equals(second))
+                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue)));
+    }
+
+    private void register(User user, Long roomId, Long shiftId) {
+        RegistrationDTO dto = new RegistrationDTO();
+        dto.setUserId(user.getId());
+        dto.setRoomId(roomId);
+        dto.setShiftId(shiftId);
+        registrationService.registerUser(dto);
+    }
+
+    private Map<Long, Integer> occupancy(Long shiftId) {
+        return roomService.getAvailableRooms(shiftId).stream()
+                .collect(Collectors.toMap(RoomDTO::getId, RoomDTO::getCurrentOccupancy));
+    }
+}
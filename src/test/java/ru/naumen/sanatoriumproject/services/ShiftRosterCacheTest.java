@@ -0,0 +1,74 @@
+package ru.naumen.sanatoriumproject.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import ru.naumen.sanatoriumproject.TestDataSeeder;
+import ru.naumen.sanatoriumproject.dtos.RegistrationDTO;
+import ru.naumen.sanatoriumproject.dtos.UserDTO;
+import ru.naumen.sanatoriumproject.models.Room;
+import ru.naumen.sanatoriumproject.models.User;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class ShiftRosterCacheTest {
+    @Autowired
+    private ApplicationContext context;
+
+    @Autowired
+    private RegistrationService registrationService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void rosterIsServedFromCacheUntilRegistrationsChange() throws Exception {
+        TestDataSeeder data = new TestDataSeeder(context);
+        data.seed();
+        Long shiftId = data.getShift().getId();
+        Room room = data.createRooms(1, 3).get(0);
+        List<User> guests = data.createStudents(2);
+
+        register(guests.get(0), room.getId(), shiftId);
+        ShiftRosterCache.Roster first = registrationService.getShiftRoster(shiftId);
+        assertSame(first, registrationService.getShiftRoster(shiftId));
+        assertEquals(1, roster(first).length);
+
+        register(guests.get(1), room.getId(), shiftId);
+        ShiftRosterCache.Roster second = registrationService.getShiftRoster(shiftId);
+        assertNotEquals(first.getEtag(), second.getEtag());
+        assertEquals(2, roster(second).length);
+
+        // Новое ФИО попадает в список, хотя регистрации не менялись
+        UserDTO renamed = new UserDTO();
+        renamed.setFullName("Переименованный Гость");
+        renamed.setPhone(guests.get(0).getPhone());
+        renamed.setBirthDate(guests.get(0).getBirthDate());
+        userService.updateUserWithRoles(guests.get(0).getId(), renamed, null);
+        RegistrationDTO[] third = roster(registrationService.getShiftRoster(shiftId));
+        assertTrue(List.of(third).stream().anyMatch(r -> renamed.getFullName().equals(r.getUserFullName())));
+
+        registrationService.unregisterUser(guests.get(1).getId(), shiftId);
+        assertEquals(1, roster(registrationService.getShiftRoster(shiftId)).length);
+    }
+
+    private void register(User user, Long roomId, Long shiftId) {
+        RegistrationDTO dto = new RegistrationDTO();
+        dto.setUserId(user.getId());
+        dto.setRoomId(roomId);
+        dto.setShiftId(shiftId);
+        registrationService.registerUser(dto);
+    }
+
+    private RegistrationDTO[] roster(ShiftRosterCache.Roster roster) throws Exception {
+        return objectMapper.readValue(roster.getJson(), RegistrationDTO[].class);
+    }
+}
@@ -0,0 +1,72 @@
+package ru.naumen.sanatoriumproject.services;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import ru.naumen.sanatoriumproject.TestDataSeeder;
+import ru.naumen.sanatoriumproject.models.Cabinet;
+import ru.naumen.sanatoriumproject.models.StaffCabinetId;
+import ru.naumen.sanatoriumproject.repositories.StaffCabinetRepository;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+class StaffCabinetAccessMatrixTest {
+    @Autowired
+    private ApplicationContext context;
+
+    @Autowired
+    private StaffCabinetService staffCabinetService;
+
+    @Autowired
+    private StaffCabinetRepository staffCabinetRepository;
+
+    @Autowired
+    private StaffCabinetAccessMatrix accessMatrix;
+
+    @Test
+    void matrixMatchesTableAfterAssignmentsAndRemovals() {
+        TestDataSeeder data = new TestDataSeeder(context);
+        data.seed();
+        Long staffId = data.getStaff().getId();
+
+        List<Cabinet> cabinets = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            Cabinet cabinet = data.createCabinet();
+            cabinets.add(cabinet);
+            staffCabinetService.assignCabinetToStaff(staffId, cabinet.getId());
+        }
+        staffCabinetService.removeCabinetFromStaff(staffId, cabinets.get(1).getId());
+        staffCabinetService.removeCabinetFromStaff(staffId, data.getCabinet().getId());
+
+        assertConsistentWithTable();
+        assertEquals(Set.of(cabinets.get(0).getId(), cabinets.get(2).getId(), cabinets.get(3).getId()),
+                cabinetIds(staffId));
+
+        accessMatrix.reload();
+        assertConsistentWithTable();
+    }
+
+    private void assertConsistentWithTable() {
+        List<StaffCabinetId> rows = staffCabinetRepository.findAllIds();
+        for (StaffCabinetId row : rows) {
+            assertTrue(accessMatrix.hasAccess(row.getUserId(), row.getCabinetId()));
+        }
+        rows.stream()
+                .collect(Collectors.groupingBy(StaffCabinetId::getUserId,
+                        Collectors.mapping(StaffCabinetId::getCabinetId, Collectors.toSet())))
+                .forEach((userId, cabinetIds) -> assertEquals(cabinetIds, cabinetIds(userId)));
+    }
+
+    private Set<Long> cabinetIds(Long userId) {
+        return Arrays.stream(accessMatrix.getCabinetIds(userId)).boxed().collect(Collectors.toSet());
+    }
+}
@@ -0,0 +1,93 @@
+package ru.naumen.sanatoriumproject.services;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import ru.naumen.sanatoriumproject.models.News;
+import ru.naumen.sanatoriumproject.repositories.NewsRepository;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class UploadSweeperTest {
+    @Autowired
+    private UploadSweeper uploadSweeper;
+
+    @Autowired
+    private FileStorageService fileStorageService;
+
+    @Autowired
+    private NewsRepository newsRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void deletesOnlyOldUnreferencedFiles() throws Exception {
+        String orphan = UUID.randomUUID() + ".png";
+        String referenced = UUID.randomUUID() + ".png";
+        Path orphanFile = write(orphan, 100, true);
+        Path orphanVariant = write(ImageVariantService.variantName(orphan, 320), 40, true);
+        Path staleTemp = write(".upload" + UUID.randomUUID() + ".tmp", 7, true);
+        Path referencedFile = write(referenced, 100, true);
+        Path referencedVariant = write(ImageVariantService.variantName(referenced, 320), 40, true);
+        Path youngOrphan = write(UUID.randomUUID() + ".jpg", 100, false);
+        // У gif копий не бывает: файл с именем копии не держится за ссылку на оригинал
+        String gif = UUID.randomUUID() + ".gif";
+        Path gifFile = write(gif, 100, true);
+        Path strayGifVariant = write(ImageVariantService.variantName(gif, 320), 40, true);
+
+        News news = new News();
+        news.setTitle("Новость с картинкой");
+        news.setContent("Картинка должна остаться");
+        news.setImagePath(referenced);
+        news = newsRepository.save(news);
+        News gifNews = new News();
+        gifNews.setTitle("Новость с анимацией");
+        gifNews.setContent("Картинка должна остаться");
+        gifNews.setImagePath(gif);
+        gifNews = newsRepository.save(gifNews);
+        double reclaimedBefore = meterRegistry.counter("uploads.sweep.reclaimed").count();
+        try {
+            UploadSweeper.Result result = uploadSweeper.sweep();
+
+            assertFalse(Files.exists(orphanFile));
+            assertFalse(Files.exists(orphanVariant));
+            assertFalse(Files.exists(staleTemp));
+            assertTrue(Files.exists(referencedFile));
+            assertTrue(Files.exists(referencedVariant));
+            assertTrue(Files.exists(youngOrphan));
+            assertTrue(Files.exists(gifFile));
+            assertFalse(Files.exists(strayGifVariant));
+            assertTrue(result.getDeletedFiles() >= 4);
+            assertTrue(result.getReclaimedBytes() >= 187);
+            assertEquals(result.getReclaimedBytes(),
+                    meterRegistry.counter("uploads.sweep.reclaimed").count() - reclaimedBefore, 0.5);
+        } finally {
+            newsRepository.delete(news);
+            newsRepository.delete(gifNews);
+            Files.deleteIfExists(gifFile);
+            Files.deleteIfExists(referencedFile);
+            Files.deleteIfExists(referencedVariant);
+            Files.deleteIfExists(youngOrphan);
+        }
+    }
+
+    private Path write(String name, int size, boolean old) throws Exception {
+        Path file = fileStorageService.loadFile(name);
+        Files.createDirectories(file.getParent());
+        Files.write(file, new byte[size]);
+        if (old) {
+            Files.setLastModifiedTime(file, FileTime.from(Instant.now().minus(Duration.ofDays(2))));
+        }
+        return file;
+    }
+}
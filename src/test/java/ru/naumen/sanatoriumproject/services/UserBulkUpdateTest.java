@@ -0,0 +1,126 @@
+package ru.naumen.sanatoriumproject.services;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.web.server.ResponseStatusException;
+import ru.naumen.sanatoriumproject.dtos.UserBulkUpdateDTO;
+import ru.naumen.sanatoriumproject.dtos.UserBulkUpdateResultDTO;
+import ru.naumen.sanatoriumproject.dtos.UserDTO;
+import ru.naumen.sanatoriumproject.models.ERole;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class UserBulkUpdateTest {
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void appliesRoleDiffsAndFieldChangesInOneTransaction() {
+        Long doctor = userService.createUserWithRoles(newUser(), EnumSet.of(ERole.ROLE_DOCTOR, ERole.ROLE_REGISTRAR)).getId();
+        Long nurse = userService.createUserWithRoles(newUser(), EnumSet.of(ERole.ROLE_NURSE)).getId();
+        Long student = userService.createUser(newUser()).getId();
+
+        UserBulkUpdateDTO bulk = new UserBulkUpdateDTO(List.of(
+                change(doctor, null, null, Set.of("ROLE_DOCTOR", "ROLE_NURSE")),
+                change(nurse, null, "newSecret", Set.of()),
+                change(student, "Новое Имя", "otherSecret", null)));
+
+        UserBulkUpdateResultDTO result;
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        statistics.setStatisticsEnabled(true);
+        try {
+            result = userService.bulkUpdate(bulk);
+            assertTrue(Arrays.stream(statistics.getQueries()).noneMatch(query -> query.contains("Role")),
+                    () -> Arrays.toString(statistics.getQueries()));
+            assertEquals(0, statistics.getCollectionLoadCount());
+        } finally {
+            statistics.setStatisticsEnabled(false);
+        }
+
+        assertEquals(new UserBulkUpdateResultDTO(3, 1, 1, 2), result);
+        assertEquals(Set.of("ROLE_DOCTOR", "ROLE_NURSE"), roles(doctor));
+        assertEquals(Set.of("ROLE_NURSE"), roles(nurse));
+        assertEquals(Set.of("ROLE_USER"), roles(student));
+        assertTrue(passwordEncoder.matches("newSecret", password(nurse)));
+        assertTrue(passwordEncoder.matches("otherSecret", password(student)));
+        assertEquals("Новое Имя", jdbcTemplate.queryForObject(
+                "SELECT full_name FROM users WHERE id = ?", String.class, student));
+        assertEquals("+79990000000", jdbcTemplate.queryForObject(
+                "SELECT phone FROM users WHERE id = ?", String.class, student));
+    }
+
+    @Test
+    void unknownUserRollsBackTheWholeBatch() {
+        Long doctor = userService.createUserWithRoles(newUser(), EnumSet.of(ERole.ROLE_DOCTOR)).getId();
+
+        UserBulkUpdateDTO bulk = new UserBulkUpdateDTO(List.of(
+                change(doctor, "Другое Имя", null, Set.of("ROLE_NURSE")),
+                change(Long.MAX_VALUE, null, null, Set.of("ROLE_NURSE"))));
+
+        ResponseStatusException error = assertThrows(ResponseStatusException.class, () -> userService.bulkUpdate(bulk));
+        assertEquals(HttpStatus.NOT_FOUND, error.getStatusCode());
+        assertEquals(Set.of("ROLE_DOCTOR"), roles(doctor));
+        assertEquals("Проверка Пакета", jdbcTemplate.queryForObject(
+                "SELECT full_name FROM users WHERE id = ?", String.class, doctor));
+
+        UserBulkUpdateDTO unknownRole = new UserBulkUpdateDTO(List.of(change(doctor, null, null, Set.of("ROLE_GUEST"))));
+        assertEquals(HttpStatus.BAD_REQUEST, assertThrows(ResponseStatusException.class,
+                () -> userService.bulkUpdate(unknownRole)).getStatusCode());
+    }
+
+    private Set<String> roles(Long userId) {
+        return Set.copyOf(jdbcTemplate.queryForList(
+                "SELECT r.name FROM user_roles ur JOIN roles r ON r.id = ur.role_id WHERE ur.user_id = ?",
+                String.class, userId));
+    }
+
+    private String password(Long userId) {
+        return jdbcTemplate.queryForObject("SELECT password FROM users WHERE id = ?", String.class, userId);
+    }
+
+    private static UserBulkUpdateDTO.Change change(Long id, String fullName, String password, Set<String> roles) {
+        UserBulkUpdateDTO.Change change = new UserBulkUpdateDTO.Change();
+        change.setId(id);
+        change.setFullName(fullName);
+        change.setPassword(password);
+        change.setRoles(roles);
+        return change;
+    }
+
+    private static UserDTO newUser() {
+        String suffix = UUID.randomUUID().toString().substring(0, 8);
+        UserDTO dto = new UserDTO();
+        dto.setLogin("bulk" + suffix);
+        dto.setEmail("bulk" + suffix + "@test.local");
+        dto.setPassword("secret");
+        dto.setFullName("Проверка Пакета");
+        dto.setPhone("+79990000000");
+        dto.setBirthDate(LocalDate.of(2000, 1, 1));
+        return dto;
+    }
+}
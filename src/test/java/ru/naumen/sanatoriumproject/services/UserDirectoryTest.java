@@ -0,0 +1,83 @@
+package ru.naumen.sanatoriumproject.services;
+
+import org.junit.jupiter.api.Test;
+import ru.naumen.sanatoriumproject.models.ERole;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserDirectoryTest {
+    private static final int USER = UserDirectory.roleBit(ERole.ROLE_USER);
+    private static final int DOCTOR = UserDirectory.roleBit(ERole.ROLE_DOCTOR);
+
+    @Test
+    void findsFragmentsAndWordPrefixesInAnyField() {
+        UserDirectory directory = directory();
+
+        assertEquals(List.of(1L, 2L), ids(directory.search("иван", 0, 0, 10)));
+        assertEquals(List.of(3L), ids(directory.search("пётр", 0, 0, 10)));
+        assertEquals(List.of(1L), ids(directory.search("ivanov@", 0, 0, 10)));
+        assertEquals(List.of(3L), ids(directory.search("+7 (912) 55", 0, 0, 10)));
+        assertEquals(List.of(2L), ids(directory.search("Ив А", 0, 0, 10)));
+        assertTrue(directory.search("сидор", 0, 0, 10).getItems().isEmpty());
+    }
+
+    @Test
+    void filtersByRolesAndPagesInNameOrder() {
+        UserDirectory directory = directory();
+
+        assertEquals(List.of(1L, 2L, 3L), ids(directory.search("", 0, 0, 10)));
+        assertEquals(List.of(2L), ids(directory.search(null, DOCTOR, 0, 10)));
+        assertEquals(List.of(1L, 3L), ids(directory.search("", USER, 0, 10)));
+
+        UserDirectory.Result page = directory.search(null, 0, 1, 1);
+        assertEquals(List.of(2L), ids(page));
+        assertEquals(3, page.getTotal());
+    }
+
+    @Test
+    void updatesAndRemovalsReplaceEntries() {
+        UserDirectory directory = directory();
+
+        directory.put(new UserDirectory.Entry(1L, "Смирнов Иван", "ismirnov", "ivanov@mail.ru",
+                "+79001112233", null, USER));
+        assertTrue(directory.search("сергей", 0, 0, 10).getItems().isEmpty());
+        assertEquals(List.of(1L), ids(directory.search("смирн", 0, 0, 10)));
+        assertEquals(List.of(2L, 3L, 1L), ids(directory.search("", 0, 0, 10)));
+
+        directory.remove(2L);
+        assertEquals(List.of(3L, 1L), ids(directory.search("", 0, 0, 10)));
+        assertEquals(2, directory.size());
+    }
+
+    @Test
+    void compactionKeepsSearchResults() {
+        UserDirectory directory = new UserDirectory();
+        for (long id = 1; id <= 3000; id++) {
+            directory.put(new UserDirectory.Entry(id, "Гость " + id, "guest" + id, null, null, null, USER));
+        }
+        for (long id = 1; id <= 2500; id++) {
+            directory.remove(id);
+        }
+
+        assertEquals(500, directory.size());
+        assertEquals(500, directory.search("гость", USER, 0, 10).getTotal());
+        assertEquals(List.of(2999L), ids(directory.search("guest2999", 0, 0, 10)));
+    }
+
+    private static UserDirectory directory() {
+        UserDirectory directory = new UserDirectory();
+        directory.put(new UserDirectory.Entry(1L, "Иванов Сергей", "ivanov", "ivanov@mail.ru",
+                "+79001112233", null, USER));
+        directory.put(new UserDirectory.Entry(2L, "Иванова Анна", "anna", "anna@mail.ru",
+                "+79004445566", null, DOCTOR));
+        directory.put(new UserDirectory.Entry(3L, "Петров Пётр", "petrov", "petrov@mail.ru",
+                "+7 (912) 555-00-11", null, USER));
+        return directory;
+    }
+
+    private static List<Long> ids(UserDirectory.Result result) {
+        return result.getItems().stream().map(UserDirectory.Entry::getId).toList();
+    }
+}
@@ -0,0 +1,129 @@
+package ru.naumen.sanatoriumproject.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import ru.naumen.sanatoriumproject.TestDataSeeder;
+import ru.naumen.sanatoriumproject.dtos.AppointmentDTO;
+import ru.naumen.sanatoriumproject.dtos.ProcedureDTO;
+import ru.naumen.sanatoriumproject.dtos.RegistrationDTO;
+import ru.naumen.sanatoriumproject.dtos.UserDTO;
+import ru.naumen.sanatoriumproject.dtos.UserShiftInfoDTO;
+import ru.naumen.sanatoriumproject.models.User;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class UserProfileCacheTest {
+    @Autowired
+    private ApplicationContext context;
+
+    @Autowired
+    private UserProfileService profileService;
+
+    @Autowired
+    private RegistrationService registrationService;
+
+    @Autowired
+    private AppointmentService appointmentService;
+
+    @Autowired
+    private ProcedureService procedureService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    void viewsAreServedWithoutDatabaseUntilUserDataChanges() throws Exception {
+        TestDataSeeder data = new TestDataSeeder(context);
+        data.seed();
+        Long studentId = data.getStudent().getId();
+        Long otherId = data.createStudents(1).get(0).getId();
+        register(studentId, data.getShift().getId());
+
+        UserProfileCache.View shifts = profileService.getShiftsView(studentId);
+        UserProfileCache.View profile = profileService.getProfileView(studentId);
+        UserProfileCache.View other = profileService.getProfileView(otherId);
+        assertEquals(0, statementsFor(() -> {
+            assertSame(shifts, profileService.getShiftsView(studentId));
+            assertSame(profile, profileService.getProfileView(studentId));
+        }));
+
+        // Запись сбрасывает только смены своего гостя
+        appointmentService.createAppointment(data.newAppointmentDto());
+        UserProfileCache.View updated = profileService.getShiftsView(studentId);
+        assertNotEquals(shifts.getEtag(), updated.getEtag());
+        assertEquals(1, read(updated)[0].getAppointments().size());
+        assertSame(other, profileService.getProfileView(otherId));
+
+        // Собственный телефон меняет только свой кабинет: профиль и записи, где он указан
+        User student = data.getStudent();
+        UserDTO changed = new UserDTO();
+        changed.setFullName(student.getFullName());
+        changed.setPhone("+79990001122");
+        changed.setBirthDate(student.getBirthDate());
+        userService.updateUserWithRoles(studentId, changed, null);
+        assertNotEquals(profile.getEtag(), profileService.getProfileView(studentId).getEtag());
+        assertSame(other, profileService.getProfileView(otherId));
+        assertEquals(changed.getPhone(),
+                read(profileService.getShiftsView(studentId))[0].getAppointments().get(0).getStudentPhone());
+
+        // Название процедуры видно всем, поэтому сбрасывается весь кэш
+        ProcedureDTO procedure = new ProcedureDTO();
+        procedure.setId(data.getProcedure().getId());
+        procedure.setName(data.getProcedure().getName() + " (новая)");
+        procedure.setCabinetId(data.getCabinet().getId());
+        procedure.setDefaultDuration(data.getProcedure().getDefaultDuration());
+        procedureService.updateProcedure(procedure.getId(), procedure);
+        UserProfileCache.View renamed = profileService.getShiftsView(studentId);
+        assertEquals(procedure.getName(), read(renamed)[0].getAppointments().get(0).getProcedureName());
+        assertNotSame(other, profileService.getProfileView(otherId));
+    }
+
+    @Test
+    void appointmentDeletionInvalidatesStudentShifts() throws Exception {
+        TestDataSeeder data = new TestDataSeeder(context);
+        data.seed();
+        Long studentId = data.getStudent().getId();
+        register(studentId, data.getShift().getId());
+        AppointmentDTO appointment = appointmentService.createAppointment(data.newAppointmentDto());
+
+        assertEquals(1, read(profileService.getShiftsView(studentId))[0].getAppointments().size());
+        appointmentService.deleteAppointment(appointment.getId());
+        assertTrue(read(profileService.getShiftsView(studentId))[0].getAppointments().isEmpty());
+    }
+
+    private void register(Long userId, Long shiftId) {
+        RegistrationDTO dto = new RegistrationDTO();
+        dto.setUserId(userId);
+        dto.setShiftId(shiftId);
+        registrationService.registerUser(dto);
+    }
+
+    private UserShiftInfoDTO[] read(UserProfileCache.View view) throws Exception {
+        return objectMapper.readValue(view.getJson(), UserShiftInfoDTO[].class);
+    }
+
+    private long statementsFor(Runnable action) {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        statistics.setStatisticsEnabled(true);
+        try {
+            action.run();
+            return statistics.getPrepareStatementCount();
+        } finally {
+            statistics.setStatisticsEnabled(false);
+        }
+    }
+}
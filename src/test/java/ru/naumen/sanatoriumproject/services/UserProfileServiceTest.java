@@ -0,0 +1,117 @@
+package ru.naumen.sanatoriumproject.services;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import ru.naumen.sanatoriumproject.TestDataSeeder;
+import ru.naumen.sanatoriumproject.dtos.AppointmentDTO;
+import ru.naumen.sanatoriumproject.dtos.RegistrationDTO;
+import ru.naumen.sanatoriumproject.dtos.UserShiftInfoDTO;
+import ru.naumen.sanatoriumproject.models.Room;
+import ru.naumen.sanatoriumproject.models.Shift;
+import ru.naumen.sanatoriumproject.repositories.ShiftRepository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class UserProfileServiceTest {
+    // Регистрации, записи и отметки — по одному запросу на всё сразу
+    private static final long PROFILE_STATEMENTS = 3;
+
+    @Autowired
+    private ApplicationContext context;
+
+    @Autowired
+    private UserProfileService profileService;
+
+    @Autowired
+    private RegistrationService registrationService;
+
+    @Autowired
+    private AppointmentService appointmentService;
+
+    @Autowired
+    private ProcedureCompletionService completionService;
+
+    @Autowired
+    private ShiftRepository shiftRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    void statementCountDoesNotGrowWithShifts() {
+        TestDataSeeder data = new TestDataSeeder(context);
+        data.seed();
+        Long studentId = data.getStudent().getId();
+        Room room = data.createRooms(1, 4).get(0);
+
+        fillShift(data, data.getShift(), room);
+        assertEquals(PROFILE_STATEMENTS, statementsFor(() -> profileService.getUserShifts(studentId)));
+        List<UserShiftInfoDTO> single = profileService.getUserShifts(studentId);
+        assertEquals(1, single.size());
+        assertEquals(2, single.get(0).getAppointments().size());
+        assertEquals(1, single.get(0).getCompletedProcedures().size());
+        assertEquals(room.getNumber(), single.get(0).getRoomNumber());
+        assertNotNull(single.get(0).getAppointments().get(0).getCheckInToken());
+
+        for (int i = 0; i < 3; i++) {
+            Shift shift = new Shift("Профиль " + i, LocalDate.now(), LocalDate.now().plusDays(14), true);
+            shift.setDescription("Профиль");
+            fillShift(data, shiftRepository.save(shift), room);
+        }
+        assertEquals(PROFILE_STATEMENTS, statementsFor(() -> profileService.getUserShifts(studentId)));
+        List<UserShiftInfoDTO> several = profileService.getUserShifts(studentId);
+        assertEquals(4, several.size());
+        several.forEach(info -> {
+            assertEquals(2, info.getAppointments().size());
+            assertEquals(1, info.getCompletedProcedures().size());
+            info.getAppointments().forEach(appointment -> assertEquals(info.getShiftId(), appointment.getShiftId()));
+        });
+    }
+
+    @Test
+    void studentWithoutRegistrationsNeedsOneStatement() {
+        TestDataSeeder data = new TestDataSeeder(context);
+        data.seed();
+        Long studentId = data.getStudent().getId();
+        assertEquals(1, statementsFor(() -> profileService.getUserShifts(studentId)));
+        assertTrue(profileService.getUserShifts(studentId).isEmpty());
+    }
+
+    private void fillShift(TestDataSeeder data, Shift shift, Room room) {
+        RegistrationDTO registration = new RegistrationDTO();
+        registration.setUserId(data.getStudent().getId());
+        registration.setRoomId(room.getId());
+        registration.setShiftId(shift.getId());
+        registrationService.registerUser(registration);
+
+        Long completedId = null;
+        for (int i = 0; i < 2; i++) {
+            AppointmentDTO dto = data.newAppointmentDto();
+            dto.setShiftId(shift.getId());
+            completedId = appointmentService.createAppointment(dto).getId();
+        }
+        completionService.markProcedureAsCompleted(completedId, data.getStaff().getId(), null);
+    }
+
+    // Счётчик Hibernate включается только на время вызова, чтобы не замедлять остальные тесты общего контекста
+    private long statementsFor(Runnable action) {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        statistics.setStatisticsEnabled(true);
+        try {
+            action.run();
+            return statistics.getPrepareStatementCount();
+        } finally {
+            statistics.setStatisticsEnabled(false);
+        }
+    }
+}